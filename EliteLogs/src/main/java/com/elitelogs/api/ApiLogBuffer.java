@@ -1,28 +1,90 @@
 package com.elitelogs.api;
 
+import com.elitelogs.api.provider.LogRecord;
 import com.elitelogs.logging.LogRouter;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public final class ApiLogBuffer implements LogRouter.SinkListener {
+    private static final int PENDING_SEALS = 64;
+
+    /**
+     * Deflates full history blocks off the logging thread. When sealing falls
+     * behind, or after {@link #close()}, the logging thread deflates inline.
+     */
+    private final ExecutorService sealer = new ThreadPoolExecutor(0, 1,
+            30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(PENDING_SEALS), runnable -> {
+                Thread thread = new Thread(runnable, "EliteLogs-History");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, pool) -> runnable.run());
     private final Map<String, CategoryBuffer> buffers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> categoryIds = new ConcurrentHashMap<>();
+    private final List<String> categoryNames = new CopyOnWriteArrayList<>();
     private final AtomicInteger capacity = new AtomicInteger(250);
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<EntryListener> entryListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean indexed;
+    private volatile boolean preSerialized;
+    private volatile HistoryConfig historyConfig;
 
     @Override
     public void onLogged(String category, String line) {
+        onLogged(category, line, System.currentTimeMillis(), null, 0);
+    }
+
+    @Override
+    public void onLogged(String category, String line, long timestampMillis, UUID playerUuid, int messageOffset) {
         if (category == null || line == null) {
             return;
         }
-        CategoryBuffer buffer = buffers.computeIfAbsent(category, key -> new CategoryBuffer());
-        buffer.add(line, capacity.get());
+        CategoryBuffer buffer = buffers.computeIfAbsent(category, key -> new CategoryBuffer(categoryId(key), indexed, historyConfig));
+        int offset = Math.max(0, Math.min(messageOffset, line.length()));
+        Entry entry = buffer.add(timestampMillis, playerUuid, offset, line, capacity.get());
+        if (preSerialized) {
+            entry.encodedJson = JsonUtil.encode(LogRecord.buffered(category, "buffer", entry.getSequence(), line,
+                    timestampMillis, entry.getMessage(), playerUuid));
+        }
+        for (EntryListener listener : entryListeners) {
+            listener.onEntry(category, entry);
+        }
+    }
+
+    /**
+     * Registers a listener that sees every entry right after it is buffered,
+     * already carrying its sequence number. Called on the logging thread
+     * outside the category lock, so listeners must not block.
+     */
+    void addEntryListener(EntryListener listener) {
+        entryListeners.add(listener);
+    }
+
+    /**
+     * Stops the background sealer. The buffer keeps working; blocks filled
+     * afterwards are deflated on the logging thread.
+     */
+    public void close() {
+        sealer.shutdown();
+    }
+
+    void removeEntryListener(EntryListener listener) {
+        entryListeners.remove(listener);
     }
 
     void setCapacity(int newCapacity) {
@@ -33,6 +95,80 @@ public final class ApiLogBuffer implements LogRouter.SinkListener {
         }
     }
 
+    /**
+     * When enabled every new entry is serialised to JSON once, on the logging
+     * thread, and responses copy those bytes instead of escaping the line on
+     * each read. Costs roughly the line's size again per hot entry; entries
+     * already buffered are left as they are.
+     */
+    void setPreSerialized(boolean enabled) {
+        this.preSerialized = enabled;
+    }
+
+    void setIndexed(boolean enabled) {
+        this.indexed = enabled;
+        for (CategoryBuffer buffer : buffers.values()) {
+            buffer.setIndexed(enabled);
+        }
+    }
+
+    /**
+     * Moves everything but the newest {@code hotEntries} lines per category
+     * into compressed off-heap blocks. Passing {@code enabled = false} drops
+     * the compressed history and keeps the whole buffer on-heap again.
+     */
+    void configureHistory(boolean enabled, int hotEntries, int blockEntries, long maxBytes) {
+        HistoryConfig config = enabled ? new HistoryConfig(hotEntries, blockEntries, maxBytes) : null;
+        if (Objects.equals(config, historyConfig)) {
+            return;
+        }
+        this.historyConfig = config;
+        int currentCapacity = capacity.get();
+        for (CategoryBuffer buffer : buffers.values()) {
+            buffer.setHistory(config, currentCapacity);
+        }
+    }
+
+    public boolean isHistoryEnabled() {
+        return historyConfig != null;
+    }
+
+    public long getHistoryEntries() {
+        long total = 0L;
+        for (CategoryBuffer buffer : buffers.values()) {
+            total += buffer.historyStat(HistoryStat.ENTRIES);
+        }
+        return total;
+    }
+
+    public long getHistoryBlocks() {
+        long total = 0L;
+        for (CategoryBuffer buffer : buffers.values()) {
+            total += buffer.historyStat(HistoryStat.BLOCKS);
+        }
+        return total;
+    }
+
+    public long getHistoryCompressedBytes() {
+        long total = 0L;
+        for (CategoryBuffer buffer : buffers.values()) {
+            total += buffer.historyStat(HistoryStat.COMPRESSED_BYTES);
+        }
+        return total;
+    }
+
+    public long getHistoryRawBytes() {
+        long total = 0L;
+        for (CategoryBuffer buffer : buffers.values()) {
+            total += buffer.historyStat(HistoryStat.RAW_BYTES);
+        }
+        return total;
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
     public int getCapacity() {
         return capacity.get();
     }
@@ -41,7 +177,14 @@ public final class ApiLogBuffer implements LogRouter.SinkListener {
         return Collections.unmodifiableSet(buffers.keySet());
     }
 
-    public List<String> getRecent(String category, int limit) {
+    public String getCategoryName(int categoryId) {
+        if (categoryId < 0 || categoryId >= categoryNames.size()) {
+            return null;
+        }
+        return categoryNames.get(categoryId);
+    }
+
+    public List<Entry> getRecent(String category, int limit) {
         CategoryBuffer buffer = buffers.get(category);
         if (buffer == null) {
             return Collections.emptyList();
@@ -49,34 +192,566 @@ public final class ApiLogBuffer implements LogRouter.SinkListener {
         return buffer.snapshot(limit);
     }
 
-    private static final class CategoryBuffer {
-        private final Deque<String> deque = new ArrayDeque<>();
+    /**
+     * Returns up to {@code limit} of the oldest entries whose sequence is
+     * greater than {@code afterSequence} and whose timestamp is later than
+     * {@code afterMillis}, oldest first. Pass {@link Long#MIN_VALUE} to ignore
+     * either bound. Used by incremental polling so clients only receive lines
+     * they have not seen yet.
+     */
+    public List<Entry> getAfter(String category, long afterSequence, long afterMillis, int limit) {
+        long fromMillis = afterMillis == Long.MIN_VALUE ? Long.MIN_VALUE : afterMillis + 1L;
+        return getRange(category, afterSequence, fromMillis, Long.MAX_VALUE, limit);
+    }
 
-        synchronized void add(String line, int capacity) {
-            deque.addLast(line);
-            trim(capacity);
+    /**
+     * Returns up to {@code limit} of the oldest entries after
+     * {@code afterSequence} stamped inside {@code [fromMillis, toMillis)},
+     * oldest first. The hot ring is entered by binary search on the timestamp
+     * and compressed blocks outside the window are skipped without inflating.
+     */
+    public List<Entry> getRange(String category, long afterSequence, long fromMillis, long toMillis, int limit) {
+        CategoryBuffer buffer = buffers.get(category);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        return buffer.range(afterSequence, fromMillis, toMillis, limit);
+    }
+
+    /**
+     * Returns up to {@code limit} of the newest entries stamped inside
+     * {@code [fromMillis, toMillis)}, oldest first.
+     */
+    public List<Entry> getBefore(String category, long fromMillis, long toMillis, int limit) {
+        CategoryBuffer buffer = buffers.get(category);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        return buffer.before(fromMillis, toMillis, limit);
+    }
+
+    /**
+     * Hands every entry stamped inside {@code [fromMillis, toMillis)} to
+     * {@code visitor} without copying them out. Hot entries are visited under
+     * the category lock, so the visitor must be quick and must not block.
+     */
+    public void forEachInRange(String category, long fromMillis, long toMillis, Consumer<Entry> visitor) {
+        CategoryBuffer buffer = buffers.get(category);
+        if (buffer != null) {
+            buffer.forEachInRange(fromMillis, toMillis, visitor);
+        }
+    }
+
+    public long getLatestSequence(String category) {
+        CategoryBuffer buffer = buffers.get(category);
+        return buffer != null ? buffer.latestSequence() : 0L;
+    }
+
+    /**
+     * Returns up to {@code limit} of the newest entries accepted by
+     * {@code filter}, oldest first. {@code terms} are lowercased substrings
+     * every accepted entry contains; the token index narrows the hot ring to
+     * the entries that may hold all of them, and an empty list scans it.
+     * Compressed history is scanned block by block only when the hot ring
+     * does not fill the limit.
+     */
+    public List<Entry> search(String category, List<String> terms, Predicate<Entry> filter, long fromMillis,
+                              long toMillis, int limit) {
+        CategoryBuffer buffer = buffers.get(category);
+        if (buffer == null) {
+            return Collections.emptyList();
+        }
+        return buffer.search(terms, filter, fromMillis, toMillis, limit);
+    }
+
+    private int categoryId(String category) {
+        Integer existing = categoryIds.get(category);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (categoryNames) {
+            existing = categoryIds.get(category);
+            if (existing != null) {
+                return existing;
+            }
+            int id = categoryNames.size();
+            categoryNames.add(category);
+            categoryIds.put(category, id);
+            return id;
+        }
+    }
+
+    /**
+     * Compact view of a routed line. The timestamp and player come straight
+     * from the router so readers never have to parse the text back.
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final int categoryId;
+        private final long timestampMillis;
+        private final long playerMost;
+        private final long playerLeast;
+        private final boolean hasPlayer;
+        private final int messageOffset;
+        private final String line;
+        private volatile byte[] encodedJson;
+
+        Entry(long sequence, int categoryId, long timestampMillis, UUID playerUuid, int messageOffset, String line) {
+            this.sequence = sequence;
+            this.categoryId = categoryId;
+            this.timestampMillis = timestampMillis;
+            this.hasPlayer = playerUuid != null;
+            this.playerMost = playerUuid != null ? playerUuid.getMostSignificantBits() : 0L;
+            this.playerLeast = playerUuid != null ? playerUuid.getLeastSignificantBits() : 0L;
+            this.messageOffset = messageOffset;
+            this.line = line;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public int getCategoryId() {
+            return categoryId;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public UUID getPlayerUuid() {
+            return hasPlayer ? new UUID(playerMost, playerLeast) : null;
+        }
+
+        public int getMessageOffset() {
+            return messageOffset;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return messageOffset > 0 ? line.substring(messageOffset) : line;
+        }
+
+        /**
+         * The entry as a buffer record in UTF-8 JSON when the buffer
+         * pre-serialises lines, otherwise {@code null}. Entries moved to the
+         * compressed history drop it.
+         */
+        public byte[] getEncodedJson() {
+            return encodedJson;
+        }
+    }
+
+    interface EntryListener {
+        void onEntry(String category, Entry entry);
+    }
+
+    private enum HistoryStat {
+        ENTRIES,
+        BLOCKS,
+        COMPRESSED_BYTES,
+        RAW_BYTES
+    }
+
+    private static final class HistoryConfig {
+        private final int hotEntries;
+        private final int blockEntries;
+        private final long maxBytes;
+
+        private HistoryConfig(int hotEntries, int blockEntries, long maxBytes) {
+            this.hotEntries = Math.max(1, hotEntries);
+            this.blockEntries = Math.max(16, blockEntries);
+            this.maxBytes = Math.max(0L, maxBytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hotEntries, blockEntries, maxBytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof HistoryConfig)) {
+                return false;
+            }
+            HistoryConfig other = (HistoryConfig) obj;
+            return hotEntries == other.hotEntries && blockEntries == other.blockEntries && maxBytes == other.maxBytes;
+        }
+    }
+
+    /**
+     * Hot ring for one category, kept in sequence order. Callers may stamp
+     * lines out of time order, so next to every entry the ring keeps the
+     * running maximum stamp ({@code ceilings}, never decreasing) and the
+     * largest gap seen between that maximum and an entry's own stamp
+     * ({@code maxLag}). Time windows are located by binary search on the
+     * ceilings and widened by the lag, then filtered entry by entry.
+     */
+    private final class CategoryBuffer {
+        private final int categoryId;
+        private Entry[] ring = new Entry[16];
+        private long[] ceilings = new long[16];
+        private int head;
+        private int size;
+        private long ceiling = Long.MIN_VALUE;
+        private long maxLag;
+        private BufferTokenIndex index;
+        private HistoryConfig historyConfig;
+        private CompressedHistory history;
+
+        private CategoryBuffer(int categoryId, boolean indexed, HistoryConfig historyConfig) {
+            this.categoryId = categoryId;
+            this.index = indexed ? new BufferTokenIndex() : null;
+            this.historyConfig = historyConfig;
+            this.history = historyConfig != null
+                    ? new CompressedHistory(categoryId, historyConfig.blockEntries, historyConfig.maxBytes, sealer, this)
+                    : null;
+        }
+
+        synchronized Entry add(long timestampMillis, UUID playerUuid, int messageOffset, String line, int capacity) {
+            Entry entry = new Entry(sequence.incrementAndGet(), categoryId, timestampMillis, playerUuid, messageOffset, line);
+            int hot = hotCapacity(capacity);
+            evict(hot - 1);
+            if (size == ring.length) {
+                grow(Math.min(hot, ring.length * 2));
+            }
+            ceiling = Math.max(ceiling, timestampMillis);
+            maxLag = Math.max(maxLag, ceiling - timestampMillis);
+            ring[(head + size) % ring.length] = entry;
+            ceilings[(head + size) % ring.length] = ceiling;
+            size++;
+            if (index != null) {
+                index.add(entry);
+            }
+            if (history != null) {
+                history.trim((long) capacity - size);
+            }
+            return entry;
         }
 
         synchronized void trim(int capacity) {
-            while (deque.size() > capacity) {
-                deque.removeFirst();
+            evict(hotCapacity(capacity));
+            if (history != null) {
+                history.trim((long) capacity - size);
+            }
+        }
+
+        synchronized void setIndexed(boolean enabled) {
+            if (!enabled) {
+                index = null;
+                return;
+            }
+            if (index == null) {
+                index = new BufferTokenIndex();
+                for (int i = 0; i < size; i++) {
+                    index.add(get(i));
+                }
+            }
+        }
+
+        synchronized void setHistory(HistoryConfig config, int capacity) {
+            if (history != null) {
+                history.close();
+                history = null;
+            }
+            this.historyConfig = config;
+            if (config != null) {
+                history = new CompressedHistory(categoryId, config.blockEntries, config.maxBytes, sealer, this);
+            }
+            trim(capacity);
+        }
+
+        synchronized long historyStat(HistoryStat stat) {
+            if (history == null) {
+                return 0L;
+            }
+            switch (stat) {
+                case ENTRIES:
+                    return history.size();
+                case BLOCKS:
+                    return history.blockCount();
+                case COMPRESSED_BYTES:
+                    return history.compressedBytes();
+                case RAW_BYTES:
+                    return history.rawBytes();
+                default:
+                    return 0L;
+            }
+        }
+
+        List<Entry> snapshot(int limit) {
+            if (limit <= 0) {
+                return Collections.emptyList();
+            }
+            List<Entry> copy;
+            CompressedHistory.View older;
+            synchronized (this) {
+                int count = Math.min(limit, size);
+                copy = new ArrayList<>(count);
+                for (int i = size - count; i < size; i++) {
+                    copy.add(get(i));
+                }
+                older = count < limit && history != null ? history.view() : null;
+            }
+            if (older == null || older.isEmpty()) {
+                return copy;
+            }
+            List<Entry> combined = new ArrayList<>(older.newest(limit - copy.size()));
+            combined.addAll(copy);
+            return combined;
+        }
+
+        List<Entry> range(long afterSequence, long fromMillis, long toMillis, int limit) {
+            if (limit <= 0 || fromMillis >= toMillis) {
+                return Collections.emptyList();
+            }
+            List<Entry> hot = new ArrayList<>();
+            CompressedHistory.View older;
+            synchronized (this) {
+                int start = Math.max(firstAfter(afterSequence), firstReaching(fromMillis));
+                int end = firstReaching(lagged(toMillis));
+                for (int i = start; i < end && hot.size() < limit; i++) {
+                    Entry entry = get(i);
+                    if (entry.timestampMillis >= fromMillis && entry.timestampMillis < toMillis) {
+                        hot.add(entry);
+                    }
+                }
+                boolean reachesHistory = start == 0 && history != null;
+                older = reachesHistory ? history.view() : null;
+            }
+            if (older == null || older.isEmpty()) {
+                return hot;
+            }
+            List<Entry> combined = new ArrayList<>();
+            older.visitRange(afterSequence, fromMillis, toMillis, entry -> {
+                combined.add(entry);
+                return combined.size() < limit;
+            });
+            for (int i = 0; i < hot.size() && combined.size() < limit; i++) {
+                combined.add(hot.get(i));
+            }
+            return combined;
+        }
+
+        List<Entry> before(long fromMillis, long toMillis, int limit) {
+            if (limit <= 0 || fromMillis >= toMillis) {
+                return Collections.emptyList();
+            }
+            List<Entry> newest = new ArrayList<>();
+            CompressedHistory.View older;
+            synchronized (this) {
+                boolean reachedStart = false;
+                for (int i = firstReaching(lagged(toMillis)) - 1; i >= 0 && newest.size() < limit; i--) {
+                    if (ceilingAt(i) < fromMillis) {
+                        reachedStart = true;
+                        break;
+                    }
+                    Entry entry = get(i);
+                    if (entry.timestampMillis >= fromMillis && entry.timestampMillis < toMillis) {
+                        newest.add(entry);
+                    }
+                }
+                older = newest.size() < limit && !reachedStart && history != null ? history.view() : null;
+            }
+            if (older != null) {
+                older.visitBefore(fromMillis, toMillis, entry -> {
+                    newest.add(entry);
+                    return newest.size() < limit;
+                });
             }
+            Collections.reverse(newest);
+            return newest;
         }
 
-        synchronized List<String> snapshot(int limit) {
-            if (limit <= 0 || deque.isEmpty()) {
+        void forEachInRange(long fromMillis, long toMillis, Consumer<Entry> visitor) {
+            if (fromMillis >= toMillis) {
+                return;
+            }
+            CompressedHistory.View older;
+            synchronized (this) {
+                int start = firstReaching(fromMillis);
+                int end = firstReaching(lagged(toMillis));
+                for (int i = start; i < end; i++) {
+                    Entry entry = get(i);
+                    if (entry.timestampMillis >= fromMillis && entry.timestampMillis < toMillis) {
+                        visitor.accept(entry);
+                    }
+                }
+                older = start == 0 && history != null ? history.view() : null;
+            }
+            if (older != null && !older.isEmpty()) {
+                older.visitRange(Long.MIN_VALUE, fromMillis, toMillis, entry -> {
+                    visitor.accept(entry);
+                    return true;
+                });
+            }
+        }
+
+        synchronized long latestSequence() {
+            return size > 0 ? get(size - 1).sequence : 0L;
+        }
+
+        List<Entry> search(List<String> terms, Predicate<Entry> filter, long fromMillis, long toMillis, int limit) {
+            if (limit <= 0 || fromMillis >= toMillis) {
                 return Collections.emptyList();
             }
-            int size = Math.min(limit, deque.size());
-            List<String> copy = new ArrayList<>(size);
-            int skip = deque.size() - size;
-            int index = 0;
-            for (String value : deque) {
-                if (index++ >= skip) {
-                    copy.add(value);
+            List<Entry> matches = new ArrayList<>();
+            CompressedHistory.View older;
+            synchronized (this) {
+                collectHot(terms, filter, fromMillis, toMillis, limit, matches);
+                boolean reachesHistory = size == 0 || ceilingAt(0) >= fromMillis;
+                older = matches.size() < limit && reachesHistory && history != null ? history.view() : null;
+            }
+            if (older != null) {
+                older.visitBefore(fromMillis, toMillis, entry -> {
+                    if (filter.test(entry)) {
+                        matches.add(entry);
+                    }
+                    return matches.size() < limit;
+                });
+            }
+            Collections.reverse(matches);
+            return matches;
+        }
+
+        private void collectHot(List<String> terms, Predicate<Entry> filter, long fromMillis, long toMillis, int limit,
+                                List<Entry> matches) {
+            long[] candidates = index != null ? index.intersect(terms, size) : null;
+            if (candidates != null) {
+                for (int i = 0; i < candidates.length && matches.size() < limit; i++) {
+                    int position = find(candidates[i]);
+                    if (position < 0) {
+                        continue;
+                    }
+                    Entry entry = get(position);
+                    if (entry.timestampMillis >= fromMillis && entry.timestampMillis < toMillis
+                            && filter.test(entry)) {
+                        matches.add(entry);
+                    }
+                }
+                return;
+            }
+            for (int i = firstReaching(lagged(toMillis)) - 1; i >= 0 && matches.size() < limit; i--) {
+                if (ceilingAt(i) < fromMillis) {
+                    break;
+                }
+                Entry entry = get(i);
+                if (entry.timestampMillis >= fromMillis && entry.timestampMillis < toMillis && filter.test(entry)) {
+                    matches.add(entry);
+                }
+            }
+        }
+
+        private int hotCapacity(int capacity) {
+            return historyConfig != null ? Math.min(capacity, historyConfig.hotEntries) : capacity;
+        }
+
+        private void evict(int keep) {
+            while (size > Math.max(0, keep)) {
+                Entry evicted = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                if (index != null) {
+                    index.remove(evicted);
+                }
+                if (history != null) {
+                    history.append(evicted);
+                }
+            }
+        }
+
+        private Entry get(int position) {
+            return ring[(head + position) % ring.length];
+        }
+
+        private int firstAfter(long afterSequence) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid).sequence <= afterSequence) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
                 }
             }
-            return copy;
+            return low;
+        }
+
+        private long ceilingAt(int position) {
+            return ceilings[(head + position) % ring.length];
+        }
+
+        /**
+         * Window end widened by the largest lag seen, so every entry stamped
+         * before {@code toMillis} sits before the first ceiling reaching it.
+         */
+        private long lagged(long toMillis) {
+            return toMillis > Long.MAX_VALUE - maxLag ? Long.MAX_VALUE : toMillis + maxLag;
+        }
+
+        /**
+         * First position whose ceiling is at or after {@code millis}. Every
+         * entry before it is stamped earlier than {@code millis}, though
+         * entries after it may be too when lines arrive out of time order.
+         */
+        private int firstReaching(long millis) {
+            if (millis == Long.MIN_VALUE) {
+                return 0;
+            }
+            if (millis == Long.MAX_VALUE) {
+                return size;
+            }
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ceilingAt(mid) < millis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int find(long target) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = get(mid).sequence;
+                if (value < target) {
+                    low = mid + 1;
+                } else if (value > target) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private void grow(int newLength) {
+            if (newLength <= ring.length) {
+                return;
+            }
+            Entry[] grown = new Entry[newLength];
+            long[] grownCeilings = new long[newLength];
+            for (int i = 0; i < size; i++) {
+                grown[i] = get(i);
+                grownCeilings[i] = ceilingAt(i);
+            }
+            ring = grown;
+            ceilings = grownCeilings;
+            head = 0;
         }
     }
 }
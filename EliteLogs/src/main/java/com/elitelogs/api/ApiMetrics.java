@@ -0,0 +1,47 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.ApiSettings.EndpointKey;
+import com.elitelogs.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latency per endpoint and response counts per status code, recorded
+ * once every exchange has been answered.
+ */
+final class ApiMetrics {
+    private final Map<EndpointKey, LatencyHistogram> latency = new EnumMap<>(EndpointKey.class);
+    private final Map<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+
+    ApiMetrics() {
+        for (EndpointKey key : EndpointKey.values()) {
+            latency.put(key, new LatencyHistogram());
+        }
+    }
+
+    void observe(EndpointKey key, int status, long nanos) {
+        latency.get(key).observeNanos(nanos);
+        responses.computeIfAbsent(status, code -> new LongAdder()).increment();
+    }
+
+    Map<String, LatencyHistogram.Snapshot> latencySnapshots() {
+        Map<String, LatencyHistogram.Snapshot> data = new LinkedHashMap<>();
+        for (Map.Entry<EndpointKey, LatencyHistogram> entry : latency.entrySet()) {
+            data.put(entry.getKey().getKey(), entry.getValue().snapshot());
+        }
+        return data;
+    }
+
+    Map<String, Long> responsesByCode() {
+        Map<String, Long> data = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : responses.entrySet()) {
+            data.put(Integer.toString(entry.getKey()), entry.getValue().sum());
+        }
+        return data;
+    }
+}
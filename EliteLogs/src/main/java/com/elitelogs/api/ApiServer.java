@@ -1,15 +1,30 @@
 package com.elitelogs.api;
 
 import com.elitelogs.EliteLogsPlugin;
+import com.elitelogs.api.ApiSettings.BufferHistorySettings;
 import com.elitelogs.api.ApiSettings.EndpointKey;
 import com.elitelogs.api.ApiSettings.EndpointSettings;
 import com.elitelogs.api.ApiSettings.SourceSettings;
+import com.elitelogs.api.ApiSettings.StreamSettings;
+import com.elitelogs.api.provider.Aggregation;
 import com.elitelogs.api.provider.BufferLogProvider;
 import com.elitelogs.api.provider.DatabaseLogProvider;
 import com.elitelogs.api.provider.FileLogProvider;
 import com.elitelogs.api.provider.LogDataProvider;
+import com.elitelogs.api.provider.LogPage;
+import com.elitelogs.api.provider.LogRecord;
+import com.elitelogs.api.provider.PlayerTimeline;
+import com.elitelogs.api.provider.TimeRange;
 import com.elitelogs.compat.ServerCompat;
+import com.elitelogs.logging.DatabaseLogWriter;
+import com.elitelogs.logging.FileCatalog;
+import com.elitelogs.logging.LogLines;
+import com.elitelogs.logging.LogMetrics;
+import com.elitelogs.logging.LogQuery;
 import com.elitelogs.logging.LogRouter;
+import com.elitelogs.logging.QueryContext;
+import com.elitelogs.logging.WriteGenerations;
+import com.elitelogs.metrics.LatencyHistogram;
 import com.elitelogs.metrics.MetricsCollector;
 import com.elitelogs.metrics.Watchdog;
 import com.elitelogs.metrics.Watchdog.WatchdogSnapshot;
@@ -21,40 +36,67 @@ import org.bukkit.configuration.ConfigurationSection;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public final class ApiServer {
     private static final String ATTR_RESPONSE_SENT = "elitelogs.responseSent";
+    private static final String ATTR_DETACHED = "elitelogs.detached";
     private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final byte[] STREAM_PREAMBLE = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STREAM_HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final long QUERY_GRACE_MILLIS = 250L;
+    private static final byte[] STREAM_OVERFLOW = "event: overflow\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
 
     private final EliteLogsPlugin plugin;
     private final MetricsCollector metricsCollector;
     private final SessionManager sessionManager;
     private final ApiLogBuffer logBuffer;
+    private final LogStreamHub streamHub;
     private final LogRouter logRouter;
     private final Watchdog watchdog;
 
     private volatile HttpServer server;
-    private volatile ExecutorService executor;
+    private volatile RequestExecutor executor;
+    private volatile ExecutorService queryExecutor;
     private volatile RuntimeState runtime;
+    private final ResponseCompression compression;
+    private final ResponseCache responseCache = new ResponseCache(1000L);
+    private final QueryCache queryCache = new QueryCache(256);
+    private final RateLimiter rateLimiter;
+    private final ApiMetrics apiMetrics = new ApiMetrics();
+    private final FileCatalog sessionCatalog;
 
     public ApiServer(EliteLogsPlugin plugin, LogRouter logRouter, MetricsCollector metricsCollector,
                      SessionManager sessionManager, Watchdog watchdog) {
@@ -63,7 +105,13 @@ public final class ApiServer {
         this.sessionManager = sessionManager;
         this.logRouter = logRouter;
         this.watchdog = watchdog;
+        this.sessionCatalog = new FileCatalog(new File(plugin.getDataFolder(), "reports"));
         this.logBuffer = new ApiLogBuffer();
+        this.streamHub = new LogStreamHub(logBuffer);
+        ApiSettings initial = ApiSettings.fromConfig(plugin.getConfig());
+        this.compression = new ResponseCompression(initial.getCompression());
+        this.rateLimiter = new RateLimiter(initial.getRateLimit());
+        this.logBuffer.addEntryListener(streamHub);
         this.logRouter.addListener(logBuffer);
     }
 
@@ -73,6 +121,13 @@ public final class ApiServer {
 
     public synchronized void stop() {
         stopServer();
+        RuntimeState state = this.runtime;
+        this.runtime = null;
+        if (state != null) {
+            state.closeProviders();
+        }
+        logBuffer.close();
+        sessionCatalog.close();
     }
 
     public synchronized void reload() {
@@ -82,8 +137,24 @@ public final class ApiServer {
     private void applyConfig() {
         ApiSettings settings = ApiSettings.fromConfig(plugin.getConfig());
         logBuffer.setCapacity(settings.getLogHistory());
+        SourceSettings bufferSource = settings.getSource("buffer");
+        logBuffer.setIndexed(bufferSource != null && bufferSource.isEnabled() && bufferSource.isIndexed());
+        logBuffer.setPreSerialized(bufferSource != null && bufferSource.isEnabled() && bufferSource.isPreSerialized());
+        BufferHistorySettings history = settings.getBufferHistory();
+        logBuffer.configureHistory(history.isEnabled(), history.getHotEntries(), history.getBlockEntries(),
+                history.getMaxMegabytes() * 1024L * 1024L);
+        RuntimeState previous = this.runtime;
         RuntimeState desired = buildRuntimeState(settings);
         this.runtime = desired;
+        if (previous != null) {
+            previous.closeProviders();
+        }
+        compression.update(settings.getCompression());
+        responseCache.setTtlMillis(settings.getCacheTtlMillis());
+        responseCache.invalidate();
+        queryCache.setMaxEntries(settings.getQuery().getCacheEntries());
+        queryCache.invalidate();
+        rateLimiter.update(settings.getRateLimit());
 
         if (!settings.isEnabled()) {
             if (server != null) {
@@ -129,25 +200,45 @@ public final class ApiServer {
         try {
             HttpServer httpServer = HttpServer.create(new InetSocketAddress(state.bind, state.port), 0);
             if (state.settings.getEndpoint(EndpointKey.STATUS).isEnabled()) {
-                httpServer.createContext("/api/v1/status", exchange -> handleSafely(exchange, this::handleStatus));
+                httpServer.createContext("/api/v1/status", exchange -> handleSafely(exchange, EndpointKey.STATUS, this::handleStatus));
             }
             if (state.settings.getEndpoint(EndpointKey.METRICS).isEnabled()) {
-                httpServer.createContext("/api/v1/metrics", exchange -> handleSafely(exchange, this::handleMetrics));
+                httpServer.createContext("/api/v1/metrics", exchange -> handleSafely(exchange, EndpointKey.METRICS, this::handleMetrics));
             }
             if (state.settings.getEndpoint(EndpointKey.WATCHDOG).isEnabled()) {
-                httpServer.createContext("/api/v1/watchdog", exchange -> handleSafely(exchange, this::handleWatchdog));
+                httpServer.createContext("/api/v1/watchdog", exchange -> handleSafely(exchange, EndpointKey.WATCHDOG, this::handleWatchdog));
             }
             if (state.settings.getEndpoint(EndpointKey.SESSIONS).isEnabled()) {
-                httpServer.createContext("/api/v1/sessions", exchange -> handleSafely(exchange, this::handleSessions));
+                httpServer.createContext("/api/v1/sessions", exchange -> handleSafely(exchange, EndpointKey.SESSIONS, this::handleSessions));
             }
             if (state.settings.getEndpoint(EndpointKey.LOGS).isEnabled()) {
-                httpServer.createContext("/api/v1/logs", exchange -> handleSafely(exchange, this::handleLogs));
+                httpServer.createContext("/api/v1/logs", exchange -> handleSafely(exchange, EndpointKey.LOGS, this::handleLogs));
             }
             if (state.settings.getEndpoint(EndpointKey.SEARCH).isEnabled()) {
-                httpServer.createContext("/api/v1/logs/search", exchange -> handleSafely(exchange, this::handleLogsSearch));
+                httpServer.createContext("/api/v1/logs/search", exchange -> handleSafely(exchange, EndpointKey.SEARCH, this::handleLogsSearch));
+            }
+            if (state.settings.getEndpoint(EndpointKey.STREAM).isEnabled()) {
+                httpServer.createContext("/api/v1/stream", exchange -> handleSafely(exchange, EndpointKey.STREAM, this::handleStream));
+            }
+            if (state.settings.getEndpoint(EndpointKey.AGGREGATE).isEnabled()) {
+                httpServer.createContext("/api/v1/aggregate", exchange -> handleSafely(exchange, EndpointKey.AGGREGATE, this::handleAggregate));
             }
-            ExecutorService exec = Executors.newCachedThreadPool(new ApiThreadFactory());
-            httpServer.setExecutor(exec);
+            if (state.settings.getEndpoint(EndpointKey.TIMELINE).isEnabled()) {
+                httpServer.createContext("/api/v1/players/", exchange -> handleSafely(exchange, EndpointKey.TIMELINE, this::handleTimeline));
+            }
+            if (state.settings.getEndpoint(EndpointKey.PROMETHEUS).isEnabled()) {
+                httpServer.createContext("/metrics", exchange -> handleSafely(exchange, EndpointKey.PROMETHEUS, this::handlePrometheus));
+            }
+            RequestExecutor exec = new RequestExecutor(state.settings.getExecutor(), state.settings.getEndpoints(),
+                    state.settings.getStream().getMaxClients(), new ApiThreadFactory("EliteLogs-API-"),
+                    plugin.getLogger());
+            ApiSettings.QuerySettings querySettings = state.settings.getQuery();
+            ThreadPoolExecutor queries = new ThreadPoolExecutor(querySettings.getThreads(), querySettings.getThreads(),
+                    30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(querySettings.getQueue()),
+                    new ApiThreadFactory("EliteLogs-Query-"), new ThreadPoolExecutor.AbortPolicy());
+            queries.allowCoreThreadTimeOut(true);
+            this.queryExecutor = queries;
+            httpServer.setExecutor(exec.executor());
             httpServer.start();
             this.server = httpServer;
             this.executor = exec;
@@ -160,21 +251,47 @@ public final class ApiServer {
     }
 
     private void stopServer() {
+        streamHub.closeAll();
         HttpServer httpServer = this.server;
         if (httpServer != null) {
             httpServer.stop(0);
             this.server = null;
         }
-        ExecutorService exec = this.executor;
+        RequestExecutor exec = this.executor;
         if (exec != null) {
-            exec.shutdownNow();
+            exec.shutdown();
             this.executor = null;
         }
+        ExecutorService queries = this.queryExecutor;
+        if (queries != null) {
+            queries.shutdownNow();
+            this.queryExecutor = null;
+        }
     }
 
-    private void handleSafely(HttpExchange exchange, ExchangeHandler handler) {
+    private void handleSafely(HttpExchange exchange, EndpointKey key, ExchangeHandler handler) {
+        long started = System.nanoTime();
+        RequestExecutor exec = this.executor;
+        boolean admitted = false;
         try {
+            if (!checkRateLimit(exchange, key)) {
+                return;
+            }
+            admitted = exec == null || exec.tryEnter(key);
+            if (!admitted) {
+                refundRateLimit(exchange, key);
+                sendBusy(exchange, exec);
+                return;
+            }
             handler.handle(exchange);
+        } catch (RejectedExecutionException ex) {
+            // The query pool is full or shutting down; shed like the request executor does.
+            if (!Boolean.TRUE.equals(exchange.getAttribute(ATTR_RESPONSE_SENT))) {
+                try {
+                    sendBusy(exchange, exec);
+                } catch (IOException ignored) {
+                }
+            }
         } catch (Throwable ex) {
             plugin.getLogger().warning("[EliteLogs] API request failed: " + ex.getMessage());
             if (!Boolean.TRUE.equals(exchange.getAttribute(ATTR_RESPONSE_SENT))) {
@@ -184,37 +301,174 @@ public final class ApiServer {
                 }
             }
         } finally {
-            exchange.close();
+            if (admitted && exec != null) {
+                exec.exit(key);
+            }
+            apiMetrics.observe(key, exchange.getResponseCode(), System.nanoTime() - started);
+            if (!Boolean.TRUE.equals(exchange.getAttribute(ATTR_DETACHED))) {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Charges the caller's IP bucket, and the shared token bucket when the
+     * valid API key was presented, then sets the X-RateLimit headers. Returns
+     * {@code false} after answering 429 when either bucket is empty.
+     */
+    private boolean checkRateLimit(HttpExchange exchange, EndpointKey key) throws IOException {
+        if (!rateLimiter.isEnabled()) {
+            return true;
+        }
+        RuntimeState state = this.runtime;
+        RateLimiter.Decision decision = rateLimiter.acquire(rateTier(state, exchange, key), clientAddress(exchange, state),
+                validToken(state, exchange));
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("X-RateLimit-Limit", Integer.toString(decision.getLimit()));
+        headers.set("X-RateLimit-Remaining", Integer.toString(decision.getRemaining()));
+        headers.set("X-RateLimit-Reset", Integer.toString(decision.getResetSeconds()));
+        if (decision.isAllowed()) {
+            return true;
+        }
+        headers.set("Retry-After", Integer.toString(decision.getRetryAfterSeconds()));
+        sendError(exchange, 429, "Too many requests");
+        return false;
+    }
+
+    /**
+     * Returns the tokens {@link #checkRateLimit} took for a request that was
+     * then shed with 503, so load shedding does not also eat the caller's
+     * rate budget.
+     */
+    private void refundRateLimit(HttpExchange exchange, EndpointKey key) {
+        if (!rateLimiter.isEnabled()) {
+            return;
         }
+        RuntimeState state = this.runtime;
+        rateLimiter.refund(rateTier(state, exchange, key), clientAddress(exchange, state), validToken(state, exchange));
+    }
+
+    private String validToken(RuntimeState state, HttpExchange exchange) {
+        String token = state != null ? state.token : null;
+        String presented = presentedToken(exchange);
+        return token != null && token.equals(presented) ? presented : null;
+    }
+
+    private RateLimiter.Tier rateTier(RuntimeState state, HttpExchange exchange, EndpointKey key) {
+        switch (key) {
+            case SEARCH:
+            case STREAM:
+                return RateLimiter.Tier.EXPENSIVE;
+            case LOGS:
+                String path = exchange.getRequestURI().getPath();
+                if (state == null || path == null || !path.startsWith("/api/v1/logs/") || path.length() == "/api/v1/logs/".length()) {
+                    return RateLimiter.Tier.CHEAP;
+                }
+                return servedFromBuffer(state, exchange, key) ? RateLimiter.Tier.CHEAP : RateLimiter.Tier.EXPENSIVE;
+            case AGGREGATE:
+            case TIMELINE:
+                return state != null && servedFromBuffer(state, exchange, key) ? RateLimiter.Tier.CHEAP : RateLimiter.Tier.EXPENSIVE;
+            default:
+                return RateLimiter.Tier.CHEAP;
+        }
+    }
+
+    private boolean servedFromBuffer(RuntimeState state, HttpExchange exchange, EndpointKey key) {
+        String requested = firstParam(parseQueryParameters(exchange.getRequestURI().getRawQuery()), "source");
+        LogDataProvider provider = resolveProvider(state, key, requested);
+        return provider != null && "buffer".equals(provider.getName());
+    }
+
+    private String clientAddress(HttpExchange exchange, RuntimeState state) {
+        if (state != null && state.settings.getRateLimit().isTrustForwardedFor()) {
+            String forwarded = exchange.getRequestHeaders().getFirst("X-Forwarded-For");
+            if (forwarded != null && !forwarded.trim().isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return (comma >= 0 ? forwarded.substring(0, comma) : forwarded).trim();
+            }
+        }
+        InetSocketAddress remote = exchange.getRemoteAddress();
+        if (remote == null) {
+            return "unknown";
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
     }
 
     private void handleStatus(HttpExchange exchange) throws IOException {
         if (!requireGet(exchange) || !authenticate(exchange)) {
             return;
         }
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("plugin", buildPluginInfo());
-        payload.put("server", buildServerInfo());
-        payload.put("config", buildConfigInfo());
-        payload.put("api", buildApiInfo());
-        sendJson(exchange, 200, payload);
+        sendCached(exchange, "status", 0L, () -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("plugin", buildPluginInfo());
+            payload.put("server", buildServerInfo());
+            payload.put("config", buildConfigInfo());
+            payload.put("api", buildApiInfo());
+            return payload;
+        });
     }
 
     private void handleMetrics(HttpExchange exchange) throws IOException {
         if (!requireGet(exchange) || !authenticate(exchange)) {
             return;
         }
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("tps", round(metricsCollector != null ? metricsCollector.getCurrentTPS() : 0.0, 2));
-        payload.put("cpuLoad", round(metricsCollector != null ? metricsCollector.getCpuLoadPercent() : 0.0, 1));
-        payload.put("heapUsedMB", metricsCollector != null ? metricsCollector.getHeapUsedMB() : 0L);
-        payload.put("heapMaxMB", metricsCollector != null ? metricsCollector.getHeapMaxMB() : 0L);
-        payload.put("onlinePlayers", ServerCompat.getOnlinePlayerCount());
-        payload.put("session", buildSessionSnapshot());
-        Map<String, Object> watchdogInfo = new LinkedHashMap<>(buildWatchdogConfig());
-        watchdogInfo.putAll(buildWatchdogRuntime());
-        payload.put("watchdog", watchdogInfo);
-        sendJson(exchange, 200, payload);
+        sendCached(exchange, "metrics", 0L, () -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("tps", round(metricsCollector != null ? metricsCollector.getCurrentTPS() : 0.0, 2));
+            payload.put("cpuLoad", round(metricsCollector != null ? metricsCollector.getCpuLoadPercent() : 0.0, 1));
+            payload.put("heapUsedMB", metricsCollector != null ? metricsCollector.getHeapUsedMB() : 0L);
+            payload.put("heapMaxMB", metricsCollector != null ? metricsCollector.getHeapMaxMB() : 0L);
+            payload.put("onlinePlayers", ServerCompat.getOnlinePlayerCount());
+            payload.put("session", buildSessionSnapshot());
+            Map<String, Object> watchdogInfo = new LinkedHashMap<>(buildWatchdogConfig());
+            watchdogInfo.putAll(buildWatchdogRuntime());
+            payload.put("watchdog", watchdogInfo);
+            return payload;
+        });
+    }
+
+    /**
+     * Prometheus scrape target. Every value is read from lock-free counters or
+     * volatile fields, so a scrape never blocks the logging threads.
+     */
+    private void handlePrometheus(HttpExchange exchange) throws IOException {
+        if (!requireGet(exchange) || !authenticate(exchange)) {
+            return;
+        }
+        OpenMetricsWriter out = new OpenMetricsWriter(
+                OpenMetricsWriter.prefersOpenMetrics(exchange.getRequestHeaders().getFirst("Accept")));
+        out.gauge("elitelogs_tps", "Server ticks per second", metricsCollector != null ? metricsCollector.getCurrentTPS() : 0.0)
+                .gauge("elitelogs_cpu_load_percent", "System CPU load", metricsCollector != null ? metricsCollector.getCpuLoadPercent() : 0.0)
+                .gauge("elitelogs_heap_used_bytes", "JVM heap in use", metricsCollector != null ? metricsCollector.getHeapUsedMB() * 1024.0 * 1024.0 : 0.0)
+                .gauge("elitelogs_heap_max_bytes", "JVM heap limit", metricsCollector != null ? metricsCollector.getHeapMaxMB() * 1024.0 * 1024.0 : 0.0)
+                .gauge("elitelogs_online_players", "Players online", ServerCompat.getOnlinePlayerCount());
+
+        LogMetrics logMetrics = logRouter.getMetrics();
+        DatabaseLogWriter databaseWriter = logRouter.getDatabaseWriter();
+        out.counter("elitelogs_log_lines", "Lines logged per category", "category", logMetrics.getWrittenByCategory())
+                .counter("elitelogs_suppressed_lines", "Lines dropped by the suppressor per category", "category", logMetrics.getSuppressedByCategory())
+                .gauge("elitelogs_file_writer_queue_depth", "Lines waiting for the file writer", logMetrics.getPendingFileWrites())
+                .counter("elitelogs_file_write_failures", "File appends that failed", logMetrics.getFileWriteFailures())
+                .histogram("elitelogs_file_write_duration_seconds", "Time to append one line to disk", null,
+                        Collections.singletonMap("", logMetrics.getFileWriteLatency().snapshot()))
+                .gauge("elitelogs_database_queue_depth", "Entries waiting for the MySQL writer", databaseWriter != null ? databaseWriter.getQueueDepth() : 0)
+                .counter("elitelogs_database_rows", "Rows written to MySQL", logMetrics.getDatabaseRows())
+                .counter("elitelogs_database_flush_failures", "MySQL batch flushes that failed", logMetrics.getDatabaseFailures())
+                .histogram("elitelogs_database_flush_duration_seconds", "Time to flush one MySQL batch", null,
+                        Collections.singletonMap("", logMetrics.getDatabaseFlushLatency().snapshot()));
+
+        WatchdogSnapshot snapshot = watchdog != null ? watchdog.snapshot() : null;
+        out.gauge("elitelogs_watchdog_running", "Whether the watchdog is active", snapshot != null && snapshot.isRunning() ? 1 : 0)
+                .counter("elitelogs_watchdog_triggers", "Watchdog triggers since it last started", snapshot != null ? snapshot.getTriggerCount() : 0);
+
+        out.histogram("elitelogs_api_request_duration_seconds", "API request latency per endpoint", "endpoint", apiMetrics.latencySnapshots())
+                .counter("elitelogs_api_responses", "API responses per status code", "code", apiMetrics.responsesByCode())
+                .counter("elitelogs_api_rate_limited", "Requests rejected by the rate limiter", rateLimiter.getLimitedCount())
+                .gauge("elitelogs_api_stream_clients", "Open live-tail streams", streamHub.size())
+                .counter("elitelogs_query_cache_hits", "Searches answered from the query cache", queryCache.getHits())
+                .counter("elitelogs_query_cache_misses", "Searches that ran against a provider", queryCache.getMisses())
+                .counter("elitelogs_query_cache_coalesced", "Searches that joined an identical running search", queryCache.getCoalesced());
+        sendText(exchange, 200, out.contentType(), out.finish());
     }
 
     private void handleWatchdog(HttpExchange exchange) throws IOException {
@@ -231,10 +485,13 @@ public final class ApiServer {
         if (!requireGet(exchange) || !authenticate(exchange)) {
             return;
         }
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("current", buildSessionSnapshot());
-        payload.put("history", buildSessionHistory(10));
-        sendJson(exchange, 200, payload);
+        long lastSave = sessionManager != null ? sessionManager.getLastSaveMillis() : 0L;
+        sendCached(exchange, "sessions", lastSave, () -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("current", buildSessionSnapshot());
+            payload.put("history", buildSessionHistory(10));
+            return payload;
+        });
     }
 
     private void handleLogs(HttpExchange exchange) throws IOException {
@@ -286,22 +543,217 @@ public final class ApiServer {
         EndpointSettings endpoint = state.settings.getEndpoint(EndpointKey.LOGS);
         int limit = resolveLimit(query, endpoint);
         String queryText = firstParam(query, "q");
-        List<Map<String, Object>> records = (queryText != null && !queryText.trim().isEmpty())
-                ? provider.search(category, queryText, limit)
-                : provider.fetch(category, limit);
+        boolean searching = queryText != null && !queryText.trim().isEmpty();
+        LogQuery search = searching ? parseQuery(exchange, queryText) : null;
+        if (searching && search == null) {
+            return;
+        }
+        String after = firstParam(query, "after");
+        if (after != null && after.trim().isEmpty()) {
+            after = null;
+        }
+        TimeRange range;
+        try {
+            range = parseRange(query);
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+            return;
+        }
+        long timeoutMillis = parseTimeout(query, state.settings.getQuery());
+        if (timeoutMillis <= 0L) {
+            sendError(exchange, 400, "Invalid timeout parameter");
+            return;
+        }
+        QueryContext context = QueryContext.withTimeout(timeoutMillis);
+        List<LogRecord> records;
+        LogPage page = null;
+        if (searching) {
+            records = runSearch(state, provider, category, search, range, limit, context, timeoutMillis);
+        } else {
+            try {
+                page = awaitQuery(provider.fetchPageAsync(category, after, range, limit, context, queryExecutor()),
+                        context, timeoutMillis, new LogPage(Collections.emptyList(), after, true));
+            } catch (IllegalArgumentException ex) {
+                sendError(exchange, 400, "Invalid cursor");
+                return;
+            }
+            records = page.getRecords();
+        }
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("category", category);
         payload.put("source", provider.getName());
         payload.put("limit", limit);
-        if (queryText != null && !queryText.trim().isEmpty()) {
+        if (searching) {
             payload.put("query", queryText);
         }
+        putRange(payload, range);
         payload.put("availableSources", describeAvailableSources(state, EndpointKey.LOGS));
         payload.put("size", records.size());
         payload.put("records", records);
+        if (page != null) {
+            payload.put("cursor", page.getCursor());
+            payload.put("hasMore", page.hasMore());
+        }
+        payload.put("truncated", context.isTruncated());
         sendJson(exchange, 200, payload);
     }
 
+    /**
+     * Parses the non-blank {@code q} once for the providers, answering a
+     * malformed {@link LogQuery} with 400. Returns {@code null} once that
+     * error has been sent.
+     */
+    private LogQuery parseQuery(HttpExchange exchange, String q) throws IOException {
+        try {
+            return LogQuery.of(q);
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Client supplied {@code timeout} in milliseconds, capped at the
+     * configured maximum. Returns {@code -1} when it cannot be parsed.
+     */
+    private long parseTimeout(Map<String, List<String>> query, ApiSettings.QuerySettings settings) {
+        String raw = firstParam(query, "timeout");
+        if (raw == null || raw.trim().isEmpty()) {
+            return settings.getDefaultTimeoutMillis();
+        }
+        try {
+            long value = Long.parseLong(raw.trim());
+            return value > 0L ? Math.min(value, settings.getMaxTimeoutMillis()) : -1L;
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Searches through the query cache: a result is reused until a line is
+     * written to the category, and identical searches running at the same
+     * time share one provider call. Partial results mark {@code context}
+     * truncated.
+     */
+    private List<LogRecord> runSearch(RuntimeState state, LogDataProvider provider, String category, LogQuery q,
+                                      TimeRange range, int limit, QueryContext context, long timeoutMillis) {
+        if (!queryCache.isEnabled()) {
+            return awaitQuery(provider.searchAsync(category, q, range, limit, context, queryExecutor()),
+                    context, timeoutMillis, Collections.emptyList());
+        }
+        WriteGenerations generations = logRouter.getWriteGenerations();
+        QueryCache.Key key = new QueryCache.Key(provider.getName(), category, q, limit, range);
+        QueryCache.Result result = awaitQuery(queryCache.get(key, () -> generations.get(category), context,
+                        state.settings.getQuery().getMaxTimeoutMillis(),
+                        shared -> provider.searchAsync(category, q, range, limit, shared, queryExecutor())),
+                context, timeoutMillis, null);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        if (result.isTruncated()) {
+            context.markTruncated();
+        }
+        return result.getRecords();
+    }
+
+    private Executor queryExecutor() {
+        ExecutorService queries = this.queryExecutor;
+        return queries != null ? queries : Runnable::run;
+    }
+
+    /**
+     * Waits for {@code future} until the query deadline, then cancels the
+     * context and gives the provider a short grace period to hand back what
+     * it has read. Falls back to {@code empty} when nothing arrives in time.
+     *
+     * @throws IllegalArgumentException when the provider rejected the request
+     */
+    private <T> T awaitQuery(CompletableFuture<T> future, QueryContext context, long timeoutMillis, T empty) {
+        try {
+            try {
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                context.cancel();
+                return future.get(QUERY_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException ex) {
+            context.markTruncated();
+            return empty;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            context.cancel();
+            context.markTruncated();
+            return empty;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Reads {@code from}/{@code to} (a half-open window) and the older
+     * {@code since}, which behaves like an exclusive {@code from}.
+     *
+     * @throws IllegalArgumentException with a client-facing message
+     */
+    private TimeRange parseRange(Map<String, List<String>> query) {
+        Instant from;
+        Instant to;
+        Instant since;
+        try {
+            from = parseInstant(firstParam(query, "from"));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid from parameter");
+        }
+        try {
+            to = parseInstant(firstParam(query, "to"));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid to parameter");
+        }
+        try {
+            since = parseInstant(firstParam(query, "since"));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid since parameter");
+        }
+        try {
+            TimeRange range = TimeRange.of(from, to);
+            return since != null ? range.startingAt(since.plusMillis(1)) : range;
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Parameter to must be after from");
+        }
+    }
+
+    private void putRange(Map<String, Object> payload, TimeRange range) {
+        if (range.getFrom() != null) {
+            payload.put("from", range.getFrom().toString());
+        }
+        if (range.getTo() != null) {
+            payload.put("to", range.getTo().toString());
+        }
+    }
+
+    private Instant parseInstant(String raw) {
+        if (raw == null || raw.trim().isEmpty()) {
+            return null;
+        }
+        String value = raw.trim();
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(value));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid instant: " + raw, ex);
+        }
+    }
+
     private void handleLogsSearch(HttpExchange exchange) throws IOException {
         if (!requireGet(exchange) || !authenticate(exchange)) {
             return;
@@ -322,6 +774,10 @@ public final class ApiServer {
             sendError(exchange, 400, "Missing q parameter");
             return;
         }
+        LogQuery search = parseQuery(exchange, q);
+        if (search == null) {
+            return;
+        }
         String requestedSource = firstParam(query, "source");
         LogDataProvider provider = resolveProvider(state, EndpointKey.SEARCH, requestedSource);
         if (provider == null) {
@@ -334,18 +790,369 @@ public final class ApiServer {
         }
         EndpointSettings endpoint = state.settings.getEndpoint(EndpointKey.SEARCH);
         int limit = resolveLimit(query, endpoint);
-        List<Map<String, Object>> records = provider.search(category, q, limit);
+        TimeRange range;
+        try {
+            range = parseRange(query);
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+            return;
+        }
+        long timeoutMillis = parseTimeout(query, state.settings.getQuery());
+        if (timeoutMillis <= 0L) {
+            sendError(exchange, 400, "Invalid timeout parameter");
+            return;
+        }
+        QueryContext context = QueryContext.withTimeout(timeoutMillis);
+        List<LogRecord> records = runSearch(state, provider, category, search, range, limit, context, timeoutMillis);
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("category", category);
         payload.put("query", q);
         payload.put("source", provider.getName());
         payload.put("limit", limit);
+        putRange(payload, range);
         payload.put("availableSources", describeAvailableSources(state, EndpointKey.SEARCH));
         payload.put("size", records.size());
         payload.put("records", records);
+        payload.put("truncated", context.isTruncated());
+        sendJson(exchange, 200, payload);
+    }
+
+    private void handleAggregate(HttpExchange exchange) throws IOException {
+        if (!requireGet(exchange) || !authenticate(exchange)) {
+            return;
+        }
+        RuntimeState state = this.runtime;
+        if (state == null) {
+            sendError(exchange, 503, "API not initialised");
+            return;
+        }
+        Map<String, List<String>> query = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+        Set<String> categories = splitList(query, "category");
+        if (categories.isEmpty()) {
+            sendError(exchange, 400, "Missing category parameter");
+            return;
+        }
+        Set<Aggregation.Dimension> groupBy = EnumSet.noneOf(Aggregation.Dimension.class);
+        for (String name : splitList(query, "group_by")) {
+            Aggregation.Dimension dimension = Aggregation.Dimension.fromKey(name);
+            if (dimension == null) {
+                sendError(exchange, 400, "Unknown group_by dimension: " + name);
+                return;
+            }
+            groupBy.add(dimension);
+        }
+        String rawInterval = firstParam(query, "interval");
+        if (groupBy.isEmpty() || (rawInterval != null && !rawInterval.trim().isEmpty())) {
+            groupBy.add(Aggregation.Dimension.TIME);
+        }
+        long intervalSeconds = 0L;
+        if (groupBy.contains(Aggregation.Dimension.TIME)) {
+            intervalSeconds = parseInterval(rawInterval);
+            if (intervalSeconds <= 0L) {
+                sendError(exchange, 400, "Invalid interval parameter");
+                return;
+            }
+        }
+        String rawType = firstParam(query, "type");
+        String eventType = null;
+        if (rawType != null && !rawType.trim().isEmpty()) {
+            eventType = LogLines.normalizeEventType(rawType);
+            if (eventType == null) {
+                sendError(exchange, 400, "Invalid type parameter");
+                return;
+            }
+        }
+        TimeRange range;
+        try {
+            range = parseRange(query);
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+            return;
+        }
+        String requestedSource = firstParam(query, "source");
+        LogDataProvider provider = resolveProvider(state, EndpointKey.AGGREGATE, requestedSource);
+        if (provider == null) {
+            sendError(exchange, 404, "Source unavailable");
+            return;
+        }
+        if (!provider.isAvailable()) {
+            sendError(exchange, 503, "Source temporarily unavailable");
+            return;
+        }
+        int limit = resolveLimit(query, state.settings.getEndpoint(EndpointKey.AGGREGATE));
+        long timeoutMillis = parseTimeout(query, state.settings.getQuery());
+        if (timeoutMillis <= 0L) {
+            sendError(exchange, 400, "Invalid timeout parameter");
+            return;
+        }
+        QueryContext context = QueryContext.withTimeout(timeoutMillis);
+        Aggregation aggregation = new Aggregation(groupBy, intervalSeconds * 1000L, range, eventType, limit);
+        for (String category : categories) {
+            if (!provider.aggregate(category, aggregation, context)) {
+                sendError(exchange, 501, "Source " + provider.getName() + " cannot aggregate");
+                return;
+            }
+        }
+        List<String> dimensions = new ArrayList<>(groupBy.size());
+        for (Aggregation.Dimension dimension : groupBy) {
+            dimensions.add(dimension.getKey());
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("categories", new ArrayList<>(categories));
+        payload.put("source", provider.getName());
+        payload.put("groupBy", dimensions);
+        if (intervalSeconds > 0L) {
+            payload.put("intervalSeconds", intervalSeconds);
+        }
+        if (eventType != null) {
+            payload.put("type", eventType);
+        }
+        putRange(payload, range);
+        payload.put("limit", limit);
+        payload.put("availableSources", describeAvailableSources(state, EndpointKey.AGGREGATE));
+        payload.put("total", aggregation.getTotal());
+        payload.put("truncated", aggregation.isTruncated() || context.isTruncated());
+        List<Map<String, Object>> buckets = aggregation.toRecords();
+        payload.put("size", buckets.size());
+        payload.put("buckets", buckets);
+        sendJson(exchange, 200, payload);
+    }
+
+    /**
+     * {@code /api/v1/players/<uuid>/timeline}: the player's lines from every
+     * category, merged by time. Without {@code from} or a cursor the window is
+     * the last day before {@code to} (or now).
+     */
+    private void handleTimeline(HttpExchange exchange) throws IOException {
+        if (!requireGet(exchange) || !authenticate(exchange)) {
+            return;
+        }
+        RuntimeState state = this.runtime;
+        if (state == null) {
+            sendError(exchange, 503, "API not initialised");
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String prefix = "/api/v1/players/";
+        String suffix = "/timeline";
+        if (path == null || !path.startsWith(prefix) || !path.endsWith(suffix)
+                || path.length() <= prefix.length() + suffix.length()) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        UUID player;
+        try {
+            player = UUID.fromString(urlDecode(path.substring(prefix.length(), path.length() - suffix.length())));
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, "Invalid player UUID");
+            return;
+        }
+        Map<String, List<String>> query = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+        TimeRange range;
+        try {
+            range = parseRange(query);
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+            return;
+        }
+        String after = firstParam(query, "after");
+        PlayerTimeline.Position position = null;
+        if (after != null && !after.trim().isEmpty()) {
+            try {
+                position = PlayerTimeline.Position.parse(after);
+            } catch (IllegalArgumentException ex) {
+                sendError(exchange, 400, ex.getMessage());
+                return;
+            }
+        } else if (range.getFrom() == null) {
+            Instant end = range.getTo() != null ? range.getTo() : Instant.now();
+            range = TimeRange.of(end.minus(1, ChronoUnit.DAYS), range.getTo());
+        }
+        String requestedSource = firstParam(query, "source");
+        LogDataProvider provider = resolveProvider(state, EndpointKey.TIMELINE, requestedSource);
+        if (provider == null) {
+            sendError(exchange, 404, "Source unavailable");
+            return;
+        }
+        if (!provider.isAvailable()) {
+            sendError(exchange, 503, "Source temporarily unavailable");
+            return;
+        }
+        List<String> categories = new ArrayList<>(splitList(query, "category"));
+        if (categories.isEmpty()) {
+            categories = provider.listCategories();
+        }
+        int limit = resolveLimit(query, state.settings.getEndpoint(EndpointKey.TIMELINE));
+        long timeoutMillis = parseTimeout(query, state.settings.getQuery());
+        if (timeoutMillis <= 0L) {
+            sendError(exchange, 400, "Invalid timeout parameter");
+            return;
+        }
+        QueryContext context = QueryContext.withTimeout(timeoutMillis);
+        List<List<PlayerTimeline.Entry>> streams = provider.playerTimelines(player, categories, range, position,
+                limit + 1, context);
+        if (streams == null) {
+            sendError(exchange, 501, "Source " + provider.getName() + " cannot filter by player");
+            return;
+        }
+        // A stream cut short by the deadline would let the cursor skip its lines, so keep the incoming one.
+        boolean truncated = context.isTruncated();
+        PlayerTimeline.Page page = PlayerTimeline.merge(truncated ? Collections.emptyList() : streams, limit);
+        List<LogRecord> records = new ArrayList<>(page.getEntries().size());
+        for (PlayerTimeline.Entry entry : page.getEntries()) {
+            records.add(entry.getRecord());
+        }
+        PlayerTimeline.Position last = page.getLastPosition();
+        String cursor = last != null ? last.toString() : position != null ? position.toString() : null;
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("player", player.toString());
+        payload.put("source", provider.getName());
+        payload.put("categories", categories);
+        putRange(payload, range);
+        payload.put("limit", limit);
+        payload.put("availableSources", describeAvailableSources(state, EndpointKey.TIMELINE));
+        payload.put("size", records.size());
+        payload.put("cursor", cursor);
+        payload.put("hasMore", truncated || page.hasMore());
+        payload.put("truncated", truncated);
+        payload.put("records", records);
         sendJson(exchange, 200, payload);
     }
 
+    private Set<String> splitList(Map<String, List<String>> query, String name) {
+        Set<String> values = new LinkedHashSet<>();
+        for (String value : query.getOrDefault(name, Collections.emptyList())) {
+            for (String part : value.split(",")) {
+                if (!part.trim().isEmpty()) {
+                    values.add(part.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Parses {@code 30s}, {@code 5m}, {@code 1h} or {@code 1d} (a bare number
+     * is seconds) into whole seconds, defaulting to an hour. Returns -1 for
+     * anything unparseable or longer than 31 days.
+     */
+    private long parseInterval(String raw) {
+        if (raw == null || raw.trim().isEmpty()) {
+            return 3600L;
+        }
+        String value = raw.trim().toLowerCase(Locale.ROOT);
+        long unit = 1L;
+        char suffix = value.charAt(value.length() - 1);
+        if (suffix == 's' || suffix == 'm' || suffix == 'h' || suffix == 'd') {
+            unit = suffix == 's' ? 1L : suffix == 'm' ? 60L : suffix == 'h' ? 3600L : 86400L;
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            long amount = Long.parseLong(value);
+            if (amount <= 0L || amount > 31L * 86400L / unit) {
+                return -1L;
+            }
+            return amount * unit;
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+    private void handleStream(HttpExchange exchange) throws IOException {
+        if (!requireGet(exchange) || !authenticate(exchange)) {
+            return;
+        }
+        RuntimeState state = this.runtime;
+        if (state == null) {
+            sendError(exchange, 503, "API not initialised");
+            return;
+        }
+        StreamSettings settings = state.settings.getStream();
+        Map<String, List<String>> query = parseQueryParameters(exchange.getRequestURI().getRawQuery());
+        Set<String> categories = splitList(query, "category");
+        LogStreamHub.Filter filter = new LogStreamHub.Filter(categories, firstParam(query, "player"), firstParam(query, "q"));
+        String rawLastId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (rawLastId == null || rawLastId.trim().isEmpty()) {
+            rawLastId = firstParam(query, "lastEventId");
+        }
+        long lastEventId = -1L;
+        if (rawLastId != null && !rawLastId.trim().isEmpty()) {
+            try {
+                lastEventId = Long.parseLong(rawLastId.trim());
+            } catch (NumberFormatException ex) {
+                sendError(exchange, 400, "Invalid Last-Event-ID");
+                return;
+            }
+        }
+        RequestExecutor exec = this.executor;
+        if (exec == null) {
+            sendError(exchange, 503, "API not initialised");
+            return;
+        }
+        List<LogStreamHub.Event> replay = new ArrayList<>();
+        LogStreamHub.Subscriber subscriber = streamHub.subscribe(filter, settings.getQueueSize(), lastEventId,
+                settings.getReplayLimit(), replay);
+        exchange.setAttribute(ATTR_DETACHED, Boolean.TRUE);
+        try {
+            exec.streams().execute(() -> pumpStream(exchange, subscriber, replay, settings));
+        } catch (RejectedExecutionException ex) {
+            // Every stream slot is taken (or the executor is stopping); max-clients is enforced here.
+            exchange.setAttribute(ATTR_DETACHED, Boolean.FALSE);
+            streamHub.unsubscribe(subscriber);
+            exchange.getResponseHeaders().set("Retry-After", Integer.toString(exec.getRetryAfterSeconds()));
+            sendError(exchange, 503, "Too many stream clients");
+        }
+    }
+
+    /**
+     * Writes the replay and then live events until the client disconnects,
+     * falls behind or the server stops. Runs on the stream executor so an
+     * open stream never holds a request thread.
+     */
+    private void pumpStream(HttpExchange exchange, LogStreamHub.Subscriber subscriber,
+                            List<LogStreamHub.Event> replay, StreamSettings settings) {
+        try {
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "text/event-stream; charset=utf-8");
+            headers.set("Cache-Control", "no-cache");
+            headers.set("X-Accel-Buffering", "no");
+            markResponded(exchange);
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write(STREAM_PREAMBLE);
+            for (LogStreamHub.Event event : replay) {
+                out.write(event.frame());
+            }
+            out.flush();
+            long heartbeatMillis = settings.getHeartbeatSeconds() * 1000L;
+            while (!subscriber.isClosed()) {
+                if (subscriber.isOverflowed() && !subscriber.hasPending()) {
+                    // Dropped for falling behind; the client reconnects with Last-Event-ID.
+                    out.write(STREAM_OVERFLOW);
+                    out.flush();
+                    break;
+                }
+                LogStreamHub.Event event = subscriber.poll(heartbeatMillis);
+                if (event == null) {
+                    out.write(STREAM_HEARTBEAT);
+                    out.flush();
+                    continue;
+                }
+                out.write(event.frame());
+                if (!subscriber.hasPending()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // Client went away; nothing left to report.
+        } finally {
+            streamHub.unsubscribe(subscriber);
+            exchange.close();
+        }
+    }
+
     private Map<String, Object> buildPluginInfo() {
         Map<String, Object> data = new LinkedHashMap<>();
         data.put("name", plugin.getDescription().getName());
@@ -445,12 +1252,65 @@ public final class ApiServer {
         data.put("port", state != null ? state.port : plugin.getConfig().getInt("api.port", 9173));
         data.put("requiresAuth", state != null && state.token != null);
         data.put("logHistory", logBuffer.getCapacity());
+        if (logBuffer.isHistoryEnabled()) {
+            data.put("bufferHistory", buildBufferHistoryInfo());
+        }
+        data.put("compression", compression.describe());
+        data.put("responseCache", buildResponseCacheInfo());
+        data.put("queryCache", buildQueryCacheInfo());
+        RequestExecutor exec = this.executor;
+        if (exec != null) {
+            data.put("executor", exec.describe());
+        }
+        data.put("rateLimit", buildRateLimitInfo(state));
         data.put("defaultSource", state != null ? state.settings.getDefaultSource() : null);
         data.put("sources", buildSourceCatalog(state));
         data.put("endpoints", buildEndpointCatalog(state));
         return data;
     }
 
+    private Map<String, Object> buildRateLimitInfo(RuntimeState state) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("enabled", rateLimiter.isEnabled());
+        if (state != null) {
+            ApiSettings.RateLimitSettings limits = state.settings.getRateLimit();
+            data.put("cheapPerSecond", limits.getCheapPerSecond());
+            data.put("cheapBurst", limits.getCheapBurst());
+            data.put("expensivePerSecond", limits.getExpensivePerSecond());
+            data.put("expensiveBurst", limits.getExpensiveBurst());
+        }
+        data.put("limited", rateLimiter.getLimitedCount());
+        data.put("buckets", rateLimiter.getBucketCount());
+        return data;
+    }
+
+    private Map<String, Object> buildResponseCacheInfo() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("ttlMillis", responseCache.getTtlMillis());
+        data.put("hits", responseCache.getHits());
+        data.put("misses", responseCache.getMisses());
+        return data;
+    }
+
+    private Map<String, Object> buildQueryCacheInfo() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("maxEntries", queryCache.getMaxEntries());
+        data.put("entries", queryCache.size());
+        data.put("hits", queryCache.getHits());
+        data.put("misses", queryCache.getMisses());
+        data.put("coalesced", queryCache.getCoalesced());
+        return data;
+    }
+
+    private Map<String, Object> buildBufferHistoryInfo() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("entries", logBuffer.getHistoryEntries());
+        data.put("blocks", logBuffer.getHistoryBlocks());
+        data.put("compressedBytes", logBuffer.getHistoryCompressedBytes());
+        data.put("rawBytes", logBuffer.getHistoryRawBytes());
+        return data;
+    }
+
     private Map<String, Object> buildSessionSnapshot() {
         Map<String, Object> data = new LinkedHashMap<>();
         boolean running = sessionManager != null && sessionManager.isRunning();
@@ -464,25 +1324,20 @@ public final class ApiServer {
     }
 
     private List<Map<String, Object>> buildSessionHistory(int limit) {
-        File folder = new File(plugin.getDataFolder(), "reports/sessions");
-        if (!folder.exists() || !folder.isDirectory()) {
-            return Collections.emptyList();
-        }
-        File[] files = folder.listFiles(file -> file.isFile() && file.getName().endsWith(".yml") && !"last-session.yml".equals(file.getName()));
-        if (files == null || files.length == 0) {
+        List<FileCatalog.Entry> files = sessionCatalog.files("sessions");
+        files.removeIf(file -> !file.getName().endsWith(".yml") || "last-session.yml".equals(file.getName()));
+        if (files.isEmpty()) {
             return Collections.emptyList();
         }
-        List<File> sorted = new ArrayList<>();
-        Collections.addAll(sorted, files);
-        sorted.sort(Comparator.comparingLong(File::lastModified).reversed());
+        files.sort(Comparator.comparingLong(FileCatalog.Entry::getLastModified).reversed());
         List<Map<String, Object>> history = new ArrayList<>();
-        int max = Math.min(limit, sorted.size());
+        int max = Math.min(limit, files.size());
         for (int i = 0; i < max; i++) {
-            File file = sorted.get(i);
+            FileCatalog.Entry file = files.get(i);
             Map<String, Object> entry = new LinkedHashMap<>();
             entry.put("file", file.getName());
-            entry.put("lastModified", Instant.ofEpochMilli(file.lastModified()).toString());
-            entry.put("size", file.length());
+            entry.put("lastModified", Instant.ofEpochMilli(file.getLastModified()).toString());
+            entry.put("size", file.getLength());
             history.add(entry);
         }
         return history;
@@ -507,6 +1362,12 @@ public final class ApiServer {
             if (cfg.getRootPath() != null) {
                 info.put("root", cfg.getRootPath());
             }
+            if (cfg.isIndexed()) {
+                info.put("indexed", true);
+            }
+            if (cfg.isPreSerialized()) {
+                info.put("preSerialized", true);
+            }
             LogDataProvider provider = state != null ? state.providers.get(name) : null;
             boolean available = provider != null && provider.isAvailable();
             info.put("available", available);
@@ -532,6 +1393,9 @@ public final class ApiServer {
             if (endpoint.getDefaultLimit() > 0) {
                 info.put("defaultLimit", endpoint.getDefaultLimit());
             }
+            if (endpoint.getMaxConcurrent() > 0) {
+                info.put("maxConcurrent", endpoint.getMaxConcurrent());
+            }
             catalog.put(key.getKey(), info);
         }
         return catalog;
@@ -552,11 +1416,7 @@ public final class ApiServer {
         if (token == null) {
             return true;
         }
-        Headers headers = exchange.getRequestHeaders();
-        String provided = headers.getFirst("X-API-Key");
-        if (provided == null || provided.isEmpty()) {
-            provided = firstParam(parseQueryParameters(exchange.getRequestURI().getRawQuery()), "token");
-        }
+        String provided = presentedToken(exchange);
         if (provided != null && provided.equals(token)) {
             return true;
         }
@@ -564,6 +1424,20 @@ public final class ApiServer {
         return false;
     }
 
+    private String presentedToken(HttpExchange exchange) {
+        String provided = exchange.getRequestHeaders().getFirst("X-API-Key");
+        if (provided == null || provided.isEmpty()) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                provided = authorization.substring(7).trim();
+            }
+        }
+        if (provided == null || provided.isEmpty()) {
+            provided = firstParam(parseQueryParameters(exchange.getRequestURI().getRawQuery()), "token");
+        }
+        return provided;
+    }
+
     private Map<String, List<String>> parseQueryParameters(String rawQuery) {
         Map<String, List<String>> params = new LinkedHashMap<>();
         if (rawQuery == null || rawQuery.isEmpty()) {
@@ -608,6 +1482,7 @@ public final class ApiServer {
 
     private int resolveLimit(Map<String, List<String>> query, EndpointSettings endpoint) {
         int fallback = endpoint != null && endpoint.getDefaultLimit() > 0 ? endpoint.getDefaultLimit() : logBuffer.getCapacity();
+        fallback = Math.min(fallback, 5_000);
         String rawLimit = firstParam(query, "limit");
         if (rawLimit == null || rawLimit.trim().isEmpty()) {
             return Math.max(1, fallback);
@@ -660,15 +1535,60 @@ public final class ApiServer {
         return available;
     }
 
+    private void sendBusy(HttpExchange exchange, RequestExecutor exec) throws IOException {
+        if (exec != null) {
+            exchange.getResponseHeaders().set("Retry-After", Integer.toString(exec.getRetryAfterSeconds()));
+        }
+        sendError(exchange, 503, "Server busy, retry later");
+    }
+
     private void sendError(HttpExchange exchange, int status, String message) throws IOException {
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("error", message);
         sendJson(exchange, status, payload);
     }
 
+    /**
+     * Serves a response through the short-TTL cache. The body carries a strong
+     * ETag and a matching {@code If-None-Match} is answered with 304 and no
+     * body. The cached endpoints read no query parameters, so the endpoint
+     * alone is the key: every client shares one entry and cache-busters such
+     * as {@code ?_=<ts>} cannot grow the cache.
+     */
+    private void sendCached(HttpExchange exchange, String endpoint, long validator, Supplier<Object> builder) throws IOException {
+        ResponseCache.Entry entry = responseCache.get(endpoint, validator, builder);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", entry.getEtag());
+        headers.set("Cache-Control", "private, no-cache");
+        if (entry.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            markResponded(exchange);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        sendJson(exchange, 200, JsonUtil.raw(entry.getBody()));
+    }
+
     private void sendJson(HttpExchange exchange, int status, Object payload) throws IOException {
         markResponded(exchange);
-        JsonResponse.send(exchange, status, JsonUtil.stringify(payload));
+        JsonResponse.send(exchange, status, payload, compression);
+    }
+
+    private void sendText(HttpExchange exchange, int status, String contentType, String text) throws IOException {
+        markResponded(exchange);
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        headers.set("Vary", "Accept-Encoding");
+        String encoding = compression.negotiate(exchange);
+        if (encoding != null && body.length >= compression.getMinBytes()) {
+            compression.recordIn(body.length);
+            body = compression.compress(body, body.length, encoding);
+            headers.set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
     }
 
     private void markResponded(HttpExchange exchange) {
@@ -714,6 +1634,12 @@ public final class ApiServer {
             this.providers = Collections.unmodifiableMap(new LinkedHashMap<>(providers));
         }
 
+        private void closeProviders() {
+            for (LogDataProvider provider : providers.values()) {
+                provider.close();
+            }
+        }
+
         @Override
         public int hashCode() {
             return Objects.hash(bind, port, token);
@@ -733,9 +1659,15 @@ public final class ApiServer {
     }
 
     private static final class ApiThreadFactory implements ThreadFactory {
+        private final String prefix;
+
+        private ApiThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
         @Override
         public Thread newThread(Runnable r) {
-            Thread thread = new Thread(r, "EliteLogs-API-" + THREAD_COUNTER.incrementAndGet());
+            Thread thread = new Thread(r, prefix + THREAD_COUNTER.incrementAndGet());
             thread.setDaemon(true);
             return thread;
         }
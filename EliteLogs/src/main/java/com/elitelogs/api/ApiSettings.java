@@ -20,7 +20,11 @@ public final class ApiSettings {
         WATCHDOG("watchdog"),
         SESSIONS("sessions"),
         LOGS("logs"),
-        SEARCH("search");
+        SEARCH("search"),
+        STREAM("stream"),
+        AGGREGATE("aggregate"),
+        TIMELINE("timeline"),
+        PROMETHEUS("prometheus");
 
         private final String key;
 
@@ -54,9 +58,19 @@ public final class ApiSettings {
     private final String defaultSource;
     private final Map<String, SourceSettings> sources;
     private final Map<EndpointKey, EndpointSettings> endpoints;
+    private final BufferHistorySettings bufferHistory;
+    private final StreamSettings stream;
+    private final CompressionSettings compression;
+    private final int cacheTtlMillis;
+    private final ExecutorSettings executor;
+    private final RateLimitSettings rateLimit;
+    private final QuerySettings query;
 
     private ApiSettings(boolean enabled, String bind, int port, String authToken, int logHistory, String defaultSource,
-                        Map<String, SourceSettings> sources, Map<EndpointKey, EndpointSettings> endpoints) {
+                        Map<String, SourceSettings> sources, Map<EndpointKey, EndpointSettings> endpoints,
+                        BufferHistorySettings bufferHistory, StreamSettings stream, CompressionSettings compression,
+                        int cacheTtlMillis, ExecutorSettings executor, RateLimitSettings rateLimit,
+                        QuerySettings query) {
         this.enabled = enabled;
         this.bind = bind;
         this.port = port;
@@ -65,6 +79,13 @@ public final class ApiSettings {
         this.defaultSource = defaultSource;
         this.sources = Collections.unmodifiableMap(new LinkedHashMap<>(sources));
         this.endpoints = Collections.unmodifiableMap(new LinkedHashMap<>(endpoints));
+        this.bufferHistory = bufferHistory;
+        this.stream = stream;
+        this.compression = compression;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.executor = executor;
+        this.rateLimit = rateLimit;
+        this.query = query;
     }
 
     public static ApiSettings fromConfig(FileConfiguration config) {
@@ -83,8 +104,16 @@ public final class ApiSettings {
         Map<String, SourceSettings> sources = parseSources(root, defaultSource);
         defaultSource = resolveDefaultSource(defaultSource, sources);
         Map<EndpointKey, EndpointSettings> endpoints = parseEndpoints(root, sources, logHistory);
-
-        return new ApiSettings(enabled, bind != null ? bind : "127.0.0.1", port, authToken, logHistory, defaultSource, sources, endpoints);
+        BufferHistorySettings bufferHistory = parseBufferHistory(root);
+        StreamSettings stream = parseStream(root);
+        CompressionSettings compression = parseCompression(root);
+        int cacheTtlMillis = Math.max(0, root != null ? root.getInt("cache.ttl-millis", 1000) : 1000);
+        ExecutorSettings executor = parseExecutor(root);
+        RateLimitSettings rateLimit = parseRateLimit(root);
+        QuerySettings query = parseQuery(root);
+
+        return new ApiSettings(enabled, bind != null ? bind : "127.0.0.1", port, authToken, logHistory, defaultSource, sources, endpoints,
+                bufferHistory, stream, compression, cacheTtlMillis, executor, rateLimit, query);
     }
 
     private static String normalizeToken(String tokenRaw) {
@@ -102,7 +131,7 @@ public final class ApiSettings {
         sources.put("files", buildFileSource(section));
         sources.put("database", buildDatabaseSource(section));
         if (defaultSource != null && !sources.containsKey(defaultSource)) {
-            sources.put(defaultSource, new SourceSettings(defaultSource, true, null));
+            sources.put(defaultSource, new SourceSettings(defaultSource, true, null, false, false));
         }
         return sources;
     }
@@ -110,7 +139,9 @@ public final class ApiSettings {
     private static SourceSettings buildBufferSource(ConfigurationSection section) {
         ConfigurationSection buffer = section != null ? section.getConfigurationSection("buffer") : null;
         boolean enabled = buffer != null ? buffer.getBoolean("enabled", true) : (section == null || section.getBoolean("buffer.enabled", true));
-        return new SourceSettings("buffer", enabled, null);
+        boolean indexed = buffer != null ? buffer.getBoolean("index", false) : (section != null && section.getBoolean("buffer.index", false));
+        boolean preSerialized = buffer != null && buffer.getBoolean("pre-serialize", false);
+        return new SourceSettings("buffer", enabled, null, indexed, preSerialized);
     }
 
     private static SourceSettings buildFileSource(ConfigurationSection section) {
@@ -124,13 +155,88 @@ public final class ApiSettings {
         } else {
             rootPath = "logs";
         }
-        return new SourceSettings("files", enabled, rootPath);
+        return new SourceSettings("files", enabled, rootPath, false, false);
     }
 
     private static SourceSettings buildDatabaseSource(ConfigurationSection section) {
         ConfigurationSection database = section != null ? section.getConfigurationSection("database") : null;
         boolean enabled = database != null ? database.getBoolean("enabled", true) : (section == null || section.getBoolean("database.enabled", true));
-        return new SourceSettings("database", enabled, null);
+        return new SourceSettings("database", enabled, null, false, false);
+    }
+
+    private static BufferHistorySettings parseBufferHistory(ConfigurationSection root) {
+        ConfigurationSection section = root != null ? root.getConfigurationSection("sources.buffer.off-heap") : null;
+        if (section == null) {
+            return new BufferHistorySettings(false, 1000, 512, 256);
+        }
+        return new BufferHistorySettings(
+                section.getBoolean("enabled", false),
+                section.getInt("hot-entries", 1000),
+                section.getInt("block-entries", 512),
+                section.getInt("max-megabytes", 256));
+    }
+
+    private static StreamSettings parseStream(ConfigurationSection root) {
+        ConfigurationSection section = root != null ? root.getConfigurationSection("endpoints.stream") : null;
+        if (section == null) {
+            return new StreamSettings(1024, 64, 15, 500);
+        }
+        return new StreamSettings(
+                section.getInt("queue-size", 1024),
+                section.getInt("max-clients", 64),
+                section.getInt("heartbeat-seconds", 15),
+                section.getInt("replay-limit", 500));
+    }
+
+    private static CompressionSettings parseCompression(ConfigurationSection root) {
+        ConfigurationSection section = root != null ? root.getConfigurationSection("compression") : null;
+        if (section == null) {
+            return new CompressionSettings(true, 1024, 5);
+        }
+        return new CompressionSettings(
+                section.getBoolean("enabled", true),
+                section.getInt("min-bytes", 1024),
+                section.getInt("level", 5));
+    }
+
+    private static ExecutorSettings parseExecutor(ConfigurationSection root) {
+        ConfigurationSection section = root != null ? root.getConfigurationSection("executor") : null;
+        if (section == null) {
+            return new ExecutorSettings("bounded", 8, 64, 2);
+        }
+        return new ExecutorSettings(
+                section.getString("mode", "bounded"),
+                section.getInt("threads", 8),
+                section.getInt("queue", 64),
+                section.getInt("retry-after-seconds", 2));
+    }
+
+    private static RateLimitSettings parseRateLimit(ConfigurationSection root) {
+        ConfigurationSection section = root != null ? root.getConfigurationSection("rate-limit") : null;
+        if (section == null) {
+            return new RateLimitSettings(true, 10.0, 20, 1.0, 5, 4, false);
+        }
+        return new RateLimitSettings(
+                section.getBoolean("enabled", true),
+                section.getDouble("cheap-per-second", 10.0),
+                section.getInt("cheap-burst", 20),
+                section.getDouble("expensive-per-second", 1.0),
+                section.getInt("expensive-burst", 5),
+                section.getInt("token-multiplier", 4),
+                section.getBoolean("trust-forwarded-for", false));
+    }
+
+    private static QuerySettings parseQuery(ConfigurationSection root) {
+        ConfigurationSection section = root != null ? root.getConfigurationSection("query") : null;
+        if (section == null) {
+            return new QuerySettings(4, 64, 10000, 30000, 256);
+        }
+        return new QuerySettings(
+                section.getInt("threads", 4),
+                section.getInt("queue", 64),
+                section.getInt("default-timeout-millis", 10000),
+                section.getInt("max-timeout-millis", 30000),
+                section.getInt("cache-entries", 256));
     }
 
     private static String resolveDefaultSource(String desired, Map<String, SourceSettings> sources) {
@@ -159,7 +265,8 @@ public final class ApiSettings {
                 allowed = defaultAllowedSources(sources);
             }
             int defaultLimit = endpointSection != null ? endpointSection.getInt("default-limit", defaultLimitFor(key, logHistory)) : defaultLimitFor(key, logHistory);
-            endpoints.put(key, new EndpointSettings(key, enabled, allowed, defaultLimit));
+            int maxConcurrent = endpointSection != null ? endpointSection.getInt("max-concurrent", defaultConcurrencyFor(key)) : defaultConcurrencyFor(key);
+            endpoints.put(key, new EndpointSettings(key, enabled, allowed, defaultLimit, maxConcurrent));
         }
         return endpoints;
     }
@@ -170,6 +277,25 @@ public final class ApiSettings {
                 return logHistory;
             case SEARCH:
                 return Math.min(Math.max(50, logHistory), 1000);
+            case AGGREGATE:
+                return 1000;
+            case TIMELINE:
+                return 250;
+            default:
+                return 0;
+        }
+    }
+
+    private static int defaultConcurrencyFor(EndpointKey key) {
+        switch (key) {
+            case LOGS:
+                return 6;
+            case SEARCH:
+                return 4;
+            case AGGREGATE:
+                return 2;
+            case TIMELINE:
+                return 4;
             default:
                 return 0;
         }
@@ -242,6 +368,34 @@ public final class ApiSettings {
         return endpoints;
     }
 
+    public BufferHistorySettings getBufferHistory() {
+        return bufferHistory;
+    }
+
+    public StreamSettings getStream() {
+        return stream;
+    }
+
+    public CompressionSettings getCompression() {
+        return compression;
+    }
+
+    public int getCacheTtlMillis() {
+        return cacheTtlMillis;
+    }
+
+    public ExecutorSettings getExecutor() {
+        return executor;
+    }
+
+    public RateLimitSettings getRateLimit() {
+        return rateLimit;
+    }
+
+    public QuerySettings getQuery() {
+        return query;
+    }
+
     public SourceSettings getSource(String name) {
         if (name == null) {
             return null;
@@ -280,11 +434,15 @@ public final class ApiSettings {
         private final String name;
         private final boolean enabled;
         private final String rootPath;
+        private final boolean indexed;
+        private final boolean preSerialized;
 
-        private SourceSettings(String name, boolean enabled, String rootPath) {
+        private SourceSettings(String name, boolean enabled, String rootPath, boolean indexed, boolean preSerialized) {
             this.name = name;
             this.enabled = enabled;
             this.rootPath = rootPath;
+            this.indexed = indexed;
+            this.preSerialized = preSerialized;
         }
 
         public String getName() {
@@ -298,6 +456,213 @@ public final class ApiSettings {
         public String getRootPath() {
             return rootPath;
         }
+
+        public boolean isIndexed() {
+            return indexed;
+        }
+
+        public boolean isPreSerialized() {
+            return preSerialized;
+        }
+    }
+
+    public static final class BufferHistorySettings {
+        private final boolean enabled;
+        private final int hotEntries;
+        private final int blockEntries;
+        private final int maxMegabytes;
+
+        private BufferHistorySettings(boolean enabled, int hotEntries, int blockEntries, int maxMegabytes) {
+            this.enabled = enabled;
+            this.hotEntries = Math.max(1, hotEntries);
+            this.blockEntries = Math.max(16, blockEntries);
+            this.maxMegabytes = Math.max(0, maxMegabytes);
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getHotEntries() {
+            return hotEntries;
+        }
+
+        public int getBlockEntries() {
+            return blockEntries;
+        }
+
+        public int getMaxMegabytes() {
+            return maxMegabytes;
+        }
+    }
+
+    public static final class StreamSettings {
+        private final int queueSize;
+        private final int maxClients;
+        private final int heartbeatSeconds;
+        private final int replayLimit;
+
+        private StreamSettings(int queueSize, int maxClients, int heartbeatSeconds, int replayLimit) {
+            this.queueSize = Math.max(16, queueSize);
+            this.maxClients = Math.max(1, maxClients);
+            this.heartbeatSeconds = Math.max(1, heartbeatSeconds);
+            this.replayLimit = Math.max(0, replayLimit);
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public int getHeartbeatSeconds() {
+            return heartbeatSeconds;
+        }
+
+        public int getReplayLimit() {
+            return replayLimit;
+        }
+    }
+
+    public static final class CompressionSettings {
+        private final boolean enabled;
+        private final int minBytes;
+        private final int level;
+
+        CompressionSettings(boolean enabled, int minBytes, int level) {
+            this.enabled = enabled;
+            this.minBytes = Math.max(0, minBytes);
+            this.level = Math.max(1, Math.min(9, level));
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public int getMinBytes() {
+            return minBytes;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+    }
+
+    public static final class ExecutorSettings {
+        private final boolean virtualThreads;
+        private final int threads;
+        private final int queue;
+        private final int retryAfterSeconds;
+
+        ExecutorSettings(String mode, int threads, int queue, int retryAfterSeconds) {
+            this.virtualThreads = mode != null && "virtual".equalsIgnoreCase(mode.trim());
+            this.threads = Math.max(1, threads);
+            this.queue = Math.max(1, queue);
+            this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getQueue() {
+            return queue;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    public static final class RateLimitSettings {
+        private final boolean enabled;
+        private final double cheapPerSecond;
+        private final int cheapBurst;
+        private final double expensivePerSecond;
+        private final int expensiveBurst;
+        private final int tokenMultiplier;
+        private final boolean trustForwardedFor;
+
+        RateLimitSettings(boolean enabled, double cheapPerSecond, int cheapBurst, double expensivePerSecond,
+                          int expensiveBurst, int tokenMultiplier, boolean trustForwardedFor) {
+            this.enabled = enabled;
+            this.cheapPerSecond = Math.max(0.01, cheapPerSecond);
+            this.cheapBurst = Math.max(1, cheapBurst);
+            this.expensivePerSecond = Math.max(0.01, expensivePerSecond);
+            this.expensiveBurst = Math.max(1, expensiveBurst);
+            this.tokenMultiplier = Math.max(1, tokenMultiplier);
+            this.trustForwardedFor = trustForwardedFor;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public double getCheapPerSecond() {
+            return cheapPerSecond;
+        }
+
+        public int getCheapBurst() {
+            return cheapBurst;
+        }
+
+        public double getExpensivePerSecond() {
+            return expensivePerSecond;
+        }
+
+        public int getExpensiveBurst() {
+            return expensiveBurst;
+        }
+
+        public int getTokenMultiplier() {
+            return tokenMultiplier;
+        }
+
+        public boolean isTrustForwardedFor() {
+            return trustForwardedFor;
+        }
+    }
+
+    public static final class QuerySettings {
+        private final int threads;
+        private final int queue;
+        private final int defaultTimeoutMillis;
+        private final int maxTimeoutMillis;
+        private final int cacheEntries;
+
+        private QuerySettings(int threads, int queue, int defaultTimeoutMillis, int maxTimeoutMillis, int cacheEntries) {
+            this.threads = Math.max(1, threads);
+            this.queue = Math.max(1, queue);
+            this.maxTimeoutMillis = Math.max(100, maxTimeoutMillis);
+            this.defaultTimeoutMillis = Math.max(100, Math.min(defaultTimeoutMillis, this.maxTimeoutMillis));
+            this.cacheEntries = Math.max(0, cacheEntries);
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getQueue() {
+            return queue;
+        }
+
+        public int getDefaultTimeoutMillis() {
+            return defaultTimeoutMillis;
+        }
+
+        public int getMaxTimeoutMillis() {
+            return maxTimeoutMillis;
+        }
+
+        public int getCacheEntries() {
+            return cacheEntries;
+        }
     }
 
     public static final class EndpointSettings {
@@ -305,12 +670,14 @@ public final class ApiSettings {
         private final boolean enabled;
         private final List<String> allowedSources;
         private final int defaultLimit;
+        private final int maxConcurrent;
 
-        private EndpointSettings(EndpointKey key, boolean enabled, List<String> allowedSources, int defaultLimit) {
+        private EndpointSettings(EndpointKey key, boolean enabled, List<String> allowedSources, int defaultLimit, int maxConcurrent) {
             this.key = key;
             this.enabled = enabled;
             this.allowedSources = Collections.unmodifiableList(new ArrayList<>(allowedSources));
             this.defaultLimit = Math.max(0, defaultLimit);
+            this.maxConcurrent = Math.max(0, maxConcurrent);
         }
 
         public EndpointKey getKey() {
@@ -329,6 +696,10 @@ public final class ApiSettings {
             return defaultLimit;
         }
 
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
         public boolean allowsSource(String name) {
             if (name == null) {
                 return false;
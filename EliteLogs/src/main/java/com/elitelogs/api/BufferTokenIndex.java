@@ -0,0 +1,177 @@
+package com.elitelogs.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index over one category ring of {@link ApiLogBuffer}. Like
+ * {@link com.elitelogs.logging.TokenFilter} it keys every
+ * {@value #GRAM}-character piece of every lower cased token, plus the shorter
+ * tokens whole, so any substring a query term asks for is made of indexed
+ * pieces. Each piece maps to the ascending sequence numbers of the entries
+ * that hold it. Entries leave the ring oldest-first, so evicting an entry
+ * only ever pops the head of its posting lists. Callers must hold the owning
+ * buffer's lock.
+ */
+final class BufferTokenIndex {
+    static final int GRAM = 4;
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    void add(ApiLogBuffer.Entry entry) {
+        for (String piece : pieces(entry.getLine().toLowerCase(Locale.ROOT), false)) {
+            postings.computeIfAbsent(piece, key -> new Postings()).append(entry.getSequence());
+        }
+    }
+
+    void remove(ApiLogBuffer.Entry entry) {
+        for (String piece : pieces(entry.getLine().toLowerCase(Locale.ROOT), false)) {
+            Postings list = postings.get(piece);
+            if (list == null) {
+                continue;
+            }
+            list.removeUpTo(entry.getSequence());
+            if (list.isEmpty()) {
+                postings.remove(piece);
+            }
+        }
+    }
+
+    /**
+     * Intersects the posting lists of the pieces of every lower cased query
+     * term and returns up to {@code limit} candidate sequences, newest first.
+     * A short token at either end of a term may be part of a longer token in
+     * the line, so only enclosed short tokens are looked up. Returns
+     * {@code null} when no term yields a piece so the caller can fall back to
+     * a scan. Candidates still have to be checked against the terms.
+     */
+    long[] intersect(List<String> terms, int limit) {
+        Set<String> pieces = new HashSet<>();
+        for (String term : terms) {
+            pieces.addAll(pieces(term, true));
+        }
+        if (pieces.isEmpty()) {
+            return null;
+        }
+        List<Postings> lists = new ArrayList<>(pieces.size());
+        for (String piece : pieces) {
+            Postings list = postings.get(piece);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings smallest = lists.get(0);
+        long[] result = new long[Math.min(limit, smallest.size)];
+        int found = 0;
+        for (int i = smallest.size - 1; i >= 0 && found < result.length; i--) {
+            long sequence = smallest.get(i);
+            boolean everywhere = true;
+            for (int l = 1; l < lists.size() && everywhere; l++) {
+                everywhere = lists.get(l).contains(sequence);
+            }
+            if (everywhere) {
+                result[found++] = sequence;
+            }
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Pieces of already lower cased {@code text}. With {@code query} set, short
+     * tokens touching either end of the text are left out.
+     */
+    static Set<String> pieces(String text, boolean query) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> pieces = new HashSet<>();
+        int length = text.length();
+        int index = 0;
+        while (index < length) {
+            if (!isTokenChar(text.charAt(index))) {
+                index++;
+                continue;
+            }
+            int start = index;
+            while (index < length && isTokenChar(text.charAt(index))) {
+                index++;
+            }
+            if (index - start >= GRAM) {
+                for (int gram = start; gram + GRAM <= index; gram++) {
+                    pieces.add(text.substring(gram, gram + GRAM));
+                }
+            } else if (index - start >= MIN_TOKEN_LENGTH && (!query || (start > 0 && index < length))) {
+                pieces.add(text.substring(start, index));
+            }
+        }
+        return pieces;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == ':' || c == '-' || c == '@';
+    }
+
+    private static final class Postings {
+        private long[] values = new long[4];
+        private int head;
+        private int size;
+
+        void append(long sequence) {
+            if (size == values.length) {
+                long[] grown = new long[values.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get(i);
+                }
+                values = grown;
+                head = 0;
+            }
+            values[(head + size) % values.length] = sequence;
+            size++;
+        }
+
+        void removeUpTo(long sequence) {
+            while (size > 0 && values[head] <= sequence) {
+                head = (head + 1) % values.length;
+                size--;
+            }
+            if (size == 0) {
+                head = 0;
+            }
+        }
+
+        long get(int index) {
+            return values[(head + index) % values.length];
+        }
+
+        boolean contains(long sequence) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = get(mid);
+                if (value < sequence) {
+                    low = mid + 1;
+                } else if (value > sequence) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
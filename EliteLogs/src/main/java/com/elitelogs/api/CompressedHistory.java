@@ -0,0 +1,384 @@
+package com.elitelogs.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Older half of a category buffer. Entries that fall out of the hot ring are
+ * serialised into an open block; once the block holds {@code blockEntries}
+ * lines it is handed to the {@code sealer}, which deflates it into a direct
+ * {@link ByteBuffer} off the logging thread so the text lives outside the
+ * Java heap. Until then the block is read from its raw bytes. Only the small
+ * block index stays on-heap and whole blocks are dropped oldest-first when the
+ * entry or byte budget is exceeded. Stamps are not assumed to be ordered:
+ * each block records its own time bounds plus the running maximum up to it,
+ * which is what lets a newest-first walk stop early. Mutating calls must hold
+ * {@code lock}, the owning buffer's monitor; {@link View}s can be decoded
+ * without it.
+ */
+final class CompressedHistory {
+    private final int categoryId;
+    private final int blockEntries;
+    private final long maxBytes;
+    private final Executor sealer;
+    private final Object lock;
+    private final Deque<Block> blocks = new ArrayDeque<>();
+    private ByteArrayOutputStream openBytes = new ByteArrayOutputStream();
+    private DataOutputStream openData = new DataOutputStream(openBytes);
+    private int openCount;
+    private long openFirstSequence;
+    private long openLastSequence;
+    private long openMinTimestamp;
+    private long openMaxTimestamp;
+    private long ceiling = Long.MIN_VALUE;
+    private long sealedEntries;
+    private long sealedBytes;
+    private long sealedRawBytes;
+    /** Bytes held by closed blocks: raw size while pending, packed size once sealed. */
+    private long chargedBytes;
+
+    CompressedHistory(int categoryId, int blockEntries, long maxBytes, Executor sealer, Object lock) {
+        this.categoryId = categoryId;
+        this.blockEntries = Math.max(16, blockEntries);
+        this.maxBytes = Math.max(0L, maxBytes);
+        this.sealer = sealer;
+        this.lock = lock;
+    }
+
+    void append(ApiLogBuffer.Entry entry) {
+        try {
+            writeEntry(openData, entry);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to buffer history entry", ex);
+        }
+        long timestamp = entry.getTimestampMillis();
+        if (openCount++ == 0) {
+            openFirstSequence = entry.getSequence();
+            openMinTimestamp = timestamp;
+            openMaxTimestamp = timestamp;
+        }
+        openLastSequence = entry.getSequence();
+        openMinTimestamp = Math.min(openMinTimestamp, timestamp);
+        openMaxTimestamp = Math.max(openMaxTimestamp, timestamp);
+        ceiling = Math.max(ceiling, timestamp);
+        if (openCount >= blockEntries) {
+            seal();
+        }
+    }
+
+    void trim(long maxEntries) {
+        while (!blocks.isEmpty() && (size() > Math.max(0L, maxEntries) || (maxBytes > 0L && chargedBytes > maxBytes))) {
+            drop(blocks.removeFirst());
+        }
+        if (blocks.isEmpty() && openCount > 0 && maxEntries <= 0) {
+            resetOpenBlock();
+        }
+    }
+
+    long size() {
+        return sealedEntries + openCount;
+    }
+
+    int blockCount() {
+        return blocks.size();
+    }
+
+    long compressedBytes() {
+        return sealedBytes;
+    }
+
+    long rawBytes() {
+        return sealedRawBytes + openBytes.size();
+    }
+
+    void close() {
+        while (!blocks.isEmpty()) {
+            drop(blocks.removeFirst());
+        }
+        resetOpenBlock();
+    }
+
+    View view() {
+        List<Block> snapshot = new ArrayList<>(blocks);
+        if (openCount > 0) {
+            snapshot.add(new Block(openFirstSequence, openLastSequence, openMinTimestamp, openMaxTimestamp, ceiling,
+                    openCount, openBytes.size(), null, openBytes.toByteArray()));
+        }
+        return new View(categoryId, snapshot);
+    }
+
+    /**
+     * Closes the open block and queues it for deflating. The block joins the
+     * index right away, readable from its raw bytes, so views see no gap, and
+     * those bytes count against {@code maxBytes} until the compressed buffer
+     * replaces them under {@code lock}, unless the block was dropped in the
+     * meantime.
+     */
+    private void seal() {
+        byte[] raw = openBytes.toByteArray();
+        Block block = new Block(openFirstSequence, openLastSequence, openMinTimestamp, openMaxTimestamp, ceiling,
+                openCount, raw.length, null, raw);
+        blocks.addLast(block);
+        sealedEntries += openCount;
+        sealedRawBytes += raw.length;
+        block.charged = raw.length;
+        chargedBytes += raw.length;
+        resetOpenBlock();
+        sealer.execute(() -> {
+            ByteBuffer packed = deflate(raw);
+            synchronized (lock) {
+                if (block.dropped) {
+                    return;
+                }
+                block.data = packed;
+                block.uncompressed = null;
+                sealedBytes += packed.capacity();
+                chargedBytes += packed.capacity() - block.charged;
+                block.charged = packed.capacity();
+            }
+        });
+    }
+
+    private void drop(Block block) {
+        block.dropped = true;
+        sealedEntries -= block.count;
+        sealedRawBytes -= block.rawLength;
+        chargedBytes -= block.charged;
+        if (block.data != null) {
+            sealedBytes -= block.data.capacity();
+        }
+    }
+
+    private static ByteBuffer deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                compressed.write(chunk, 0, written);
+            }
+            byte[] packed = compressed.toByteArray();
+            ByteBuffer direct = ByteBuffer.allocateDirect(packed.length);
+            direct.put(packed);
+            direct.flip();
+            return direct.asReadOnlyBuffer();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void resetOpenBlock() {
+        openBytes = new ByteArrayOutputStream();
+        openData = new DataOutputStream(openBytes);
+        openCount = 0;
+        openFirstSequence = 0L;
+        openLastSequence = 0L;
+        openMinTimestamp = 0L;
+        openMaxTimestamp = 0L;
+    }
+
+    private static void writeEntry(DataOutputStream out, ApiLogBuffer.Entry entry) throws IOException {
+        byte[] line = entry.getLine().getBytes(StandardCharsets.UTF_8);
+        UUID player = entry.getPlayerUuid();
+        out.writeLong(entry.getSequence());
+        out.writeLong(entry.getTimestampMillis());
+        out.writeBoolean(player != null);
+        if (player != null) {
+            out.writeLong(player.getMostSignificantBits());
+            out.writeLong(player.getLeastSignificantBits());
+        }
+        out.writeInt(entry.getMessageOffset());
+        out.writeInt(line.length);
+        out.write(line);
+    }
+
+    private static final class Block {
+        private final long firstSequence;
+        private final long lastSequence;
+        private final long minTimestamp;
+        private final long maxTimestamp;
+        private final long ceiling;
+        private final int count;
+        private final int rawLength;
+        private volatile ByteBuffer data;
+        private volatile byte[] uncompressed;
+        private boolean dropped;
+        private long charged;
+
+        private Block(long firstSequence, long lastSequence, long minTimestamp, long maxTimestamp, long ceiling,
+                      int count, int rawLength, ByteBuffer data, byte[] uncompressed) {
+            this.firstSequence = firstSequence;
+            this.lastSequence = lastSequence;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.ceiling = ceiling;
+            this.count = count;
+            this.rawLength = rawLength;
+            this.data = data;
+            this.uncompressed = uncompressed;
+        }
+
+        private boolean overlaps(long fromMillis, long toMillis) {
+            return maxTimestamp >= fromMillis && minTimestamp < toMillis;
+        }
+    }
+
+    /**
+     * Point-in-time copy of the block index, including the still-open block.
+     * Blocks are decoded one at a time so memory stays bounded by a single
+     * block no matter how much history is retained.
+     */
+    static final class View {
+        private final int categoryId;
+        private final List<Block> blocks;
+
+        private View(int categoryId, List<Block> blocks) {
+            this.categoryId = categoryId;
+            this.blocks = blocks;
+        }
+
+        boolean isEmpty() {
+            return blocks.isEmpty();
+        }
+
+        /**
+         * Feeds entries to the visitor newest first until it returns
+         * {@code false} or the history is exhausted.
+         */
+        void visitNewestFirst(Visitor visitor) {
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                List<ApiLogBuffer.Entry> entries = decode(blocks.get(i));
+                for (int e = entries.size() - 1; e >= 0; e--) {
+                    if (!visitor.visit(entries.get(e))) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Feeds entries after {@code afterSequence} stamped inside
+         * {@code [fromMillis, toMillis)} to the visitor oldest first. Blocks
+         * whose time bounds miss the window are skipped without inflating
+         * them; the walk ends when the visitor returns {@code false}.
+         */
+        void visitRange(long afterSequence, long fromMillis, long toMillis, Visitor visitor) {
+            for (Block block : blocks) {
+                if (block.lastSequence <= afterSequence || !block.overlaps(fromMillis, toMillis)) {
+                    continue;
+                }
+                for (ApiLogBuffer.Entry entry : decode(block)) {
+                    long timestamp = entry.getTimestampMillis();
+                    if (entry.getSequence() <= afterSequence || timestamp < fromMillis || timestamp >= toMillis) {
+                        continue;
+                    }
+                    if (!visitor.visit(entry)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Feeds entries stamped inside {@code [fromMillis, toMillis)} to the
+         * visitor newest first, skipping blocks whose time bounds miss the
+         * window and stopping once no earlier block can reach it.
+         */
+        void visitBefore(long fromMillis, long toMillis, Visitor visitor) {
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                Block block = blocks.get(i);
+                if (block.ceiling < fromMillis) {
+                    return;
+                }
+                if (!block.overlaps(fromMillis, toMillis)) {
+                    continue;
+                }
+                List<ApiLogBuffer.Entry> entries = decode(block);
+                for (int e = entries.size() - 1; e >= 0; e--) {
+                    ApiLogBuffer.Entry entry = entries.get(e);
+                    long timestamp = entry.getTimestampMillis();
+                    if (timestamp < fromMillis || timestamp >= toMillis) {
+                        continue;
+                    }
+                    if (!visitor.visit(entry)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        List<ApiLogBuffer.Entry> newest(int limit) {
+            if (limit <= 0 || isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<ApiLogBuffer.Entry> collected = new ArrayList<>(limit);
+            visitNewestFirst(entry -> {
+                collected.add(entry);
+                return collected.size() < limit;
+            });
+            Collections.reverse(collected);
+            return collected;
+        }
+
+        private byte[] inflate(Block block) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(block.data.duplicate());
+                byte[] raw = new byte[block.rawLength];
+                int offset = 0;
+                while (offset < raw.length && !inflater.finished()) {
+                    int read = inflater.inflate(raw, offset, raw.length - offset);
+                    if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    offset += read;
+                }
+                return raw;
+            } catch (DataFormatException ex) {
+                throw new IllegalStateException("Corrupted history block " + block.firstSequence + "-" + block.lastSequence, ex);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        private List<ApiLogBuffer.Entry> decode(Block block) {
+            byte[] raw = block.uncompressed;
+            if (raw == null) {
+                raw = inflate(block);
+            }
+            ByteBuffer in = ByteBuffer.wrap(raw);
+            List<ApiLogBuffer.Entry> entries = new ArrayList<>(block.count);
+            for (int i = 0; i < block.count && in.remaining() > 0; i++) {
+                long sequence = in.getLong();
+                long timestamp = in.getLong();
+                UUID player = in.get() != 0 ? new UUID(in.getLong(), in.getLong()) : null;
+                int messageOffset = in.getInt();
+                byte[] line = new byte[in.getInt()];
+                in.get(line);
+                entries.add(new ApiLogBuffer.Entry(sequence, categoryId, timestamp, player,
+                        messageOffset, new String(line, StandardCharsets.UTF_8)));
+            }
+            return entries;
+        }
+    }
+
+    interface Visitor {
+        boolean visit(ApiLogBuffer.Entry entry);
+    }
+}
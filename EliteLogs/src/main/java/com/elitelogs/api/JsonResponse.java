@@ -4,18 +4,196 @@ import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.Writer;
 
 final class JsonResponse {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
     private JsonResponse() {
     }
 
-    static void send(HttpExchange exchange, int status, String body) throws IOException {
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    /**
+     * Serialises {@code payload} as UTF-8 straight into the response. Bodies
+     * that fit in the per-thread buffer go out with a Content-Length; larger
+     * ones switch to chunked transfer encoding on the first flush, so memory
+     * per request stays at one buffer however many records are written. If
+     * serialisation fails before the first flush nothing has been sent yet.
+     * When {@code compression} is given and the client accepts it, bodies of
+     * at least its minimum size are gzip or deflate encoded on the fly.
+     */
+    static void send(HttpExchange exchange, int status, Object payload, ResponseCompression compression) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-        exchange.sendResponseHeaders(status, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        String encoding = null;
+        if (compression != null) {
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            encoding = compression.negotiate(exchange);
+        }
+        ResponseWriter writer = new ResponseWriter(exchange, status, BUFFERS.get(), compression, encoding);
+        JsonUtil.write(writer, payload);
+        writer.close();
+    }
+
+    private static final class ResponseWriter extends Writer implements JsonUtil.Utf8Sink {
+        private final HttpExchange exchange;
+        private final int status;
+        private final byte[] buffer;
+        private final ResponseCompression compression;
+        private final String encoding;
+        private int position;
+        private long total;
+        private boolean compressing;
+        private char pendingHigh;
+        private OutputStream body;
+
+        private ResponseWriter(HttpExchange exchange, int status, byte[] buffer,
+                               ResponseCompression compression, String encoding) {
+            this.exchange = exchange;
+            this.status = status;
+            this.buffer = buffer;
+            this.compression = compression;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            encode((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                encode(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                encode(text.charAt(i));
+            }
+        }
+
+        @Override
+        public Writer append(CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Writer append(CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                encode(text.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Writer append(char c) throws IOException {
+            encode(c);
+            return this;
+        }
+
+        private void encode(char c) throws IOException {
+            if (position > buffer.length - 4) {
+                drain();
+            }
+            if (pendingHigh != 0) {
+                char high = pendingHigh;
+                pendingHigh = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                buffer[position++] = '?';
+                encode(c);
+                return;
+            }
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        @Override
+        public void writeUtf8(byte[] utf8) throws IOException {
+            int offset = 0;
+            while (offset < utf8.length) {
+                if (position == buffer.length) {
+                    drain();
+                }
+                int count = Math.min(utf8.length - offset, buffer.length - position);
+                System.arraycopy(utf8, offset, buffer, position, count);
+                position += count;
+                offset += count;
+            }
+        }
+
+        private void drain() throws IOException {
+            if (body == null) {
+                // Already past one full buffer, which is above any sensible minimum size.
+                if (encoding != null) {
+                    exchange.getResponseHeaders().set("Content-Encoding", encoding);
+                    exchange.sendResponseHeaders(status, 0);
+                    body = compression.wrap(exchange.getResponseBody(), encoding);
+                    compressing = true;
+                } else {
+                    exchange.sendResponseHeaders(status, 0);
+                    body = exchange.getResponseBody();
+                }
+            }
+            body.write(buffer, 0, position);
+            total += position;
+            position = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            body.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (pendingHigh != 0) {
+                pendingHigh = 0;
+                buffer[position++] = '?';
+            }
+            if (body == null && encoding != null && position >= compression.getMinBytes()) {
+                byte[] packed = compression.compress(buffer, position, encoding);
+                exchange.getResponseHeaders().set("Content-Encoding", encoding);
+                exchange.sendResponseHeaders(status, packed.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(packed);
+                }
+                compression.recordIn(position);
+                position = 0;
+                return;
+            }
+            if (body == null) {
+                exchange.sendResponseHeaders(status, position > 0 ? position : -1);
+                body = exchange.getResponseBody();
+            }
+            body.write(buffer, 0, position);
+            total += position;
+            position = 0;
+            body.close();
+            if (compressing) {
+                compression.recordIn(total);
+            }
         }
     }
 }
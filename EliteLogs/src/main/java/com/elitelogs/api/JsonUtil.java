@@ -1,73 +1,134 @@
 package com.elitelogs.api;
 
+import com.elitelogs.api.provider.LogRecord;
+
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
 
 final class JsonUtil {
+    private static final String RECORD_CATEGORY = "{\"category\":";
+    private static final String RECORD_SOURCE = ",\"source\":";
+    private static final String RECORD_SEQUENCE = ",\"sequence\":";
+    private static final String RECORD_ID = ",\"id\":";
+    private static final String RECORD_FILE = ",\"file\":";
+    private static final String RECORD_LINE = ",\"line\":";
+    private static final String RECORD_OCCURRED_AT = ",\"occurredAt\":\"";
+    private static final String RECORD_EVENT_TYPE = ",\"eventType\":";
+    private static final String RECORD_MESSAGE = ",\"message\":";
+    private static final String RECORD_PLAYER_UUID = ",\"playerUuid\":\"";
+    private static final String RECORD_PLAYER_NAME = ",\"playerName\":";
+    private static final String RECORD_TAGS = ",\"tags\":";
+    private static final String RECORD_CONTEXT = ",\"context\":";
+
     private JsonUtil() {
     }
 
-    static String quote(String value) {
+    private static void appendQuoted(Appendable out, String value) throws IOException {
         if (value == null) {
-            return "null";
+            out.append("null");
+            return;
         }
-        StringBuilder sb = new StringBuilder(value.length() + 16);
-        sb.append('"');
+        out.append('"');
+        int run = 0;
         for (int i = 0; i < value.length(); i++) {
             char c = value.charAt(i);
-            switch (c) {
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '"':
-                    sb.append("\\\"");
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\r':
-                    sb.append("\\r");
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                default:
-                    if (c < 0x20) {
-                        sb.append("\\u");
-                        String hex = Integer.toHexString(c);
-                        for (int pad = hex.length(); pad < 4; pad++) {
-                            sb.append('0');
-                        }
-                        sb.append(hex);
-                    } else {
-                        sb.append(c);
-                    }
+            String escape = escapeFor(c);
+            if (escape == null) {
+                continue;
             }
+            out.append(value, run, i);
+            out.append(escape);
+            run = i + 1;
+        }
+        out.append(value, run, value.length());
+        out.append('"');
+    }
+
+    private static String escapeFor(char c) {
+        switch (c) {
+            case '\\':
+                return "\\\\";
+            case '"':
+                return "\\\"";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            default:
+                if (c < 0x20) {
+                    String hex = Integer.toHexString(c);
+                    return hex.length() == 1 ? "\\u000" + hex : "\\u00" + hex;
+                }
+                return null;
         }
-        sb.append('"');
-        return sb.toString();
     }
 
     static String stringify(Object value) {
         StringBuilder sb = new StringBuilder();
-        appendJson(sb, value);
+        try {
+            write(sb, value);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
         return sb.toString();
     }
 
-    private static void appendJson(StringBuilder sb, Object value) {
+    /**
+     * Serialises {@code value} straight into {@code out} without building an
+     * intermediate string, so callers can stream large payloads.
+     */
+    static void write(Appendable out, Object value) throws IOException {
+        appendJson(out, value);
+    }
+
+    /**
+     * Serialises {@code record} once into UTF-8 so it can later be copied into
+     * responses without being escaped again.
+     */
+    static byte[] encode(LogRecord record) {
+        StringBuilder sb = new StringBuilder(128 + 2 * (record.getLine() != null ? record.getLine().length() : 0));
+        try {
+            appendRecord(sb, record);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wraps JSON text that has already been serialised so it is written
+     * verbatim instead of being quoted as a string.
+     */
+    static RawJson raw(String json) {
+        return new RawJson(json);
+    }
+
+    private static void appendJson(Appendable sb, Object value) throws IOException {
         if (value == null) {
             sb.append("null");
             return;
         }
+        if (value instanceof LogRecord) {
+            appendRecord(sb, (LogRecord) value);
+            return;
+        }
+        if (value instanceof RawJson) {
+            sb.append(((RawJson) value).json);
+            return;
+        }
         if (value instanceof String) {
-            sb.append(quote((String) value));
+            appendQuoted(sb, (String) value);
             return;
         }
         if (value instanceof Number) {
@@ -91,10 +152,59 @@ final class JsonUtil {
             appendArray(sb, value);
             return;
         }
-        sb.append(quote(String.valueOf(value)));
+        appendQuoted(sb, String.valueOf(value));
+    }
+
+    /**
+     * Writes a record field by field with the keys already encoded, skipping
+     * absent fields. Times and UUIDs never need escaping and are written
+     * as-is.
+     */
+    private static void appendRecord(Appendable sb, LogRecord record) throws IOException {
+        byte[] encoded = record.getEncodedJson();
+        if (encoded != null && sb instanceof Utf8Sink) {
+            ((Utf8Sink) sb).writeUtf8(encoded);
+            return;
+        }
+        sb.append(RECORD_CATEGORY);
+        appendQuoted(sb, record.getCategory());
+        sb.append(RECORD_SOURCE);
+        appendQuoted(sb, record.getSource());
+        Long sequence = record.getSequence();
+        if (sequence != null) {
+            sb.append(RECORD_SEQUENCE).append(Long.toString(sequence));
+        }
+        Long id = record.getId();
+        if (id != null) {
+            sb.append(RECORD_ID).append(Long.toString(id));
+        }
+        appendField(sb, RECORD_FILE, record.getFile());
+        appendField(sb, RECORD_LINE, record.getLine());
+        Instant occurredAt = record.getOccurredAt();
+        if (occurredAt != null) {
+            sb.append(RECORD_OCCURRED_AT).append(occurredAt.toString()).append('"');
+        }
+        appendField(sb, RECORD_EVENT_TYPE, record.getEventType());
+        sb.append(RECORD_MESSAGE);
+        appendQuoted(sb, record.getMessage());
+        UUID playerUuid = record.getPlayerUuid();
+        if (playerUuid != null) {
+            sb.append(RECORD_PLAYER_UUID).append(playerUuid.toString()).append('"');
+        }
+        appendField(sb, RECORD_PLAYER_NAME, record.getPlayerName());
+        appendField(sb, RECORD_TAGS, record.getTags());
+        appendField(sb, RECORD_CONTEXT, record.getContext());
+        sb.append('}');
     }
 
-    private static void appendNumber(StringBuilder sb, Number number) {
+    private static void appendField(Appendable sb, String key, String value) throws IOException {
+        if (value != null) {
+            sb.append(key);
+            appendQuoted(sb, value);
+        }
+    }
+
+    private static void appendNumber(Appendable sb, Number number) throws IOException {
         if (number instanceof Double || number instanceof Float) {
             double value = number.doubleValue();
             if (Double.isFinite(value)) {
@@ -122,7 +232,7 @@ final class JsonUtil {
         return value.substring(0, end);
     }
 
-    private static void appendMap(StringBuilder sb, Map<?, ?> map) {
+    private static void appendMap(Appendable sb, Map<?, ?> map) throws IOException {
         sb.append('{');
         boolean first = true;
         for (Map.Entry<?, ?> entry : map.entrySet()) {
@@ -134,14 +244,14 @@ final class JsonUtil {
                 sb.append(',');
             }
             first = false;
-            sb.append(quote(String.valueOf(key)));
+            appendQuoted(sb, String.valueOf(key));
             sb.append(':');
             appendJson(sb, entry.getValue());
         }
         sb.append('}');
     }
 
-    private static void appendIterable(StringBuilder sb, Iterable<?> iterable) {
+    private static void appendIterable(Appendable sb, Iterable<?> iterable) throws IOException {
         sb.append('[');
         Iterator<?> iterator = iterable.iterator();
         boolean first = true;
@@ -155,7 +265,7 @@ final class JsonUtil {
         sb.append(']');
     }
 
-    private static void appendArray(StringBuilder sb, Object array) {
+    private static void appendArray(Appendable sb, Object array) throws IOException {
         sb.append('[');
         int length = Array.getLength(array);
         for (int i = 0; i < length; i++) {
@@ -166,4 +276,20 @@ final class JsonUtil {
         }
         sb.append(']');
     }
+
+    /**
+     * Output that also accepts JSON already encoded as UTF-8, which is copied
+     * through untouched.
+     */
+    interface Utf8Sink {
+        void writeUtf8(byte[] utf8) throws IOException;
+    }
+
+    static final class RawJson {
+        private final String json;
+
+        private RawJson(String json) {
+            this.json = json;
+        }
+    }
 }
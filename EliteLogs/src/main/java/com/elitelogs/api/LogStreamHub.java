@@ -0,0 +1,221 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.provider.LogRecord;
+import com.elitelogs.logging.LogLines;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans buffered entries out to live-tail subscribers. Each subscriber owns a
+ * bounded queue; the logging thread only filters and offers, and a subscriber
+ * whose queue is full is dropped instead of slowing everyone else down. The
+ * SSE frame for an entry is rendered once, on first use, and shared by every
+ * subscriber that receives it.
+ */
+final class LogStreamHub implements ApiLogBuffer.EntryListener {
+    private final ApiLogBuffer buffer;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    LogStreamHub(ApiLogBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void onEntry(String category, ApiLogBuffer.Entry entry) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Event event = new Event(category, entry);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.filter.matches(event) && !subscriber.queue.offer(event)) {
+                subscriber.overflowed = true;
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    int size() {
+        return subscribers.size();
+    }
+
+    /**
+     * Registers a subscriber and returns the buffered entries after
+     * {@code lastEventId} that match its filter, oldest first. The subscriber
+     * is attached before the replay is read so nothing written in between is
+     * lost; {@link Subscriber#poll} drops the overlap.
+     */
+    Subscriber subscribe(Filter filter, int queueSize, long lastEventId, int replayLimit, List<Event> replay) {
+        Subscriber subscriber = new Subscriber(filter, queueSize);
+        subscribers.add(subscriber);
+        if (lastEventId >= 0L && replayLimit > 0) {
+            List<Event> missed = new ArrayList<>();
+            for (String category : filter.categories.isEmpty() ? buffer.getCategories() : filter.categories) {
+                for (ApiLogBuffer.Entry entry : buffer.getAfter(category, lastEventId, Long.MIN_VALUE, replayLimit)) {
+                    Event event = new Event(category, entry);
+                    if (filter.matches(event)) {
+                        missed.add(event);
+                    }
+                }
+            }
+            missed.sort((a, b) -> Long.compare(a.entry.getSequence(), b.entry.getSequence()));
+            if (missed.size() > replayLimit) {
+                missed = missed.subList(missed.size() - replayLimit, missed.size());
+            }
+            for (Event event : missed) {
+                subscriber.replayed.put(event.category, event.entry.getSequence());
+            }
+            replay.addAll(missed);
+        }
+        return subscriber;
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    void closeAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.closed = true;
+        }
+        subscribers.clear();
+    }
+
+    static final class Filter {
+        private final Set<String> categories;
+        private final UUID playerUuid;
+        private final String playerName;
+        private final String needle;
+
+        Filter(Set<String> categories, String player, String query) {
+            this.categories = categories != null ? categories : Collections.emptySet();
+            UUID uuid = null;
+            String name = null;
+            if (player != null && !player.trim().isEmpty()) {
+                try {
+                    uuid = UUID.fromString(player.trim());
+                } catch (IllegalArgumentException ex) {
+                    name = player.trim();
+                }
+            }
+            this.playerUuid = uuid;
+            this.playerName = name;
+            this.needle = query != null && !query.trim().isEmpty() ? query.trim().toLowerCase(Locale.ROOT) : null;
+        }
+
+        private boolean matches(Event event) {
+            if (!categories.isEmpty() && !categories.contains(event.category)) {
+                return false;
+            }
+            if (playerUuid != null && !playerUuid.equals(event.entry.getPlayerUuid())) {
+                return false;
+            }
+            if (playerName != null && !playerName.equalsIgnoreCase(LogLines.playerName(event.entry.getLine()))) {
+                return false;
+            }
+            return needle == null || event.lowered().contains(needle);
+        }
+    }
+
+    static final class Event {
+        private final String category;
+        private final ApiLogBuffer.Entry entry;
+        private volatile String lowered;
+        private volatile byte[] frame;
+
+        private Event(String category, ApiLogBuffer.Entry entry) {
+            this.category = category;
+            this.entry = entry;
+        }
+
+        long getSequence() {
+            return entry.getSequence();
+        }
+
+        private String lowered() {
+            String value = lowered;
+            if (value == null) {
+                value = entry.getLine().toLowerCase(Locale.ROOT);
+                lowered = value;
+            }
+            return value;
+        }
+
+        byte[] frame() {
+            byte[] value = frame;
+            if (value == null) {
+                byte[] json = entry.getEncodedJson();
+                if (json == null) {
+                    json = JsonUtil.encode(LogRecord.buffered(category, "buffer", entry.getSequence(), entry.getLine(),
+                            entry.getTimestampMillis(), entry.getMessage(), entry.getPlayerUuid()));
+                }
+                byte[] head = ("id: " + entry.getSequence() + "\nevent: log\ndata: ").getBytes(StandardCharsets.UTF_8);
+                value = new byte[head.length + json.length + 2];
+                System.arraycopy(head, 0, value, 0, head.length);
+                System.arraycopy(json, 0, value, head.length, json.length);
+                value[value.length - 2] = '\n';
+                value[value.length - 1] = '\n';
+                frame = value;
+            }
+            return value;
+        }
+    }
+
+    static final class Subscriber {
+        private final Filter filter;
+        private final BlockingQueue<Event> queue;
+        private final Map<String, Long> replayed = new LinkedHashMap<>();
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        private Subscriber(Filter filter, int queueSize) {
+            this.filter = filter;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        }
+
+        /**
+         * Waits up to {@code timeoutMillis} for the next live event, skipping
+         * entries already sent during replay. Returns {@code null} on timeout.
+         */
+        Event poll(long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                Event event = queue.poll(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+                if (event == null) {
+                    return null;
+                }
+                if (!replayed.isEmpty()) {
+                    Long last = replayed.get(event.category);
+                    if (last != null && event.getSequence() <= last) {
+                        continue;
+                    }
+                }
+                return event;
+            }
+        }
+
+        boolean hasPending() {
+            return !queue.isEmpty();
+        }
+
+        boolean isOverflowed() {
+            return overflowed;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+    }
+}
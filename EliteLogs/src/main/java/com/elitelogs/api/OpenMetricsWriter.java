@@ -0,0 +1,141 @@
+package com.elitelogs.api;
+
+import com.elitelogs.metrics.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds a metrics exposition in either the OpenMetrics 1.0 text format or
+ * the classic Prometheus 0.0.4 text format. The two differ only in how
+ * counter families are declared and in the trailing {@code # EOF}.
+ */
+final class OpenMetricsWriter {
+    static final String OPENMETRICS_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    static final String PROMETHEUS_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder(4096);
+    private final boolean openMetrics;
+
+    OpenMetricsWriter(boolean openMetrics) {
+        this.openMetrics = openMetrics;
+    }
+
+    /**
+     * Picks OpenMetrics when the scraper lists it in {@code Accept}, which is
+     * what Prometheus does by default.
+     */
+    static boolean prefersOpenMetrics(String accept) {
+        return accept != null && accept.toLowerCase(Locale.ROOT).contains("application/openmetrics-text");
+    }
+
+    String contentType() {
+        return openMetrics ? OPENMETRICS_TYPE : PROMETHEUS_TYPE;
+    }
+
+    OpenMetricsWriter gauge(String name, String help, double value) {
+        header(name, "gauge", help);
+        sample(name, null, null, value);
+        return this;
+    }
+
+    OpenMetricsWriter gauge(String name, String help, String label, Map<String, ? extends Number> values) {
+        header(name, "gauge", help);
+        for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+            sample(name, label, entry.getKey(), entry.getValue().doubleValue());
+        }
+        return this;
+    }
+
+    OpenMetricsWriter counter(String name, String help, double value) {
+        header(openMetrics ? name : name + "_total", "counter", help);
+        sample(name + "_total", null, null, value);
+        return this;
+    }
+
+    OpenMetricsWriter counter(String name, String help, String label, Map<String, ? extends Number> values) {
+        header(openMetrics ? name : name + "_total", "counter", help);
+        for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+            sample(name + "_total", label, entry.getKey(), entry.getValue().doubleValue());
+        }
+        return this;
+    }
+
+    OpenMetricsWriter histogram(String name, String help, String label, Map<String, LatencyHistogram.Snapshot> series) {
+        header(name, "histogram", help);
+        if (openMetrics) {
+            out.append("# UNIT ").append(name).append(" seconds\n");
+        }
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : series.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            double[] bounds = snapshot.getBounds();
+            long[] counts = snapshot.getCumulativeCounts();
+            for (int i = 0; i < bounds.length; i++) {
+                bucket(name, label, entry.getKey(), formatValue(bounds[i]), counts[i]);
+            }
+            bucket(name, label, entry.getKey(), "+Inf", snapshot.getCount());
+            sample(name + "_count", label, entry.getKey(), snapshot.getCount());
+            sample(name + "_sum", label, entry.getKey(), snapshot.getSumSeconds());
+        }
+        return this;
+    }
+
+    String finish() {
+        if (openMetrics) {
+            out.append("# EOF\n");
+        }
+        return out.toString();
+    }
+
+    private void header(String family, String type, String help) {
+        out.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+        out.append("# HELP ").append(family).append(' ').append(help).append('\n');
+    }
+
+    private void bucket(String name, String label, String labelValue, String le, long count) {
+        out.append(name).append("_bucket{");
+        if (label != null) {
+            out.append(label).append("=\"");
+            escape(labelValue);
+            out.append("\",");
+        }
+        out.append("le=\"").append(le).append("\"} ").append(count).append('\n');
+    }
+
+    private void sample(String name, String label, String labelValue, double value) {
+        out.append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"");
+            escape(labelValue);
+            out.append("\"}");
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
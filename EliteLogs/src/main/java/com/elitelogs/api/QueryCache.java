@@ -0,0 +1,229 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.provider.LogRecord;
+import com.elitelogs.api.provider.TimeRange;
+import com.elitelogs.logging.LogQuery;
+import com.elitelogs.logging.QueryContext;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU of search results in front of the providers. Each entry keeps
+ * the write generation its category had before the query ran and is served
+ * only while that generation is still current, so any line written to the
+ * category since then retires it without a TTL. Identical searches that
+ * arrive while one is running wait for that one instead of scanning again.
+ */
+final class QueryCache {
+    private final Map<Key, Result> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private volatile int maxEntries;
+
+    QueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        synchronized (entries) {
+            trim();
+        }
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the cached result for {@code key}, joins a running search for
+     * it, or starts one through {@code loader}. The shared search runs under
+     * its own context with {@code sharedTimeoutMillis}; it is cancelled only
+     * once every waiting request has cancelled its {@code context}, and
+     * partial results are handed to the waiters but never cached.
+     */
+    CompletableFuture<Result> get(Key key, LongSupplier generation, QueryContext context, long sharedTimeoutMillis,
+                                  Function<QueryContext, CompletableFuture<List<LogRecord>>> loader) {
+        long current = generation.getAsLong();
+        synchronized (entries) {
+            Result cached = entries.get(key);
+            if (cached != null) {
+                if (cached.generation == current) {
+                    hits.incrementAndGet();
+                    return CompletableFuture.completedFuture(cached);
+                }
+                entries.remove(key);
+            }
+        }
+        Flight[] started = new Flight[1];
+        Flight flight = inFlight.compute(key, (ignored, running) -> {
+            if (running != null && running.generation == current && !running.context.isCancelled()) {
+                return running;
+            }
+            started[0] = new Flight(current, QueryContext.withTimeout(sharedTimeoutMillis));
+            return started[0];
+        });
+        flight.join(context);
+        if (started[0] != flight) {
+            coalesced.incrementAndGet();
+            return flight.future;
+        }
+        misses.incrementAndGet();
+        CompletableFuture<List<LogRecord>> pending;
+        try {
+            pending = loader.apply(flight.context);
+        } catch (RuntimeException ex) {
+            inFlight.remove(key, flight);
+            flight.future.completeExceptionally(ex);
+            return flight.future;
+        }
+        pending.whenComplete((records, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.future.completeExceptionally(error);
+                return;
+            }
+            Result result = new Result(records, flight.context.isTruncated(), flight.generation);
+            if (!result.truncated && generation.getAsLong() == flight.generation) {
+                store(key, result);
+            }
+            flight.future.complete(result);
+        });
+        return flight.future;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void store(Key key, Result result) {
+        synchronized (entries) {
+            entries.put(key, result);
+            trim();
+        }
+    }
+
+    private void trim() {
+        int limit = Math.max(0, maxEntries);
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > limit && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    static final class Key {
+        private final String source;
+        private final String category;
+        private final LogQuery query;
+        private final int limit;
+        private final Instant from;
+        private final Instant to;
+
+        Key(String source, String category, LogQuery query, int limit, TimeRange range) {
+            this.source = source;
+            this.category = category;
+            this.query = query;
+            this.limit = limit;
+            this.from = range.getFrom();
+            this.to = range.getTo();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return limit == key.limit && source.equals(key.source) && category.equals(key.category)
+                    && Objects.equals(query, key.query) && Objects.equals(from, key.from) && Objects.equals(to, key.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, category, query, limit, from, to);
+        }
+    }
+
+    static final class Result {
+        private final List<LogRecord> records;
+        private final boolean truncated;
+        private final long generation;
+
+        private Result(List<LogRecord> records, boolean truncated, long generation) {
+            this.records = records;
+            this.truncated = truncated;
+            this.generation = generation;
+        }
+
+        List<LogRecord> getRecords() {
+            return records;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    private static final class Flight {
+        private final long generation;
+        private final QueryContext context;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final AtomicInteger abandoned = new AtomicInteger();
+
+        private Flight(long generation, QueryContext context) {
+            this.generation = generation;
+            this.context = context;
+        }
+
+        private void join(QueryContext waiter) {
+            waiters.incrementAndGet();
+            waiter.onCancel(() -> {
+                if (abandoned.incrementAndGet() >= waiters.get() && !future.isDone()) {
+                    context.cancel();
+                }
+            });
+        }
+    }
+}
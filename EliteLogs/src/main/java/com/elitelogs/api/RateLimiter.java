@@ -0,0 +1,192 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.ApiSettings.RateLimitSettings;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per client IP and per API token, with separate budgets for
+ * cheap calls (status, metrics, buffer reads) and expensive ones (searches,
+ * file or database reads, new streams). The token-wide bucket is larger than
+ * a single IP's so several dashboards can share one key, but together they
+ * are still capped. Idle buckets are swept once the table grows.
+ */
+final class RateLimiter {
+    enum Tier {
+        CHEAP,
+        EXPENSIVE
+    }
+
+    private static final int SWEEP_THRESHOLD = 4096;
+    private static final long IDLE_NANOS = 10L * 60L * 1_000_000_000L;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger sweepCounter = new AtomicInteger();
+    private final AtomicLong limited = new AtomicLong();
+    private volatile RateLimitSettings settings;
+
+    RateLimiter(RateLimitSettings settings) {
+        this.settings = settings;
+    }
+
+    void update(RateLimitSettings settings) {
+        this.settings = settings;
+        buckets.clear();
+    }
+
+    boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Takes one token from the IP bucket and, when the caller presented the
+     * valid API token, from the shared token bucket as well. Both must have
+     * a token for the call to pass.
+     */
+    Decision acquire(Tier tier, String clientIp, String apiToken) {
+        RateLimitSettings current = settings;
+        double rate = tier == Tier.CHEAP ? current.getCheapPerSecond() : current.getExpensivePerSecond();
+        int burst = tier == Tier.CHEAP ? current.getCheapBurst() : current.getExpensiveBurst();
+        long now = System.nanoTime();
+        maybeSweep(now);
+        Bucket ipBucket = buckets.computeIfAbsent(tier + "|ip|" + clientIp, key -> new Bucket(burst));
+        Bucket tokenBucket = null;
+        if (apiToken != null) {
+            int multiplier = current.getTokenMultiplier();
+            tokenBucket = buckets.computeIfAbsent(tier + "|token|" + apiToken, key -> new Bucket(burst * multiplier));
+        }
+        Decision ip = ipBucket.take(now, rate, burst);
+        if (!ip.allowed) {
+            limited.incrementAndGet();
+            return ip;
+        }
+        if (tokenBucket == null) {
+            return ip;
+        }
+        int tokenBurst = burst * current.getTokenMultiplier();
+        Decision shared = tokenBucket.take(now, rate * current.getTokenMultiplier(), tokenBurst);
+        if (!shared.allowed) {
+            ipBucket.refund(burst);
+            limited.incrementAndGet();
+            return shared;
+        }
+        return shared.remaining < ip.remaining ? shared : ip;
+    }
+
+    /**
+     * Gives back the tokens an allowed {@link #acquire} took, for a call that
+     * was shed before it did any work.
+     */
+    void refund(Tier tier, String clientIp, String apiToken) {
+        RateLimitSettings current = settings;
+        int burst = tier == Tier.CHEAP ? current.getCheapBurst() : current.getExpensiveBurst();
+        Bucket ipBucket = buckets.get(tier + "|ip|" + clientIp);
+        if (ipBucket != null) {
+            ipBucket.refund(burst);
+        }
+        if (apiToken != null) {
+            Bucket tokenBucket = buckets.get(tier + "|token|" + apiToken);
+            if (tokenBucket != null) {
+                tokenBucket.refund(burst * current.getTokenMultiplier());
+            }
+        }
+    }
+
+    long getLimitedCount() {
+        return limited.get();
+    }
+
+    int getBucketCount() {
+        return buckets.size();
+    }
+
+    private void maybeSweep(long now) {
+        if (buckets.size() < SWEEP_THRESHOLD || sweepCounter.incrementAndGet() % 256 != 0) {
+            return;
+        }
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastSeen() > IDLE_NANOS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    static final class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+        private final int retryAfterSeconds;
+        private final int resetSeconds;
+
+        private Decision(boolean allowed, int limit, int remaining, int retryAfterSeconds, int resetSeconds) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.resetSeconds = resetSeconds;
+        }
+
+        boolean isAllowed() {
+            return allowed;
+        }
+
+        int getLimit() {
+            return limit;
+        }
+
+        int getRemaining() {
+            return remaining;
+        }
+
+        int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        /**
+         * Seconds until the bucket has refilled to its full burst.
+         */
+        int getResetSeconds() {
+            return resetSeconds;
+        }
+    }
+
+    static final class Bucket {
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(int burst) {
+            this.tokens = burst;
+            this.updatedAt = System.nanoTime();
+        }
+
+        synchronized Decision take(long now, double ratePerSecond, int burst) {
+            double elapsedSeconds = Math.max(0L, now - updatedAt) / 1_000_000_000.0;
+            tokens = Math.min(burst, tokens + elapsedSeconds * ratePerSecond);
+            updatedAt = now;
+            double rate = Math.max(ratePerSecond, 0.001);
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return new Decision(true, burst, (int) tokens, 0, (int) Math.ceil((burst - tokens) / rate));
+            }
+            int retryAfter = (int) Math.ceil((1.0 - tokens) / rate);
+            return new Decision(false, burst, 0, Math.max(1, retryAfter), (int) Math.ceil((burst - tokens) / rate));
+        }
+
+        /**
+         * Gives back a token taken for a call that another bucket refused,
+         * never beyond {@code burst}: the bucket may have refilled meanwhile.
+         */
+        synchronized void refund(int burst) {
+            tokens = Math.min(burst, tokens + 1.0);
+        }
+
+        synchronized long lastSeen() {
+            return updatedAt;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.ApiSettings.EndpointKey;
+import com.elitelogs.api.ApiSettings.EndpointSettings;
+import com.elitelogs.api.ApiSettings.ExecutorSettings;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Runs API exchanges on either a bounded pool with a bounded queue or, on
+ * Java 21+, virtual threads capped by a permit count. Work that does not fit
+ * is not dropped on the floor: it is handed to a single shedding thread that
+ * only answers {@code 503} with {@code Retry-After}, so the HTTP dispatcher
+ * never blocks and the client gets a clear signal to back off. Per-endpoint
+ * limits keep slow file or database searches from taking every slot, and
+ * live-tail streams get their own pool capped at {@code maxStreams}.
+ */
+final class RequestExecutor {
+    private static final ThreadLocal<Boolean> SHEDDING = new ThreadLocal<>();
+    private static final int SHED_QUEUE = 256;
+
+    private final ExecutorSettings settings;
+    private final ExecutorService requests;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService streams;
+    private final ThreadPoolExecutor streamPool;
+    private final ThreadPoolExecutor shedder;
+    private final Semaphore virtualPermits;
+    private final Semaphore streamPermits;
+    private final int maxStreams;
+    private final Map<EndpointKey, EndpointLimit> limits = new EnumMap<>(EndpointKey.class);
+    private final AtomicLong rejected = new AtomicLong();
+    private final boolean virtual;
+
+    RequestExecutor(ExecutorSettings settings, Map<EndpointKey, EndpointSettings> endpoints, int maxStreams,
+                    ThreadFactory threadFactory, Logger logger) {
+        this.settings = settings;
+        this.maxStreams = Math.max(1, maxStreams);
+        ExecutorService virtualExecutor = settings.isVirtualThreads() ? newVirtualExecutor(logger) : null;
+        this.virtual = virtualExecutor != null;
+        this.shedder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SHED_QUEUE), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        if (virtual) {
+            this.pool = null;
+            this.requests = virtualExecutor;
+            this.streamPool = null;
+            this.streams = newVirtualExecutor(logger);
+            this.virtualPermits = new Semaphore(settings.getThreads() + settings.getQueue());
+            this.streamPermits = new Semaphore(this.maxStreams);
+        } else {
+            this.pool = new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(settings.getQueue()), threadFactory, (task, executor) -> shed(task));
+            this.pool.allowCoreThreadTimeOut(true);
+            this.requests = pool;
+            this.streamPool = new ThreadPoolExecutor(0, this.maxStreams, 30L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            this.streams = streamPool;
+            this.virtualPermits = null;
+            this.streamPermits = null;
+        }
+        for (Map.Entry<EndpointKey, EndpointSettings> entry : endpoints.entrySet()) {
+            int max = entry.getValue().getMaxConcurrent();
+            if (max > 0) {
+                limits.put(entry.getKey(), new EndpointLimit(max));
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualExecutor(Logger logger) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            logger.warning("[EliteLogs] Virtual threads need Java 21+, falling back to a bounded API pool");
+            return null;
+        }
+    }
+
+    Executor executor() {
+        return requests::execute;
+    }
+
+    /**
+     * Executor for long-lived streaming responses, kept apart from the
+     * request pool so open streams never starve regular calls. Holds at most
+     * {@code maxStreams} at once; beyond that {@code execute} throws
+     * {@link RejectedExecutionException}.
+     */
+    Executor streams() {
+        if (streamPermits == null) {
+            return streams;
+        }
+        return task -> {
+            if (!streamPermits.tryAcquire()) {
+                throw new RejectedExecutionException("Too many streams");
+            }
+            try {
+                streams.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        streamPermits.release();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                streamPermits.release();
+                throw ex;
+            }
+        };
+    }
+
+    int getRetryAfterSeconds() {
+        return settings.getRetryAfterSeconds();
+    }
+
+    /**
+     * Admits an exchange for {@code key}. Returns {@code false} when it has
+     * to be shed; callers that were admitted must call {@link #exit}.
+     */
+    boolean tryEnter(EndpointKey key) {
+        if (Boolean.TRUE.equals(SHEDDING.get())) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        if (virtualPermits != null && !virtualPermits.tryAcquire()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        EndpointLimit limit = key != null ? limits.get(key) : null;
+        if (limit != null && !limit.permits.tryAcquire()) {
+            limit.rejected.incrementAndGet();
+            rejected.incrementAndGet();
+            if (virtualPermits != null) {
+                virtualPermits.release();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    void exit(EndpointKey key) {
+        EndpointLimit limit = key != null ? limits.get(key) : null;
+        if (limit != null) {
+            limit.permits.release();
+        }
+        if (virtualPermits != null) {
+            virtualPermits.release();
+        }
+    }
+
+    void shutdown() {
+        requests.shutdownNow();
+        streams.shutdownNow();
+        shedder.shutdownNow();
+    }
+
+    Map<String, Object> describe() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("mode", virtual ? "virtual" : "bounded");
+        if (pool != null) {
+            data.put("threads", pool.getMaximumPoolSize());
+            data.put("active", pool.getActiveCount());
+            data.put("queued", pool.getQueue().size());
+            data.put("queueCapacity", settings.getQueue());
+        } else {
+            int capacity = settings.getThreads() + settings.getQueue();
+            data.put("maxInFlight", capacity);
+            data.put("active", capacity - virtualPermits.availablePermits());
+        }
+        data.put("rejected", rejected.get());
+        data.put("maxStreams", maxStreams);
+        data.put("streams", streamPool != null ? streamPool.getActiveCount()
+                : maxStreams - streamPermits.availablePermits());
+        if (!limits.isEmpty()) {
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            for (Map.Entry<EndpointKey, EndpointLimit> entry : limits.entrySet()) {
+                EndpointLimit limit = entry.getValue();
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("maxConcurrent", limit.max);
+                info.put("inFlight", limit.max - limit.permits.availablePermits());
+                info.put("rejected", limit.rejected.get());
+                endpoints.put(entry.getKey().getKey(), info);
+            }
+            data.put("endpoints", endpoints);
+        }
+        return data;
+    }
+
+    private void shed(Runnable task) {
+        try {
+            shedder.execute(() -> {
+                SHEDDING.set(Boolean.TRUE);
+                try {
+                    task.run();
+                } finally {
+                    SHEDDING.remove();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // Only reachable during shutdown; the connection is dropped with the server.
+        }
+    }
+
+    private static final class EndpointLimit {
+        private final int max;
+        private final Semaphore permits;
+        private final AtomicLong rejected = new AtomicLong();
+
+        private EndpointLimit(int max) {
+            this.max = max;
+            this.permits = new Semaphore(max);
+        }
+    }
+}
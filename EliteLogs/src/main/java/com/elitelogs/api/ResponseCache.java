@@ -0,0 +1,159 @@
+package com.elitelogs.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of serialised responses for the cheap-to-poll endpoints.
+ * Each entry keeps its JSON body, a strong ETag derived from those bytes and a
+ * caller-supplied validator (for example the last session save time); an entry
+ * is rebuilt once its TTL passes, its validator changes or the cache is
+ * invalidated on reload. Inserting past {@link #MAX_ENTRIES} first drops stale
+ * entries and then the least recently used ones.
+ */
+final class ResponseCache {
+    static final int MAX_ENTRIES = 64;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long ttlMillis;
+
+    ResponseCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    Entry get(String key, long validator, Supplier<Object> builder) {
+        long now = System.currentTimeMillis();
+        long currentGeneration = generation.get();
+        Entry existing = entries.get(key);
+        if (existing != null && existing.isFresh(now, validator, currentGeneration)) {
+            hits.incrementAndGet();
+            existing.lastUsed = now;
+            return existing;
+        }
+        Entry entry = entries.compute(key, (ignored, previous) -> {
+            if (previous != null && previous.isFresh(now, validator, currentGeneration)) {
+                hits.incrementAndGet();
+                previous.lastUsed = now;
+                return previous;
+            }
+            misses.incrementAndGet();
+            String body = JsonUtil.stringify(builder.get());
+            return new Entry(body, etagFor(body), now, now + ttlMillis, validator, currentGeneration);
+        });
+        if (entries.size() > MAX_ENTRIES) {
+            evict(now, currentGeneration);
+        }
+        return entry;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private synchronized void evict(long now, long currentGeneration) {
+        entries.values().removeIf(entry -> now >= entry.expiresAt || entry.generation != currentGeneration);
+        while (entries.size() > MAX_ENTRIES) {
+            String eldest = null;
+            long eldestUse = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                if (candidate.getValue().lastUsed < eldestUse) {
+                    eldestUse = candidate.getValue().lastUsed;
+                    eldest = candidate.getKey();
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            entries.remove(eldest);
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private static String etagFor(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            StringBuilder tag = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) {
+                tag.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                tag.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return tag.append('"').toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    static final class Entry {
+        private final String body;
+        private final String etag;
+        private final long expiresAt;
+        private final long validator;
+        private final long generation;
+        private volatile long lastUsed;
+
+        private Entry(String body, String etag, long lastUsed, long expiresAt, long validator, long generation) {
+            this.body = body;
+            this.etag = etag;
+            this.lastUsed = lastUsed;
+            this.expiresAt = expiresAt;
+            this.validator = validator;
+            this.generation = generation;
+        }
+
+        String getBody() {
+            return body;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Checks an {@code If-None-Match} header against this entry's ETag.
+         */
+        boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isFresh(long now, long expectedValidator, long expectedGeneration) {
+            return now < expiresAt && validator == expectedValidator && generation == expectedGeneration;
+        }
+    }
+}
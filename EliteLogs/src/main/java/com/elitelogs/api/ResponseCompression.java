@@ -0,0 +1,179 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.ApiSettings.CompressionSettings;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Accept-Encoding negotiation for JSON responses plus the running totals
+ * reported under {@code api.compression} in the status endpoint.
+ */
+final class ResponseCompression {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private volatile CompressionSettings settings;
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    ResponseCompression(CompressionSettings settings) {
+        this.settings = settings;
+    }
+
+    void update(CompressionSettings settings) {
+        this.settings = settings;
+    }
+
+    int getMinBytes() {
+        return settings.getMinBytes();
+    }
+
+    /**
+     * Returns the encoding to use for this exchange, or {@code null} when
+     * compression is off or the client accepts neither gzip nor deflate.
+     */
+    String negotiate(HttpExchange exchange) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        return encodingFor(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    /**
+     * Picks gzip over deflate from an {@code Accept-Encoding} header,
+     * skipping codings offered with {@code q=0}.
+     */
+    static String encodingFor(String header) {
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String part : header.toLowerCase(Locale.ROOT).split(",")) {
+            String[] pieces = part.split(";");
+            String coding = pieces[0].trim();
+            if (pieces.length > 1 && isZeroQuality(pieces[1])) {
+                continue;
+            }
+            if (GZIP.equals(coding) || "x-gzip".equals(coding) || "*".equals(coding)) {
+                gzip = true;
+            } else if (DEFLATE.equals(coding)) {
+                deflate = true;
+            }
+        }
+        return gzip ? GZIP : deflate ? DEFLATE : null;
+    }
+
+    private static boolean isZeroQuality(String parameter) {
+        String trimmed = parameter.trim();
+        if (!trimmed.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(trimmed.substring(2)) <= 0.0;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Wraps {@code raw} in a compressing stream that records how many bytes
+     * actually reached the socket once it is closed.
+     */
+    OutputStream wrap(OutputStream raw, String encoding) throws IOException {
+        int level = settings.getLevel();
+        Counting counting = new Counting(raw);
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(counting, 8192) {
+                {
+                    def.setLevel(level);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    recordOut(counting.count);
+                }
+            };
+        }
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(counting, deflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+                recordOut(counting.count);
+            }
+        };
+    }
+
+    /**
+     * Compresses a body that is already complete in memory.
+     */
+    byte[] compress(byte[] data, int length, String encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 4));
+        try (OutputStream encoder = wrap(out, encoding)) {
+            encoder.write(data, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    void recordIn(long uncompressedBytes) {
+        compressedResponses.incrementAndGet();
+        bytesIn.addAndGet(uncompressedBytes);
+    }
+
+    private void recordOut(long compressedBytes) {
+        bytesOut.addAndGet(compressedBytes);
+    }
+
+    Map<String, Object> describe() {
+        CompressionSettings current = settings;
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("enabled", current.isEnabled());
+        data.put("level", current.getLevel());
+        data.put("minBytes", current.getMinBytes());
+        long in = bytesIn.get();
+        long out = bytesOut.get();
+        data.put("compressedResponses", compressedResponses.get());
+        data.put("bytesIn", in);
+        data.put("bytesOut", out);
+        data.put("bytesSaved", Math.max(0L, in - out));
+        return data;
+    }
+
+    private static final class Counting extends FilterOutputStream {
+        private long count;
+
+        private Counting(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.elitelogs.api.provider;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Running counts for an aggregate query. Providers feed it one line at a
+ * time (or pre-grouped counts when the store groups for them), so memory
+ * grows with the number of distinct groups rather than with the number of
+ * lines scanned. Time buckets are aligned to the epoch, so the same
+ * interval produces the same bucket edges from every source.
+ */
+public final class Aggregation {
+    public enum Dimension {
+        TIME("time"),
+        CATEGORY("category"),
+        EVENT_TYPE("event_type"),
+        PLAYER("player");
+
+        private final String key;
+
+        Dimension(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Dimension fromKey(String key) {
+            String normalized = key != null ? key.trim().toLowerCase(Locale.ROOT) : "";
+            for (Dimension dimension : values()) {
+                if (dimension.key.equals(normalized)) {
+                    return dimension;
+                }
+            }
+            if (normalized.equals("type") || normalized.equals("eventtype")) {
+                return EVENT_TYPE;
+            }
+            return null;
+        }
+    }
+
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<Group> ORDER = Comparator.<Group>comparingLong(group -> group.bucket)
+            .thenComparing(group -> group.category, NULLS_FIRST)
+            .thenComparing(group -> group.eventType, NULLS_FIRST)
+            .thenComparing(group -> group.player, NULLS_FIRST);
+
+    private final Set<Dimension> groupBy;
+    private final long intervalMillis;
+    private final TimeRange range;
+    private final String eventType;
+    private final int maxGroups;
+    private final Map<Group, long[]> counts = new HashMap<>();
+    private long total;
+    private boolean truncated;
+
+    /**
+     * @param intervalMillis bucket width, required when grouping by time
+     * @param eventType      only count this event type, or {@code null} for all
+     */
+    public Aggregation(Set<Dimension> groupBy, long intervalMillis, TimeRange range, String eventType, int maxGroups) {
+        this.groupBy = groupBy.isEmpty() ? EnumSet.noneOf(Dimension.class) : EnumSet.copyOf(groupBy);
+        if (this.groupBy.contains(Dimension.TIME) && intervalMillis <= 0L) {
+            throw new IllegalArgumentException("Grouping by time needs a positive interval");
+        }
+        this.intervalMillis = intervalMillis;
+        this.range = range != null ? range : TimeRange.ALL;
+        this.eventType = eventType;
+        this.maxGroups = Math.max(1, maxGroups);
+    }
+
+    public boolean groupsBy(Dimension dimension) {
+        return groupBy.contains(dimension);
+    }
+
+    public Set<Dimension> getGroupBy() {
+        return Collections.unmodifiableSet(groupBy);
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public TimeRange getRange() {
+        return range;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public int getMaxGroups() {
+        return maxGroups;
+    }
+
+    /**
+     * Counts one line if it falls inside the range and matches the event
+     * type filter.
+     */
+    public void add(String category, long timestampMillis, String lineEventType, UUID player) {
+        if (!range.contains(timestampMillis)) {
+            return;
+        }
+        if (eventType != null && !eventType.equals(lineEventType)) {
+            return;
+        }
+        long bucket = groupBy.contains(Dimension.TIME) ? Math.floorDiv(timestampMillis, intervalMillis) * intervalMillis : NO_BUCKET;
+        count(category, bucket, lineEventType, player, 1L);
+    }
+
+    /**
+     * Adds a count that was already grouped and filtered by the store.
+     *
+     * @param bucketStartMillis start of the time bucket; ignored unless grouping by time
+     */
+    public void addGroup(String category, long bucketStartMillis, String groupEventType, UUID player, long count) {
+        if (count > 0L) {
+            count(category, groupBy.contains(Dimension.TIME) ? bucketStartMillis : NO_BUCKET, groupEventType, player, count);
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getGroupCount() {
+        return counts.size();
+    }
+
+    /**
+     * Whether some groups were dropped because {@code maxGroups} was reached.
+     * Their lines still count towards {@link #getTotal()}.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public List<Map<String, Object>> toRecords() {
+        List<Map.Entry<Group, long[]>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.comparingByKey(ORDER));
+        List<Map<String, Object>> records = new ArrayList<>(entries.size());
+        for (Map.Entry<Group, long[]> entry : entries) {
+            Group group = entry.getKey();
+            Map<String, Object> record = new LinkedHashMap<>();
+            if (groupBy.contains(Dimension.TIME)) {
+                record.put("bucket", Instant.ofEpochMilli(group.bucket).toString());
+            }
+            if (groupBy.contains(Dimension.CATEGORY)) {
+                record.put("category", group.category);
+            }
+            if (groupBy.contains(Dimension.EVENT_TYPE)) {
+                record.put("eventType", group.eventType);
+            }
+            if (groupBy.contains(Dimension.PLAYER)) {
+                record.put("playerUuid", group.player);
+            }
+            record.put("count", entry.getValue()[0]);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private void count(String category, long bucket, String lineEventType, UUID player, long count) {
+        total += count;
+        Group group = new Group(
+                bucket,
+                groupBy.contains(Dimension.CATEGORY) ? category : null,
+                groupBy.contains(Dimension.EVENT_TYPE) ? lineEventType : null,
+                groupBy.contains(Dimension.PLAYER) && player != null ? player.toString() : null);
+        long[] slot = counts.get(group);
+        if (slot == null) {
+            if (counts.size() >= maxGroups) {
+                truncated = true;
+                return;
+            }
+            slot = new long[1];
+            counts.put(group, slot);
+        }
+        slot[0] += count;
+    }
+
+    private static final class Group {
+        private final long bucket;
+        private final String category;
+        private final String eventType;
+        private final String player;
+
+        private Group(long bucket, String category, String eventType, String player) {
+            this.bucket = bucket;
+            this.category = category;
+            this.eventType = eventType;
+            this.player = player;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Group)) {
+                return false;
+            }
+            Group that = (Group) other;
+            return bucket == that.bucket
+                    && Objects.equals(category, that.category)
+                    && Objects.equals(eventType, that.eventType)
+                    && Objects.equals(player, that.player);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucket, category, eventType, player);
+        }
+    }
+}
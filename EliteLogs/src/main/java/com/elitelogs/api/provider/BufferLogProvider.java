@@ -1,24 +1,21 @@
 package com.elitelogs.api.provider;
 
 import com.elitelogs.api.ApiLogBuffer;
+import com.elitelogs.logging.LogLines;
+import com.elitelogs.logging.LogQuery;
 
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 public final class BufferLogProvider implements LogDataProvider {
     private final ApiLogBuffer buffer;
+    private final ZoneId zoneId = ZoneId.systemDefault();
 
     public BufferLogProvider(ApiLogBuffer buffer) {
         this.buffer = buffer;
@@ -46,90 +43,119 @@ public final class BufferLogProvider implements LogDataProvider {
     }
 
     @Override
-    public List<Map<String, Object>> fetch(String category, int limit) {
-        List<String> lines = buffer.getRecent(category, limit);
-        if (lines.isEmpty()) {
-            return Collections.emptyList();
-        }
-        List<Map<String, Object>> records = new ArrayList<>(lines.size());
-        for (String line : lines) {
-            records.add(toRecord(category, line));
-        }
-        return records;
+    public List<LogRecord> fetch(String category, int limit) {
+        return toRecords(category, buffer.getRecent(category, limit));
     }
 
     @Override
-    public List<Map<String, Object>> search(String category, String query, int limit) {
-        String needle = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
-        if (needle.isEmpty()) {
-            return fetch(category, limit);
+    public LogPage fetchPage(String category, String after, TimeRange range, int limit) {
+        if (after == null && range.getFrom() == null) {
+            List<ApiLogBuffer.Entry> entries = range.getTo() == null
+                    ? buffer.getRecent(category, limit)
+                    : buffer.getBefore(category, Long.MIN_VALUE, range.toMillis(), limit);
+            long cursor = entries.isEmpty()
+                    ? buffer.getLatestSequence(category)
+                    : entries.get(entries.size() - 1).getSequence();
+            return new LogPage(toRecords(category, entries), Long.toString(cursor), false);
         }
-        List<String> lines = buffer.getRecent(category, buffer.getCapacity());
-        if (lines.isEmpty()) {
-            return Collections.emptyList();
+        long afterSequence = after != null ? parseCursor(after) : Long.MIN_VALUE;
+        List<ApiLogBuffer.Entry> entries = buffer.getRange(category, afterSequence, range.fromMillis(), range.toMillis(), limit + 1);
+        boolean hasMore = entries.size() > limit;
+        if (hasMore) {
+            entries = entries.subList(0, limit);
         }
-        List<Map<String, Object>> matches = new ArrayList<>();
-        for (int i = lines.size() - 1; i >= 0 && matches.size() < limit; i--) {
-            String line = lines.get(i);
-            if (line != null && line.toLowerCase(Locale.ROOT).contains(needle)) {
-                matches.add(toRecord(category, line));
-            }
+        long cursor;
+        if (!entries.isEmpty()) {
+            cursor = entries.get(entries.size() - 1).getSequence();
+        } else if (after != null) {
+            cursor = afterSequence;
+        } else {
+            cursor = buffer.getLatestSequence(category);
         }
-        Collections.reverse(matches);
-        return matches;
+        return new LogPage(toRecords(category, entries), Long.toString(cursor), hasMore);
     }
 
-    private Map<String, Object> toRecord(String category, String line) {
-        Map<String, Object> record = new LinkedHashMap<>();
-        record.put("category", category);
-        record.put("source", getName());
-        record.put("line", line);
-        Instant parsed = parseTimestamp(line);
-        if (parsed != null) {
-            record.put("occurredAt", parsed.toString());
-        }
-        record.put("message", stripTimestamp(line));
-        return record;
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, int limit) {
+        return search(category, query, TimeRange.ALL, limit);
     }
 
-    private String stripTimestamp(String line) {
-        if (line == null) {
-            return "";
-        }
-        int close = line.indexOf(']');
-        if (line.startsWith("[") && close > 0) {
-            return line.substring(close + 1).trim();
+    /**
+     * Looks the query's required terms up in the token index and evaluates
+     * the query on the candidates, so plain text is matched as one phrase.
+     */
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit) {
+        if (query == null) {
+            return range.isUnbounded()
+                    ? fetch(category, limit)
+                    : toRecords(category, buffer.getBefore(category, range.fromMillis(), range.toMillis(), limit));
         }
-        return line;
+        return toRecords(category, buffer.search(category, query.requiredTerms(),
+                entry -> query.matches(entry.getLine(), secondOfDay(entry.getTimestampMillis()), category),
+                range.fromMillis(), range.toMillis(), limit));
+    }
+
+    @Override
+    public boolean aggregate(String category, Aggregation into) {
+        boolean typed = into.groupsBy(Aggregation.Dimension.EVENT_TYPE) || into.getEventType() != null;
+        TimeRange range = into.getRange();
+        buffer.forEachInRange(category, range.fromMillis(), range.toMillis(), entry -> into.add(
+                category,
+                entry.getTimestampMillis(),
+                typed ? LogLines.eventType(entry.getMessage(), category) : null,
+                entry.getPlayerUuid()));
+        return true;
     }
 
-    private Instant parseTimestamp(String line) {
-        if (line == null) {
-            return null;
+    @Override
+    public List<PlayerTimeline.Entry> playerTimeline(UUID player, String category, TimeRange range,
+                                                     PlayerTimeline.Position after, int limit) {
+        long fromMillis = after != null ? Math.max(range.fromMillis(), after.getMillis()) : range.fromMillis();
+        List<ApiLogBuffer.Entry> matches = new ArrayList<>();
+        buffer.forEachInRange(category, fromMillis, range.toMillis(), entry -> {
+            if (player.equals(entry.getPlayerUuid())
+                    && (after == null || after.precedes(entry.getTimestampMillis() * 1000L, category, entry.getSequence()))) {
+                matches.add(entry);
+            }
+        });
+        matches.sort(Comparator.comparingLong(ApiLogBuffer.Entry::getTimestampMillis)
+                .thenComparingLong(ApiLogBuffer.Entry::getSequence));
+        List<PlayerTimeline.Entry> entries = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && entries.size() < limit; i++) {
+            ApiLogBuffer.Entry entry = matches.get(i);
+            entries.add(new PlayerTimeline.Entry(
+                    new PlayerTimeline.Position(entry.getTimestampMillis() * 1000L, category, entry.getSequence()),
+                    toRecord(category, entry)));
         }
-        String trimmed = line.trim();
-        if (!trimmed.startsWith("[")) {
-            return null;
+        return entries;
+    }
+
+    private long parseCursor(String after) {
+        try {
+            return Long.parseLong(after.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid buffer cursor: " + after);
         }
-        int closing = trimmed.indexOf(']');
-        if (closing <= 1) {
-            return null;
+    }
+
+    private int secondOfDay(long timestampMillis) {
+        return Instant.ofEpochMilli(timestampMillis).atZone(zoneId).toLocalTime().toSecondOfDay();
+    }
+
+    private List<LogRecord> toRecords(String category, List<ApiLogBuffer.Entry> entries) {
+        if (entries.isEmpty()) {
+            return Collections.emptyList();
         }
-        String payload = trimmed.substring(1, closing);
-        try {
-            if (payload.length() == 8) { // HH:mm:ss
-                LocalTime time = LocalTime.parse(payload, DateTimeFormatter.ofPattern("HH:mm:ss", Locale.ROOT));
-                return time.atDate(LocalDate.now()).atZone(ZoneId.systemDefault()).toInstant();
-            }
-            if (payload.length() >= 19 && payload.contains("T")) {
-                return Instant.parse(payload);
-            }
-            if (payload.length() >= 19 && payload.contains(" ")) {
-                LocalDateTime dateTime = LocalDateTime.parse(payload, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.ROOT));
-                return dateTime.atZone(ZoneId.systemDefault()).toInstant();
-            }
-        } catch (DateTimeParseException ignored) {
+        List<LogRecord> records = new ArrayList<>(entries.size());
+        for (ApiLogBuffer.Entry entry : entries) {
+            records.add(toRecord(category, entry));
         }
-        return null;
+        return records;
+    }
+
+    private LogRecord toRecord(String category, ApiLogBuffer.Entry entry) {
+        return LogRecord.buffered(category, getName(), entry.getSequence(), entry.getLine(),
+                entry.getTimestampMillis(), entry.getMessage(), entry.getPlayerUuid(), entry.getEncodedJson());
     }
 }
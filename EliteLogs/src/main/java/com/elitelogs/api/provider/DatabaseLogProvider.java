@@ -1,18 +1,35 @@
 package com.elitelogs.api.provider;
 
 import com.elitelogs.logging.DatabaseLogWriter;
+import com.elitelogs.logging.LogQuery;
 import com.elitelogs.logging.LogRouter;
+import com.elitelogs.logging.QueryContext;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public final class DatabaseLogProvider implements LogDataProvider {
+    private static final int TIMELINE_PARALLELISM = 4;
+
     private final LogRouter router;
+    /**
+     * Category tables read concurrently for a timeline. Work that does not
+     * fit, or arrives after {@link #close()}, runs on the calling thread.
+     */
+    private final ExecutorService timelineQueries = new ThreadPoolExecutor(0, TIMELINE_PARALLELISM,
+            30L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "EliteLogs-Timeline");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, pool) -> runnable.run());
 
     public DatabaseLogProvider(LogRouter router) {
         this.router = router;
@@ -23,6 +40,11 @@ public final class DatabaseLogProvider implements LogDataProvider {
         return "database";
     }
 
+    @Override
+    public void close() {
+        timelineQueries.shutdown();
+    }
+
     @Override
     public boolean isAvailable() {
         return router.getDatabaseWriter() != null;
@@ -38,7 +60,7 @@ public final class DatabaseLogProvider implements LogDataProvider {
     }
 
     @Override
-    public List<Map<String, Object>> fetch(String category, int limit) {
+    public List<LogRecord> fetch(String category, int limit) {
         DatabaseLogWriter writer = router.getDatabaseWriter();
         if (writer == null) {
             return Collections.emptyList();
@@ -48,44 +70,167 @@ public final class DatabaseLogProvider implements LogDataProvider {
     }
 
     @Override
-    public List<Map<String, Object>> search(String category, String query, int limit) {
+    public LogPage fetchPage(String category, String after, TimeRange range, int limit) {
+        return fetchPage(category, after, range, limit, QueryContext.none());
+    }
+
+    /**
+     * Cancelling {@code context} cancels the running statement; the page then
+     * comes back empty with the incoming cursor, so a retry resumes cleanly.
+     */
+    @Override
+    public LogPage fetchPage(String category, String after, TimeRange range, int limit, QueryContext context) {
+        DatabaseLogWriter writer = router.getDatabaseWriter();
+        if (writer == null) {
+            return new LogPage(Collections.emptyList(), after, false);
+        }
+        if (after == null && range.getFrom() == null) {
+            List<DatabaseLogWriter.DbRecord> rows = writer.fetchRecentRecords(category, null, range.getTo(), limit, context);
+            if (context.isTruncated()) {
+                return new LogPage(Collections.emptyList(), null, true);
+            }
+            long cursor = 0L;
+            for (DatabaseLogWriter.DbRecord row : rows) {
+                cursor = Math.max(cursor, row.getId());
+            }
+            return new LogPage(toRecords(rows), Long.toString(cursor), false);
+        }
+        long afterId = 0L;
+        if (after != null) {
+            try {
+                afterId = Long.parseLong(after.trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid database cursor: " + after);
+            }
+        }
+        List<DatabaseLogWriter.DbRecord> rows = writer.fetchRecordsAfter(category, afterId, range.getFrom(), range.getTo(),
+                limit + 1, context);
+        return pageAfter(toRecords(rows), afterId, limit, context.isTruncated());
+    }
+
+    /**
+     * Page of up to {@code limit} of {@code records}, which were read with a
+     * limit of {@code limit + 1} to tell whether more follow. A truncated read
+     * comes back empty with the incoming cursor.
+     */
+    static LogPage pageAfter(List<LogRecord> records, long afterId, int limit, boolean truncated) {
+        if (truncated) {
+            return new LogPage(Collections.emptyList(), Long.toString(afterId), true);
+        }
+        boolean hasMore = records.size() > limit;
+        if (hasMore) {
+            records = records.subList(0, limit);
+        }
+        long cursor = records.isEmpty() ? afterId : records.get(records.size() - 1).getId();
+        return new LogPage(records, Long.toString(cursor), hasMore);
+    }
+
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, int limit) {
+        return search(category, query, TimeRange.ALL, limit);
+    }
+
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit) {
+        return search(category, query, range, limit, QueryContext.none());
+    }
+
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit,
+                                  QueryContext context) {
         DatabaseLogWriter writer = router.getDatabaseWriter();
         if (writer == null) {
             return Collections.emptyList();
         }
-        List<DatabaseLogWriter.DbRecord> rows = writer.searchRecords(category, query, limit);
+        List<DatabaseLogWriter.DbRecord> rows = writer.searchRecords(category, query, range.getFrom(), range.getTo(),
+                limit, context);
         return toRecords(rows);
     }
 
-    private List<Map<String, Object>> toRecords(List<DatabaseLogWriter.DbRecord> rows) {
+    @Override
+    public boolean aggregate(String category, Aggregation into) {
+        return aggregate(category, into, QueryContext.none());
+    }
+
+    @Override
+    public boolean aggregate(String category, Aggregation into, QueryContext context) {
+        DatabaseLogWriter writer = router.getDatabaseWriter();
+        if (writer == null) {
+            return false;
+        }
+        long bucketSeconds = into.groupsBy(Aggregation.Dimension.TIME) ? into.getIntervalMillis() / 1000L : 0L;
+        TimeRange range = into.getRange();
+        List<DatabaseLogWriter.DbGroup> groups = writer.countGroups(category, bucketSeconds,
+                into.groupsBy(Aggregation.Dimension.EVENT_TYPE), into.groupsBy(Aggregation.Dimension.PLAYER),
+                into.getEventType(), range.getFrom(), range.getTo(), into.getMaxGroups(), context);
+        for (DatabaseLogWriter.DbGroup group : groups) {
+            into.addGroup(category, group.getBucketStartMillis(), group.getEventType(), group.getPlayerUuid(), group.getCount());
+        }
+        return true;
+    }
+
+    @Override
+    public List<PlayerTimeline.Entry> playerTimeline(UUID player, String category, TimeRange range,
+                                                     PlayerTimeline.Position after, int limit) {
+        return playerTimeline(player, category, range, after, limit, QueryContext.none());
+    }
+
+    private List<PlayerTimeline.Entry> playerTimeline(UUID player, String category, TimeRange range,
+                                                      PlayerTimeline.Position after, int limit, QueryContext context) {
+        DatabaseLogWriter writer = router.getDatabaseWriter();
+        if (writer == null) {
+            return Collections.emptyList();
+        }
+        Instant afterAt = null;
+        long afterId = 0L;
+        if (after != null) {
+            afterAt = Instant.ofEpochSecond(Math.floorDiv(after.getMicros(), 1_000_000L),
+                    Math.floorMod(after.getMicros(), 1_000_000L) * 1_000L);
+            int order = category.compareTo(after.getCategory());
+            afterId = order < 0 ? Long.MAX_VALUE : order > 0 ? Long.MIN_VALUE : after.getOffset();
+        }
+        List<DatabaseLogWriter.DbRecord> rows = writer.fetchPlayerRecords(category, player,
+                range.getFrom(), range.getTo(), afterAt, afterId, limit, context);
+        List<LogRecord> records = toRecords(rows);
+        List<PlayerTimeline.Entry> entries = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            DatabaseLogWriter.DbRecord row = rows.get(i);
+            Instant occurred = row.getOccurredAt() != null ? row.getOccurredAt() : Instant.EPOCH;
+            long micros = occurred.getEpochSecond() * 1_000_000L + occurred.getNano() / 1_000L;
+            entries.add(new PlayerTimeline.Entry(new PlayerTimeline.Position(micros, category, row.getId()), records.get(i)));
+        }
+        return entries;
+    }
+
+    /**
+     * Every category lives in its own table, so the per-category queries run
+     * side by side on the connection pool instead of one after another.
+     */
+    @Override
+    public List<List<PlayerTimeline.Entry>> playerTimelines(UUID player, List<String> categories, TimeRange range,
+                                                            PlayerTimeline.Position after, int limit,
+                                                            QueryContext context) {
+        List<CompletableFuture<List<PlayerTimeline.Entry>>> pending = new ArrayList<>(categories.size());
+        for (String category : categories) {
+            pending.add(CompletableFuture.supplyAsync(
+                    () -> playerTimeline(player, category, range, after, limit, context), timelineQueries));
+        }
+        List<List<PlayerTimeline.Entry>> streams = new ArrayList<>(pending.size());
+        for (CompletableFuture<List<PlayerTimeline.Entry>> future : pending) {
+            streams.add(future.join());
+        }
+        return streams;
+    }
+
+    private List<LogRecord> toRecords(List<DatabaseLogWriter.DbRecord> rows) {
         if (rows == null || rows.isEmpty()) {
             return Collections.emptyList();
         }
-        List<Map<String, Object>> records = new ArrayList<>(rows.size());
+        List<LogRecord> records = new ArrayList<>(rows.size());
         for (DatabaseLogWriter.DbRecord row : rows) {
-            Map<String, Object> record = new LinkedHashMap<>();
-            record.put("category", row.getCategory());
-            record.put("source", getName());
-            Instant occurred = row.getOccurredAt();
-            if (occurred != null) {
-                record.put("occurredAt", occurred.toString());
-            }
-            record.put("eventType", row.getEventType());
-            record.put("message", row.getMessage());
-            UUID uuid = row.getPlayerUuid();
-            if (uuid != null) {
-                record.put("playerUuid", uuid.toString());
-            }
-            if (row.getPlayerName() != null) {
-                record.put("playerName", row.getPlayerName());
-            }
-            if (row.getTagsJson() != null) {
-                record.put("tags", row.getTagsJson());
-            }
-            if (row.getContextJson() != null) {
-                record.put("context", row.getContextJson());
-            }
-            records.add(record);
+            records.add(LogRecord.stored(row.getCategory(), getName(), row.getId(), row.getOccurredAt(),
+                    row.getEventType(), row.getMessage(), row.getPlayerUuid(), row.getPlayerName(),
+                    row.getTagsJson(), row.getContextJson()));
         }
         return records;
     }
@@ -1,30 +1,103 @@
 package com.elitelogs.api.provider;
 
+import com.elitelogs.logging.FileCatalog;
+import com.elitelogs.logging.LogLines;
+import com.elitelogs.logging.LogQuery;
 import com.elitelogs.logging.LogRouter;
+import com.elitelogs.logging.QueryContext;
+import com.elitelogs.logging.TimeIndex;
+import com.elitelogs.logging.TokenFilter;
 import org.bukkit.plugin.Plugin;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 public final class FileLogProvider implements LogDataProvider {
     private final Plugin plugin;
     private final LogRouter router;
+    private static final Pattern FILE_DATE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern LINE_TIME = Pattern.compile("^\\[(\\d{2}:\\d{2}:\\d{2})]");
+    private static final int READ_CHUNK = 8192;
+    private static final int PROBE_CHUNK = 4096;
+    private static final int SEEK_WINDOW = 64 * 1024;
+    private static final int STAMP_LENGTH = "[HH:mm:ss]".length();
+    private static final long CANCEL_CHECK_LINES = 1023L;
+    private static final int TAIL_BLOCK = 64 * 1024;
+
+    private static final int SEARCH_PARALLELISM = 4;
+    private static final int CACHED_FILTERS = 64;
+
+    /**
+     * Days searched in parallel. Work that does not fit, or arrives after
+     * {@link #close()}, runs on the calling thread so a search never hangs.
+     */
+    private final ExecutorService fileSearches = new ThreadPoolExecutor(0, SEARCH_PARALLELISM,
+            30L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "EliteLogs-Search");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, pool) -> runnable.run());
+    private final ExecutorService indexBuilds = new ThreadPoolExecutor(0, 1,
+            30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "EliteLogs-Index");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private final Set<String> indexing = ConcurrentHashMap.newKeySet();
+    private final Map<String, TokenFilter> tokenFilters = new LinkedHashMap<String, TokenFilter>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenFilter> eldest) {
+            return size() > CACHED_FILTERS;
+        }
+    };
     private final File root;
+    private final FileCatalog catalog;
+    private final File archiveRoot;
+    private final ZoneId zoneId = ZoneId.systemDefault();
 
     public FileLogProvider(Plugin plugin, LogRouter router, String rootPath) {
         this.plugin = plugin;
@@ -37,6 +110,9 @@ public final class FileLogProvider implements LogDataProvider {
             candidate = new File(plugin.getDataFolder(), rootPath);
         }
         this.root = candidate;
+        FileCatalog shared = router.getFileCatalog();
+        this.catalog = shared != null && shared.getRoot().equals(candidate.getAbsoluteFile()) ? shared : null;
+        this.archiveRoot = new File(plugin.getDataFolder(), "archive");
     }
 
     @Override
@@ -44,6 +120,17 @@ public final class FileLogProvider implements LogDataProvider {
         return "files";
     }
 
+    /**
+     * Stops the search and index threads. Searches still running finish on
+     * their own threads and pending index builds are dropped; the sidecars
+     * are rebuilt the next time a window needs them.
+     */
+    @Override
+    public void close() {
+        fileSearches.shutdown();
+        indexBuilds.shutdownNow();
+    }
+
     @Override
     public boolean isAvailable() {
         return root.exists() && root.isDirectory();
@@ -53,7 +140,9 @@ public final class FileLogProvider implements LogDataProvider {
     public List<String> listCategories() {
         Set<String> categories = new LinkedHashSet<>();
         categories.addAll(router.getActiveCategories());
-        if (isAvailable()) {
+        if (catalog != null) {
+            categories.addAll(catalog.directories());
+        } else if (isAvailable()) {
             File[] children = root.listFiles(File::isDirectory);
             if (children != null) {
                 for (File child : children) {
@@ -67,111 +156,1093 @@ public final class FileLogProvider implements LogDataProvider {
     }
 
     @Override
-    public List<Map<String, Object>> fetch(String category, int limit) {
+    public List<LogRecord> fetch(String category, int limit) {
         File target = locateLatestFile(category);
         if (target == null) {
             return Collections.emptyList();
         }
-        List<String> lines = tail(target, limit);
-        if (lines.isEmpty()) {
-            return Collections.emptyList();
+        return toRecords(category, target, tail(target, limit, 0L, target.length()));
+    }
+
+    @Override
+    public LogPage fetchPage(String category, String after, TimeRange range, int limit) {
+        return fetchPage(category, after, range, limit, QueryContext.none());
+    }
+
+    /**
+     * Stops between files and between read blocks once {@code context} is
+     * cancelled. The page then ends with {@code hasMore} set and a cursor at
+     * the first unread line, so the caller can pick up where the scan stopped.
+     */
+    @Override
+    public LogPage fetchPage(String category, String after, TimeRange range, int limit, QueryContext context) {
+        if (after == null && range.getFrom() == null) {
+            return range.getTo() == null ? latestPage(category, limit) : pageBefore(category, range, limit, context);
         }
-        List<Map<String, Object>> records = new ArrayList<>(lines.size());
-        for (String line : lines) {
-            Map<String, Object> record = new LinkedHashMap<>();
-            record.put("category", category);
-            record.put("source", getName());
-            record.put("file", target.getName());
-            record.put("line", line);
-            record.put("message", line);
-            records.add(record);
+        File[] files = listLogFiles(category);
+        if (files == null || files.length == 0) {
+            return new LogPage(Collections.emptyList(), after, false);
         }
-        return records;
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        String startFile = null;
+        long startOffset = 0L;
+        if (after != null) {
+            int separator = after.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid file cursor: " + after);
+            }
+            startFile = after.substring(0, separator);
+            try {
+                startOffset = Long.parseLong(after.substring(separator + 1));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid file cursor: " + after);
+            }
+        }
+        List<LogRecord> records = new ArrayList<>();
+        String cursor = after;
+        for (File file : files) {
+            if (context.isCancelled()) {
+                context.markTruncated();
+                return new LogPage(records, cursor, true);
+            }
+            LocalDate day = fileDate(file);
+            long offset = 0L;
+            if (startFile != null) {
+                int order = file.getName().compareTo(startFile);
+                if (order < 0) {
+                    continue;
+                }
+                if (order == 0) {
+                    // A shorter file than the cursor means it was rotated or truncated.
+                    offset = startOffset <= file.length() ? startOffset : 0L;
+                }
+            }
+            if (offset == 0L) {
+                if (startsAfter(day, range)) {
+                    break;
+                }
+                if (!overlaps(file, day, range)) {
+                    continue;
+                }
+                if (startFile == null) {
+                    offset = seek(file, day, range.getFrom());
+                }
+            }
+            ForwardRead read = readForward(file, offset, range, day, limit - records.size(), context);
+            for (String line : read.lines) {
+                records.add(toRecord(category, file, line));
+            }
+            cursor = cursor(file, read.endOffset);
+            if (read.hasMore) {
+                return new LogPage(records, cursor, true);
+            }
+            if (read.reachedEnd) {
+                break;
+            }
+        }
+        return new LogPage(records, cursor, false);
+    }
+
+    private LogPage latestPage(String category, int limit) {
+        File target = locateLatestFile(category);
+        if (target == null) {
+            return new LogPage(Collections.emptyList(), null, false);
+        }
+        long end = target.length();
+        List<LogRecord> records = toRecords(category, target, tail(target, limit, 0L, end));
+        return new LogPage(records, cursor(target, end), false);
+    }
+
+    /**
+     * Newest {@code limit} lines before the range end. Daily files are walked
+     * newest first and only the file for the end day is searched for the
+     * cut-off offset; earlier files are tailed from their end.
+     */
+    private LogPage pageBefore(String category, TimeRange range, int limit, QueryContext context) {
+        File[] files = listLogFiles(category);
+        if (files == null || files.length == 0) {
+            return new LogPage(Collections.emptyList(), null, false);
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName).reversed());
+        List<List<LogRecord>> chunks = new ArrayList<>();
+        int remaining = limit;
+        String cursor = null;
+        for (File file : files) {
+            if (context.isCancelled()) {
+                context.markTruncated();
+                break;
+            }
+            LocalDate day = fileDate(file);
+            if (!overlaps(file, day, range)) {
+                continue;
+            }
+            long end = seekEnd(file, day, range.getTo());
+            if (cursor == null) {
+                cursor = cursor(file, end);
+            }
+            List<String> lines = tail(file, remaining, 0L, end);
+            chunks.add(toRecords(category, file, lines));
+            remaining -= lines.size();
+            if (remaining <= 0) {
+                break;
+            }
+        }
+        List<LogRecord> records = new ArrayList<>(limit - Math.max(0, remaining));
+        for (int i = chunks.size() - 1; i >= 0; i--) {
+            records.addAll(chunks.get(i));
+        }
+        return new LogPage(records, cursor, false);
+    }
+
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, int limit) {
+        return search(category, query, TimeRange.ALL, limit, QueryContext.none());
     }
 
     @Override
-    public List<Map<String, Object>> search(String category, String query, int limit) {
-        String needle = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
-        if (needle.isEmpty()) {
+    public List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit) {
+        return search(category, query, range, limit, QueryContext.none());
+    }
+
+    /**
+     * Searches the whole tree of the category: the daily files, the daily
+     * files of its archive (read through gzip without unpacking them) and,
+     * for days whose daily file is gone, the per-player files, which repeat
+     * the daily file's lines. Days are searched {@link #SEARCH_PARALLELISM}
+     * at a time in time order and the search stops at the first day that
+     * fills the limit. Finished files whose token filter rules the query out
+     * are not opened, and the query is evaluated on every line read. With a
+     * range start the earliest matches from it are returned, otherwise the
+     * newest; either way oldest first.
+     */
+    @Override
+    public List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit,
+                                  QueryContext context) {
+        if (query == null && range.isUnbounded()) {
             return fetch(category, limit);
         }
-        File target = locateLatestFile(category);
-        if (target == null) {
+        boolean newestFirst = range.getFrom() == null;
+        List<List<SearchFile>> days = searchDays(category, range, newestFirst);
+        if (days.isEmpty() || limit <= 0) {
             return Collections.emptyList();
         }
-        List<Map<String, Object>> matches = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(target, StandardCharsets.UTF_8))) {
+        AtomicBoolean stop = new AtomicBoolean();
+        ArrayDeque<CompletableFuture<List<LogRecord>>> window = new ArrayDeque<>();
+        List<List<LogRecord>> chunks = new ArrayList<>();
+        int found = 0;
+        int next = 0;
+        try {
+            while (found < limit) {
+                while (window.size() < SEARCH_PARALLELISM && next < days.size()) {
+                    List<SearchFile> day = days.get(next++);
+                    window.add(CompletableFuture.supplyAsync(() -> searchDay(category, day, range, query, limit,
+                            newestFirst, stop, context), fileSearches));
+                }
+                if (window.isEmpty()) {
+                    break;
+                }
+                List<LogRecord> matches = window.poll().join();
+                chunks.add(matches);
+                found += matches.size();
+                if (context.isCancelled()) {
+                    context.markTruncated();
+                    break;
+                }
+            }
+        } finally {
+            stop.set(true);
+        }
+        List<LogRecord> records = new ArrayList<>(Math.min(found, limit));
+        if (!newestFirst) {
+            for (List<LogRecord> chunk : chunks) {
+                records.addAll(chunk.subList(0, Math.min(chunk.size(), limit - records.size())));
+            }
+            return records;
+        }
+        int remaining = limit;
+        int last = -1;
+        while (remaining > 0 && last + 1 < chunks.size()) {
+            remaining -= chunks.get(++last).size();
+        }
+        for (int i = last; i >= 0; i--) {
+            List<LogRecord> chunk = chunks.get(i);
+            records.addAll(i == last && remaining < 0 ? chunk.subList(-remaining, chunk.size()) : chunk);
+        }
+        return records;
+    }
+
+    /**
+     * The files to search grouped by day, in search order. A daily file is
+     * taken from the archive only when it is no longer in the log folder, and
+     * per-player files only for days without a daily file. Files without a
+     * date in their name are placed on the day they were last written.
+     */
+    private List<List<SearchFile>> searchDays(String category, TimeRange range, boolean newestFirst) {
+        if (category == null || category.trim().isEmpty() || !isAvailable()) {
+            return Collections.emptyList();
+        }
+        TreeMap<LocalDate, List<SearchFile>> days = new TreeMap<>();
+        File folder = new File(root, category);
+        File archived = new File(archiveRoot, category);
+        Set<String> live = new HashSet<>();
+        File[] files = listLogFiles(category);
+        if (files != null) {
+            for (File file : files) {
+                live.add(file.getName());
+                addSearchFile(days, file, file.getName(), false, range);
+            }
+        }
+        File[] packed = archived.listFiles(file -> file.isFile() && file.getName().endsWith(".gz"));
+        if (packed != null) {
+            for (File file : packed) {
+                String name = file.getName().substring(0, file.getName().length() - ".gz".length());
+                if (!live.contains(name)) {
+                    addSearchFile(days, file, file.getName(), true, range);
+                }
+            }
+        }
+        Set<LocalDate> covered = new HashSet<>(days.keySet());
+        boolean playersCategory = "players".equals(category);
+        File players = playersCategory ? folder : new File(folder, "players");
+        File archivedPlayers = playersCategory ? archived : new File(archived, "players");
+        String prefix = playersCategory ? "" : "players/";
+        Map<String, File> playerFiles = new TreeMap<>();
+        collectPlayerFiles(players, ".log", playerFiles);
+        collectPlayerFiles(archivedPlayers, ".log.gz", playerFiles);
+        for (Map.Entry<String, File> entry : playerFiles.entrySet()) {
+            File file = entry.getValue();
+            LocalDate day = fileDate(file);
+            if (day != null && !covered.contains(day)) {
+                addSearchFile(days, file, prefix + entry.getKey(), file.getName().endsWith(".gz"), range);
+            }
+        }
+        return new ArrayList<>(newestFirst ? days.descendingMap().values() : days.values());
+    }
+
+    /**
+     * Adds the per-player files under {@code parent}, keyed by their path
+     * without the archive suffix so a live file hides its archived copy.
+     */
+    private void collectPlayerFiles(File parent, String extension, Map<String, File> into) {
+        File[] folders = parent.listFiles(File::isDirectory);
+        if (folders == null) {
+            return;
+        }
+        for (File folder : folders) {
+            File[] files = folder.listFiles(file -> file.isFile() && file.getName().endsWith(extension));
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(".gz")) {
+                    name = name.substring(0, name.length() - ".gz".length());
+                }
+                into.putIfAbsent(folder.getName() + "/" + name, file);
+            }
+        }
+    }
+
+    private void addSearchFile(Map<LocalDate, List<SearchFile>> days, File file, String label, boolean gzip,
+                               TimeRange range) {
+        LocalDate day = fileDate(file);
+        if (!overlaps(file, day, range)) {
+            return;
+        }
+        LocalDate key = day != null ? day : Instant.ofEpochMilli(file.lastModified()).atZone(zoneId).toLocalDate();
+        days.computeIfAbsent(key, ignored -> new ArrayList<>()).add(new SearchFile(file, label, day, gzip));
+    }
+
+    /**
+     * Matches of one day, oldest first: the first {@code limit} when
+     * searching forward, the last {@code limit} when searching back. Lines of
+     * several files are merged on their stamps.
+     */
+    private List<LogRecord> searchDay(String category, List<SearchFile> files, TimeRange range, LogQuery query,
+                                      int limit, boolean newestFirst, AtomicBoolean stop, QueryContext context) {
+        List<Match> matches = new ArrayList<>();
+        for (SearchFile file : files) {
+            if (stop.get()) {
+                break;
+            }
+            if (query != null && !mayContain(file, query)) {
+                continue;
+            }
+            matches.addAll(searchFile(category, file, range, query, limit, newestFirst, stop, context));
+        }
+        if (files.size() > 1) {
+            matches.sort(Comparator.comparingInt(match -> match.second));
+        }
+        if (matches.size() > limit) {
+            matches = newestFirst ? matches.subList(matches.size() - limit, matches.size()) : matches.subList(0, limit);
+        }
+        List<LogRecord> records = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            records.add(LogRecord.fileLine(category, getName(), match.file.label, match.line));
+        }
+        return records;
+    }
+
+    /**
+     * {@code false} only when the token filter of a finished file rules
+     * {@code query} out. A finished file without a filter is read and its
+     * filter is built in the background.
+     */
+    private boolean mayContain(SearchFile file, LogQuery query) {
+        TokenFilter.Settings settings = router.getTokenFilterSettings();
+        if (settings == null || !settings.isEnabled()
+                || !(file.gzip || (file.day != null && file.day.isBefore(LocalDate.now(zoneId))))) {
+            return true;
+        }
+        String key = file.file.getAbsolutePath();
+        TokenFilter filter;
+        synchronized (tokenFilters) {
+            filter = tokenFilters.get(key);
+        }
+        if (filter == null || !filter.covers(file.file)) {
+            try {
+                filter = TokenFilter.load(file.file);
+            } catch (IOException ex) {
+                filter = null;
+            }
+            if (filter == null) {
+                router.requestTokenFilter(file.file);
+                return true;
+            }
+            synchronized (tokenFilters) {
+                tokenFilters.put(key, filter);
+            }
+        }
+        return query.mightMatch(filter::mightContain);
+    }
+
+    /**
+     * Streams one file line by line, entering a plain file at the range start
+     * and stopping at the range end. Unstamped continuation lines follow the
+     * line before them. A file without a date in its name overlaps the range
+     * by its last write and is searched whole. Checks {@code stop} and {@code context} every
+     * {@link #CANCEL_CHECK_LINES} lines.
+     */
+    private Collection<Match> searchFile(String category, SearchFile file, TimeRange range, LogQuery query,
+                                         int limit, boolean newestFirst, AtomicBoolean stop, QueryContext context) {
+        ArrayDeque<Match> matches = new ArrayDeque<>();
+        LocalDate day = file.day;
+        long fromMillis = range.fromMillis();
+        long toMillis = range.toMillis();
+        boolean timed = day != null && !range.isUnbounded();
+        boolean include = includedFromStart(day, range);
+        int second = -1;
+        long offset = file.gzip ? 0L : seek(file.file, day, range.getFrom());
+        try (InputStream in = openSearchStream(file, offset);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_CHUNK)) {
             String line;
+            long scanned = 0L;
             while ((line = reader.readLine()) != null) {
-                if (line.toLowerCase(Locale.ROOT).contains(needle)) {
-                    Map<String, Object> record = new LinkedHashMap<>();
-                    record.put("category", category);
-                    record.put("source", getName());
-                    record.put("file", target.getName());
-                    record.put("line", line);
-                    record.put("message", line);
-                    matches.add(record);
-                    if (matches.size() >= limit) {
+                if ((++scanned & CANCEL_CHECK_LINES) == 0L) {
+                    if (context.isCancelled()) {
+                        context.markTruncated();
+                        break;
+                    }
+                    if (stop.get()) {
                         break;
                     }
                 }
+                int stamped = LogLines.secondOfDay(line);
+                if (stamped >= 0 && stamped != second) {
+                    second = stamped;
+                    if (timed) {
+                        long millis = day.atTime(LocalTime.ofSecondOfDay(second)).atZone(zoneId).toInstant().toEpochMilli();
+                        if (millis >= toMillis) {
+                            break;
+                        }
+                        include = millis >= fromMillis;
+                    }
+                }
+                if (!include || line.isEmpty() || (query != null && !query.matches(line, second, category))) {
+                    continue;
+                }
+                matches.add(new Match(file, second, line));
+                if (matches.size() > limit) {
+                    if (!newestFirst) {
+                        matches.pollLast();
+                        break;
+                    }
+                    matches.pollFirst();
+                }
             }
         } catch (IOException ex) {
-            plugin.getLogger().warning("[EliteLogs] Failed to search log file " + target.getName() + ": " + ex.getMessage());
+            plugin.getLogger().warning("[EliteLogs] Failed to search log file " + file.label + ": " + ex.getMessage());
         }
         return matches;
     }
 
+    private InputStream openSearchStream(SearchFile file, long offset) throws IOException {
+        if (file.gzip) {
+            return new GZIPInputStream(new FileInputStream(file.file), READ_CHUNK);
+        }
+        FileInputStream in = new FileInputStream(file.file);
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+        return in;
+    }
+
+    /**
+     * Streams every daily file overlapping the range once, line by line, and
+     * counts the stamped lines inside it. Each file is entered at the range
+     * start by {@link #seek} and left at the first line past the range end.
+     * Files without a date in their name cannot place their lines in time and
+     * are skipped.
+     */
+    @Override
+    public boolean aggregate(String category, Aggregation into) {
+        File[] files = listLogFiles(category);
+        if (files == null || files.length == 0) {
+            return true;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        TimeRange range = into.getRange();
+        boolean typed = into.groupsBy(Aggregation.Dimension.EVENT_TYPE) || into.getEventType() != null;
+        for (File file : files) {
+            LocalDate day = fileDate(file);
+            if (startsAfter(day, range)) {
+                break;
+            }
+            if (day == null || !overlaps(file, day, range)) {
+                continue;
+            }
+            if (!countLines(category, file, day, seek(file, day, range.getFrom()), typed, into)) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code false} once a line at or past the range end was seen.
+     */
+    private boolean countLines(String category, File file, LocalDate day, long offset, boolean typed, Aggregation into) {
+        long toMillis = into.getRange().toMillis();
+        int lastSecond = -1;
+        long lastMillis = 0L;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(raf.getChannel()), StandardCharsets.UTF_8), READ_CHUNK);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int second = LogLines.secondOfDay(line);
+                if (second < 0) {
+                    continue;
+                }
+                if (second != lastSecond) {
+                    lastSecond = second;
+                    lastMillis = day.atTime(LocalTime.ofSecondOfDay(second)).atZone(zoneId).toInstant().toEpochMilli();
+                }
+                if (lastMillis >= toMillis) {
+                    return false;
+                }
+                into.add(category, lastMillis,
+                        typed ? LogLines.eventType(line, category) : null,
+                        LogLines.playerUuid(line));
+            }
+        } catch (IOException ex) {
+            plugin.getLogger().warning("[EliteLogs] Failed to read log file " + file.getName() + ": " + ex.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Reads the per-player daily files the router writes under
+     * {@code <category>/players/<name>-<uuid>/} ({@code players/<name>-<uuid>/}
+     * for the players category). Every folder ending in the UUID is read, so
+     * lines written before a rename are included. Days are read oldest first
+     * and reading stops after the first day that fills the page. The session
+     * tracker writes the same actions with a full date stamp, so a line
+     * repeating another one in the same second is dropped.
+     */
+    @Override
+    public List<PlayerTimeline.Entry> playerTimeline(UUID player, String category, TimeRange range,
+                                                     PlayerTimeline.Position after, int limit) {
+        if (category == null || category.trim().isEmpty() || !isAvailable()) {
+            return Collections.emptyList();
+        }
+        File parent = "players".equals(category) ? new File(root, category) : new File(new File(root, category), "players");
+        String suffix = player.toString();
+        File[] folders = parent.listFiles(file -> file.isDirectory() && file.getName().endsWith(suffix));
+        if (folders == null || folders.length == 0) {
+            return Collections.emptyList();
+        }
+        TimeRange window = after != null ? range.startingAt(Instant.ofEpochMilli(after.getMillis())) : range;
+        Map<LocalDate, List<File>> days = new TreeMap<>();
+        for (File folder : folders) {
+            File[] files = folder.listFiles(file -> file.isFile() && file.getName().endsWith(".log"));
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                LocalDate day = fileDate(file);
+                if (day != null && overlaps(file, day, window)) {
+                    days.computeIfAbsent(day, key -> new ArrayList<>()).add(file);
+                }
+            }
+        }
+        List<PlayerTimeline.Entry> entries = new ArrayList<>();
+        for (Map.Entry<LocalDate, List<File>> day : days.entrySet()) {
+            List<PlayerTimeline.Entry> dayEntries = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (File file : day.getValue()) {
+                readPlayerDay(category, file, day.getKey(), window, after, seen, dayEntries);
+            }
+            dayEntries.sort(Comparator.comparing(PlayerTimeline.Entry::getPosition));
+            entries.addAll(dayEntries);
+            if (entries.size() >= limit) {
+                return new ArrayList<>(entries.subList(0, limit));
+            }
+        }
+        return entries;
+    }
+
+    private void readPlayerDay(String category, File file, LocalDate day, TimeRange range, PlayerTimeline.Position after,
+                               Set<String> seen, List<PlayerTimeline.Entry> into) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), READ_CHUNK)) {
+            String line;
+            long lineNumber = 0L;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int stampEnd = line.startsWith("[") ? line.indexOf(']') : -1;
+                Instant stamped = playerLineInstant(day, line, stampEnd);
+                if (stamped == null || !range.contains(stamped.toEpochMilli())) {
+                    continue;
+                }
+                String body = line.substring(stampEnd + 1).trim();
+                if (body.startsWith("[") && LogLines.playerUuid(body) != null) {
+                    body = body.substring(body.indexOf(']') + 1).trim();
+                }
+                if (!seen.add(stamped.getEpochSecond() + "|" + body)) {
+                    continue;
+                }
+                long micros = stamped.toEpochMilli() * 1000L;
+                if (after != null && !after.precedes(micros, category, lineNumber)) {
+                    continue;
+                }
+                LogRecord record = toRecord(category, file, line).withTime(stamped, body);
+                into.add(new PlayerTimeline.Entry(new PlayerTimeline.Position(micros, category, lineNumber), record));
+            }
+        } catch (IOException ex) {
+            plugin.getLogger().warning("[EliteLogs] Failed to read log file " + file.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Accepts the router's {@code [HH:mm:ss]} stamp and the session tracker's
+     * {@code [yyyy-MM-dd HH:mm:ss]} stamp.
+     */
+    private Instant playerLineInstant(LocalDate day, String line, int stampEnd) {
+        if (stampEnd == STAMP_LENGTH - 1) {
+            int second = LogLines.secondOfDay(line);
+            return second >= 0 ? day.atTime(LocalTime.ofSecondOfDay(second)).atZone(zoneId).toInstant() : null;
+        }
+        if (stampEnd != "[yyyy-MM-dd HH:mm:ss]".length() - 1) {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(line.substring(1, 11));
+            int second = LogLines.secondOfDay("[" + line.substring(12, stampEnd + 1));
+            return second >= 0 ? date.atTime(LocalTime.ofSecondOfDay(second)).atZone(zoneId).toInstant() : null;
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private List<LogRecord> toRecords(String category, File file, List<String> lines) {
+        if (lines.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<LogRecord> records = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            records.add(toRecord(category, file, line));
+        }
+        return records;
+    }
+
+    private LogRecord toRecord(String category, File file, String line) {
+        return LogRecord.fileLine(category, getName(), file.getName(), line);
+    }
+
+    private String cursor(File file, long offset) {
+        return file.getName() + ":" + offset;
+    }
+
     private File locateLatestFile(String category) {
+        if (catalog != null) {
+            FileCatalog.Entry latest = null;
+            for (FileCatalog.Entry entry : catalogFiles(category)) {
+                if (latest == null || entry.getLastModified() > latest.getLastModified()) {
+                    latest = entry;
+                }
+            }
+            return latest != null ? latest.getFile() : null;
+        }
+        File[] files = listLogFiles(category);
+        if (files == null || files.length == 0) {
+            return null;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        return files[0];
+    }
+
+    private File[] listLogFiles(String category) {
         if (category == null || category.trim().isEmpty()) {
             return null;
         }
+        if (catalog != null) {
+            List<FileCatalog.Entry> entries = catalogFiles(category);
+            File[] files = new File[entries.size()];
+            for (int i = 0; i < files.length; i++) {
+                files[i] = entries.get(i).getFile();
+            }
+            return files;
+        }
         File categoryFolder = new File(root, category);
         if (!categoryFolder.exists() || !categoryFolder.isDirectory()) {
             return null;
         }
-        File[] files = categoryFolder.listFiles(new FileFilter() {
+        return categoryFolder.listFiles(new FileFilter() {
             @Override
             public boolean accept(File pathname) {
-                String name = pathname.getName().toLowerCase(Locale.ROOT);
-                return pathname.isFile() && (name.endsWith(".log") || name.endsWith(".txt") || name.endsWith(".yml"));
+                return pathname.isFile() && isLogFile(pathname.getName());
             }
         });
-        if (files == null || files.length == 0) {
-            return null;
-        }
-        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
-        return files[0];
     }
 
-    private List<String> tail(File file, int limit) {
-        if (limit <= 0) {
+    private List<FileCatalog.Entry> catalogFiles(String category) {
+        if (category == null || category.trim().isEmpty()) {
             return Collections.emptyList();
         }
-        List<String> lines = new ArrayList<>(limit);
+        List<FileCatalog.Entry> entries = catalog.files(category);
+        entries.removeIf(entry -> !isLogFile(entry.getName()));
+        return entries;
+    }
+
+    private static boolean isLogFile(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".log") || name.endsWith(".txt") || name.endsWith(".yml");
+    }
+
+    private boolean overlaps(File file, LocalDate day, TimeRange range) {
+        if (day == null) {
+            return range.getFrom() == null || file.lastModified() >= range.fromMillis();
+        }
+        if (range.getFrom() != null && day.isBefore(range.getFrom().atZone(zoneId).toLocalDate())) {
+            return false;
+        }
+        return !startsAfter(day, range);
+    }
+
+    /**
+     * Whether a daily file begins after the range ends. The end is exclusive,
+     * so a range ending exactly at midnight does not reach that day's file.
+     */
+    private boolean startsAfter(LocalDate day, TimeRange range) {
+        if (day == null || range.getTo() == null) {
+            return false;
+        }
+        return day.isAfter(range.getTo().minusMillis(1).atZone(zoneId).toLocalDate());
+    }
+
+    /**
+     * Offset of the first line stamped at or after {@code target} in the file
+     * for {@code day}. The scan starts at the minute {@link TimeIndex} points
+     * to; without a sidecar, lines being appended in time order, the file is
+     * bisected on the stamps of sampled lines until the window is small and
+     * the sidecar is built in the background for next time. Files for other
+     * days start at 0.
+     */
+    private long seek(File file, LocalDate day, Instant target) {
+        if (day == null || target == null || !day.equals(target.atZone(zoneId).toLocalDate())) {
+            return 0L;
+        }
+        TimeIndex index = timeIndex(file);
         try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
-            long fileLength = raf.length();
-            long pointer = fileLength - 1;
-            StringBuilder builder = new StringBuilder();
-            while (pointer >= 0 && lines.size() < limit) {
-                raf.seek(pointer--);
-                int read = raf.read();
-                if (read == '\n') {
-                    if (builder.length() > 0) {
-                        lines.add(builder.reverse().toString());
-                        builder.setLength(0);
+            if (index != null) {
+                long start = index.floor(target.atZone(zoneId).toLocalTime().toSecondOfDay());
+                if (start <= raf.length()) {
+                    return scanToStamp(raf, start, day, target);
+                }
+            }
+            long low = 0L;
+            long high = raf.length();
+            byte[] probe = new byte[PROBE_CHUNK];
+            while (high - low > SEEK_WINDOW) {
+                long mid = (low + high) >>> 1;
+                long[] stamped = probe(raf, probe, mid, high, day);
+                if (stamped == null || stamped[1] >= target.toEpochMilli()) {
+                    high = mid;
+                } else {
+                    low = stamped[0];
+                }
+            }
+            return scanToStamp(raf, low, day, target);
+        } catch (IOException ex) {
+            plugin.getLogger().warning("[EliteLogs] Failed to seek in log file " + file.getName() + ": " + ex.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * The sidecar index of {@code file}, or {@code null} while it is missing;
+     * a missing sidecar is rebuilt once on {@link #indexBuilds}.
+     */
+    private TimeIndex timeIndex(File file) {
+        try {
+            TimeIndex index = TimeIndex.load(file);
+            if (index != null) {
+                return index;
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        String key = file.getAbsolutePath();
+        if (indexing.add(key)) {
+            indexBuilds.execute(() -> {
+                try {
+                    TimeIndex.rebuild(file);
+                    indexing.remove(key);
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("[EliteLogs] Failed to index log file " + file.getName() + ": " + ex.getMessage());
+                }
+            });
+        }
+        return null;
+    }
+
+    /**
+     * End offset for a backwards read: the start of the first line at or
+     * after {@code to} on that day, otherwise the end of the file.
+     */
+    private long seekEnd(File file, LocalDate day, Instant to) {
+        if (day == null || to == null || !day.equals(to.atZone(zoneId).toLocalDate())) {
+            return file.length();
+        }
+        return seek(file, day, to);
+    }
+
+    /**
+     * Returns {@code {lineStart, epochMillis}} for the first stamped line that
+     * starts after {@code position} within one probe chunk, or {@code null}.
+     */
+    private long[] probe(RandomAccessFile raf, byte[] chunk, long position, long limit, LocalDate day) throws IOException {
+        raf.seek(position);
+        int read = raf.read(chunk, 0, (int) Math.min(chunk.length, limit - position));
+        int i = 0;
+        if (position > 0L) {
+            while (i < read && chunk[i] != '\n') {
+                i++;
+            }
+            i++;
+        }
+        while (i + STAMP_LENGTH <= read) {
+            Instant stamped = lineInstant(day, new String(chunk, i, STAMP_LENGTH, StandardCharsets.US_ASCII));
+            if (stamped != null) {
+                return new long[]{position + i, stamped.toEpochMilli()};
+            }
+            while (i < read && chunk[i] != '\n') {
+                i++;
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private long scanToStamp(RandomAccessFile raf, long start, LocalDate day, Instant target) throws IOException {
+        long end = raf.length();
+        byte[] chunk = new byte[READ_CHUNK];
+        byte[] head = new byte[STAMP_LENGTH];
+        int headLength = 0;
+        boolean collecting = true;
+        long lineStart = start;
+        long position = start;
+        raf.seek(start);
+        while (position < end) {
+            int read = raf.read(chunk, 0, (int) Math.min(chunk.length, end - position));
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte value = chunk[i];
+                if (value == '\n') {
+                    headLength = 0;
+                    collecting = true;
+                    lineStart = position + i + 1;
+                    continue;
+                }
+                if (!collecting) {
+                    continue;
+                }
+                head[headLength++] = value;
+                if (headLength == STAMP_LENGTH) {
+                    collecting = false;
+                    Instant stamped = lineInstant(day, new String(head, 0, STAMP_LENGTH, StandardCharsets.US_ASCII));
+                    if (stamped != null && !stamped.isBefore(target)) {
+                        return lineStart;
                     }
-                } else if (read != '\r') {
-                    builder.append((char) read);
                 }
             }
-            if (builder.length() > 0 && lines.size() < limit) {
-                lines.add(builder.reverse().toString());
+            position += read;
+        }
+        return end;
+    }
+
+    private LocalDate fileDate(File file) {
+        Matcher matcher = FILE_DATE.matcher(file.getName());
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(matcher.group(1));
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads complete lines forward from {@code offset}. A trailing line without
+     * its newline is still being written and is left for the next poll, so the
+     * returned offset always points at the start of an unread line. Lines
+     * stamped before the range start are skipped but still consumed; the read
+     * stops, without consuming it, at the first line stamped at or after the
+     * range end. Unstamped continuation lines follow the line before them.
+     * When {@code needle} is set only lines containing it are returned. A
+     * cancelled {@code context} ends the read between blocks as if the limit
+     * had been reached.
+     */
+    private ForwardRead readForward(File file, long offset, TimeRange range, LocalDate day, int limit,
+                                    QueryContext context) {
+        List<String> lines = new ArrayList<>();
+        long consumed = offset;
+        boolean hasMore = false;
+        boolean reachedEnd = false;
+        boolean include = range.getFrom() == null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long end = raf.length();
+            raf.seek(offset);
+            ByteArrayOutputStream pending = new ByteArrayOutputStream();
+            byte[] chunk = new byte[READ_CHUNK];
+            long position = offset;
+            outer:
+            while (position < end) {
+                if (context.isCancelled()) {
+                    context.markTruncated();
+                    hasMore = true;
+                    break;
+                }
+                int read = raf.read(chunk, 0, (int) Math.min(chunk.length, end - position));
+                if (read <= 0) {
+                    break;
+                }
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] != '\n') {
+                        continue;
+                    }
+                    String line;
+                    if (pending.size() == 0) {
+                        line = decodeLine(chunk, start, i - start);
+                    } else {
+                        pending.write(chunk, start, i - start);
+                        line = decodeLine(pending.toByteArray(), 0, pending.size());
+                        pending.reset();
+                    }
+                    start = i + 1;
+                    if (!range.isUnbounded()) {
+                        Instant stamped = lineInstant(day, line);
+                        if (stamped != null) {
+                            if (range.getTo() != null && !stamped.isBefore(range.getTo())) {
+                                reachedEnd = true;
+                                break outer;
+                            }
+                            include = range.getFrom() == null || !stamped.isBefore(range.getFrom());
+                        }
+                    }
+                    if (include && !line.isEmpty()) {
+                        if (lines.size() >= limit) {
+                            hasMore = true;
+                            break outer;
+                        }
+                        lines.add(line);
+                    }
+                    consumed = position + i + 1;
+                }
+                pending.write(chunk, start, read - start);
+                position += read;
             }
         } catch (IOException ex) {
             plugin.getLogger().warning("[EliteLogs] Failed to read log file " + file.getName() + ": " + ex.getMessage());
         }
+        return new ForwardRead(lines, consumed, hasMore, reachedEnd);
+    }
+
+    private static String decodeLine(byte[] bytes, int offset, int length) {
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private Instant lineInstant(LocalDate day, String line) {
+        if (day == null) {
+            return null;
+        }
+        Matcher matcher = LINE_TIME.matcher(line);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return day.atTime(LocalTime.parse(matcher.group(1))).atZone(zoneId).toInstant();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private List<String> tail(File file, int limit, long start, long end) {
+        try {
+            return tailLines(file, limit, start, end);
+        } catch (IOException ex) {
+            plugin.getLogger().warning("[EliteLogs] Failed to read log file " + file.getName() + ": " + ex.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Last {@code limit} non-empty lines between {@code start} and
+     * {@code end}, oldest first. The file is read backwards in
+     * {@link #TAIL_BLOCK} blocks and split on {@code '\n'} bytes, so every
+     * line is decoded as UTF-8 in one piece even when it spans blocks.
+     */
+    static List<String> tailLines(File file, int limit, long start, long end) throws IOException {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<String> lines = new ArrayList<>(Math.min(limit, 1024));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = Math.min(end, channel.size());
+            byte[] block = new byte[(int) Math.min(TAIL_BLOCK, Math.max(1L, position - start))];
+            byte[] carry = new byte[0];
+            int carryStart = 0;
+            while (position > start && lines.size() < limit) {
+                int size = (int) Math.min(block.length, position - start);
+                position -= size;
+                ByteBuffer view = ByteBuffer.wrap(block, 0, size);
+                while (view.hasRemaining()) {
+                    if (channel.read(view, position + view.position()) < 0) {
+                        break;
+                    }
+                }
+                int lineEnd = size;
+                for (int i = size - 1; i >= 0 && lines.size() < limit; i--) {
+                    if (block[i] == '\n') {
+                        addTailLine(lines, block, i + 1, lineEnd, carry, carryStart);
+                        carryStart = carry.length;
+                        lineEnd = i;
+                    }
+                }
+                if (lines.size() >= limit || lineEnd == 0) {
+                    continue;
+                }
+                int carried = carry.length - carryStart;
+                if (carryStart < lineEnd) {
+                    byte[] grown = new byte[Math.max(carry.length * 2, carried + lineEnd)];
+                    System.arraycopy(carry, carryStart, grown, grown.length - carried, carried);
+                    carry = grown;
+                    carryStart = grown.length - carried;
+                }
+                carryStart -= lineEnd;
+                System.arraycopy(block, 0, carry, carryStart, lineEnd);
+            }
+            if (lines.size() < limit) {
+                addTailLine(lines, block, 0, 0, carry, carryStart);
+            }
+        }
         Collections.reverse(lines);
         return lines;
     }
+
+    /**
+     * Adds the line made of {@code block[from, to)} followed by the bytes
+     * carried over from the block after it, without its trailing
+     * {@code '\r'}. Empty lines are skipped.
+     */
+    private static void addTailLine(List<String> lines, byte[] block, int from, int to, byte[] carry, int carryStart) {
+        int carried = carry.length - carryStart;
+        byte[] bytes = block;
+        int offset = from;
+        int length = to - from;
+        if (carried > 0) {
+            bytes = new byte[length + carried];
+            System.arraycopy(block, from, bytes, 0, length);
+            System.arraycopy(carry, carryStart, bytes, length, carried);
+            offset = 0;
+            length = bytes.length;
+        }
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        if (length > 0) {
+            lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class ForwardRead {
+        private final List<String> lines;
+        private final long endOffset;
+        private final boolean hasMore;
+        private final boolean reachedEnd;
+
+        private ForwardRead(List<String> lines, long endOffset, boolean hasMore, boolean reachedEnd) {
+            this.lines = lines;
+            this.endOffset = endOffset;
+            this.hasMore = hasMore;
+            this.reachedEnd = reachedEnd;
+        }
+    }
+
+    /**
+     * Whether a file's lines count before its first stamp is read: always
+     * without a range start, and for files without a date, whose stamps
+     * cannot be placed on a day.
+     */
+    static boolean includedFromStart(LocalDate day, TimeRange range) {
+        return range.getFrom() == null || day == null;
+    }
+
+    private static final class SearchFile {
+        private final File file;
+        private final String label;
+        private final LocalDate day;
+        private final boolean gzip;
+
+        private SearchFile(File file, String label, LocalDate day, boolean gzip) {
+            this.file = file;
+            this.label = label;
+            this.day = day;
+            this.gzip = gzip;
+        }
+    }
+
+    private static final class Match {
+        private final SearchFile file;
+        private final int second;
+        private final String line;
+
+        private Match(SearchFile file, int second, String line) {
+            this.file = file;
+            this.second = second;
+            this.line = line;
+        }
+    }
 }
@@ -1,7 +1,13 @@
 package com.elitelogs.api.provider;
 
+import com.elitelogs.logging.LogQuery;
+import com.elitelogs.logging.QueryContext;
+
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface LogDataProvider {
     String getName();
@@ -10,9 +16,133 @@ public interface LogDataProvider {
 
     List<String> listCategories();
 
-    List<Map<String, Object>> fetch(String category, int limit);
+    List<LogRecord> fetch(String category, int limit);
+
+    /**
+     * Releases the threads this provider owns. Called when the API stops or
+     * its configuration is reloaded; requests still running may finish, but
+     * no new ones arrive.
+     */
+    default void close() {
+    }
 
-    default List<Map<String, Object>> search(String category, String query, int limit) {
+    /**
+     * Newest lines matching {@code query}, which the caller parsed once with
+     * {@link LogQuery#of(String)}; {@code null} matches every line.
+     */
+    default List<LogRecord> search(String category, LogQuery query, int limit) {
         return fetch(category, limit);
     }
+
+    /**
+     * Like {@link #search(String, LogQuery, int)} but limited to lines written
+     * inside {@code range}. Providers that cannot filter by time ignore it.
+     */
+    default List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit) {
+        return search(category, query, limit);
+    }
+
+    /**
+     * Returns lines written after {@code after} (a cursor from a previous page)
+     * that fall inside {@code range}, oldest first. Without a cursor or a range
+     * start the newest {@code limit} lines before the range end are returned
+     * together with a cursor for the next poll. Providers that cannot resume
+     * return a page without a cursor.
+     *
+     * @throws IllegalArgumentException when the cursor was not issued by this provider
+     */
+    default LogPage fetchPage(String category, String after, TimeRange range, int limit) {
+        return new LogPage(fetch(category, limit), null, false);
+    }
+
+    /**
+     * {@link #fetchPage(String, String, TimeRange, int)} that gives up once
+     * {@code context} is cancelled, returning the lines read so far and
+     * marking the context truncated. Providers that answer from memory ignore
+     * the context.
+     */
+    default LogPage fetchPage(String category, String after, TimeRange range, int limit, QueryContext context) {
+        return fetchPage(category, after, range, limit);
+    }
+
+    /**
+     * {@link #search(String, LogQuery, TimeRange, int)} under the same rules as
+     * {@link #fetchPage(String, String, TimeRange, int, QueryContext)}.
+     */
+    default List<LogRecord> search(String category, LogQuery query, TimeRange range, int limit,
+                                   QueryContext context) {
+        return search(category, query, range, limit);
+    }
+
+    /**
+     * Runs {@link #fetchPage(String, String, TimeRange, int, QueryContext)} on
+     * {@code executor} so the caller can wait with a deadline and cancel
+     * {@code context} when it passes.
+     */
+    default CompletableFuture<LogPage> fetchPageAsync(String category, String after, TimeRange range, int limit,
+                                                      QueryContext context, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> fetchPage(category, after, range, limit, context), executor);
+    }
+
+    default CompletableFuture<List<LogRecord>> searchAsync(String category, LogQuery query, TimeRange range,
+                                                           int limit, QueryContext context, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> search(category, query, range, limit, context), executor);
+    }
+
+    /**
+     * Counts the lines of {@code category} inside the aggregation's range into
+     * {@code into}. Returns {@code false} when this provider cannot aggregate.
+     */
+    default boolean aggregate(String category, Aggregation into) {
+        return false;
+    }
+
+    /**
+     * {@link #aggregate(String, Aggregation)} that gives up once
+     * {@code context} is cancelled, marking the context truncated.
+     */
+    default boolean aggregate(String category, Aggregation into, QueryContext context) {
+        return aggregate(category, into);
+    }
+
+    /**
+     * Lines of {@code player} in {@code category} inside {@code range} that
+     * sort after {@code after} (which may be {@code null}), oldest first and
+     * at most {@code limit} of them. Returns {@code null} when this provider
+     * cannot tell lines apart by player.
+     */
+    default List<PlayerTimeline.Entry> playerTimeline(UUID player, String category, TimeRange range,
+                                                      PlayerTimeline.Position after, int limit) {
+        return null;
+    }
+
+    /**
+     * {@link #playerTimeline(UUID, String, TimeRange, PlayerTimeline.Position, int)}
+     * for every category, one stream per category in the same order.
+     * Providers whose categories can be read independently may fetch them
+     * concurrently.
+     */
+    default List<List<PlayerTimeline.Entry>> playerTimelines(UUID player, List<String> categories, TimeRange range,
+                                                             PlayerTimeline.Position after, int limit) {
+        List<List<PlayerTimeline.Entry>> streams = new ArrayList<>(categories.size());
+        for (String category : categories) {
+            List<PlayerTimeline.Entry> stream = playerTimeline(player, category, range, after, limit);
+            if (stream == null) {
+                return null;
+            }
+            streams.add(stream);
+        }
+        return streams;
+    }
+
+    /**
+     * {@link #playerTimelines(UUID, List, TimeRange, PlayerTimeline.Position, int)}
+     * that gives up once {@code context} is cancelled, marking the context
+     * truncated.
+     */
+    default List<List<PlayerTimeline.Entry>> playerTimelines(UUID player, List<String> categories, TimeRange range,
+                                                             PlayerTimeline.Position after, int limit,
+                                                             QueryContext context) {
+        return playerTimelines(player, categories, range, after, limit);
+    }
 }
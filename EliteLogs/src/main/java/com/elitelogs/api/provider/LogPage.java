@@ -0,0 +1,32 @@
+package com.elitelogs.api.provider;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of an incremental fetch. The cursor is opaque to clients: they
+ * pass it back as {@code after} to receive only lines written since.
+ */
+public final class LogPage {
+    private final List<LogRecord> records;
+    private final String cursor;
+    private final boolean hasMore;
+
+    public LogPage(List<LogRecord> records, String cursor, boolean hasMore) {
+        this.records = records != null ? records : Collections.emptyList();
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<LogRecord> getRecords() {
+        return records;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
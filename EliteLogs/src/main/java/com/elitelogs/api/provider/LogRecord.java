@@ -0,0 +1,150 @@
+package com.elitelogs.api.provider;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One log line as the API returns it. Every provider fills in the fields it
+ * knows and leaves the rest {@code null}; absent fields are left out of the
+ * JSON. The serializer writes the fields in declaration order, which keeps
+ * the key order clients saw when records were plain maps.
+ */
+public final class LogRecord {
+    private final String category;
+    private final String source;
+    private final Long sequence;
+    private final Long id;
+    private final String file;
+    private final String line;
+    private final Instant occurredAt;
+    private final String eventType;
+    private final String message;
+    private final UUID playerUuid;
+    private final String playerName;
+    private final String tags;
+    private final String context;
+    private final byte[] encodedJson;
+
+    private LogRecord(String category, String source, Long sequence, Long id, String file, String line,
+                      Instant occurredAt, String eventType, String message, UUID playerUuid, String playerName,
+                      String tags, String context, byte[] encodedJson) {
+        this.category = category;
+        this.source = source;
+        this.sequence = sequence;
+        this.id = id;
+        this.file = file;
+        this.line = line;
+        this.occurredAt = occurredAt;
+        this.eventType = eventType;
+        this.message = message;
+        this.playerUuid = playerUuid;
+        this.playerName = playerName;
+        this.tags = tags;
+        this.context = context;
+        this.encodedJson = encodedJson;
+    }
+
+    /**
+     * A line held in the in-memory buffer, identified by its sequence number.
+     */
+    public static LogRecord buffered(String category, String source, long sequence, String line, long timestampMillis,
+                                     String message, UUID playerUuid) {
+        return buffered(category, source, sequence, line, timestampMillis, message, playerUuid, null);
+    }
+
+    /**
+     * A buffered line together with its JSON, already serialised as UTF-8
+     * when the line was buffered; {@code encodedJson} may be {@code null}.
+     */
+    public static LogRecord buffered(String category, String source, long sequence, String line, long timestampMillis,
+                                     String message, UUID playerUuid, byte[] encodedJson) {
+        return new LogRecord(category, source, sequence, null, null, line, Instant.ofEpochMilli(timestampMillis),
+                null, message, playerUuid, null, null, null, encodedJson);
+    }
+
+    /**
+     * A database row. {@code tags} and {@code context} are the stored JSON
+     * text and are returned as strings.
+     */
+    public static LogRecord stored(String category, String source, long id, Instant occurredAt, String eventType,
+                                   String message, UUID playerUuid, String playerName, String tags, String context) {
+        return new LogRecord(category, source, null, id, null, null, occurredAt, eventType, message, playerUuid,
+                playerName, tags, context, null);
+    }
+
+    /**
+     * A raw line read from {@code file}; the message is the whole line.
+     */
+    public static LogRecord fileLine(String category, String source, String file, String line) {
+        return new LogRecord(category, source, null, null, file, line, null, null, line, null, null, null, null, null);
+    }
+
+    /**
+     * Copy with the time the line was written and the message without its
+     * stamp and player decoration, for sources that parse them.
+     */
+    public LogRecord withTime(Instant occurredAt, String message) {
+        return new LogRecord(category, source, sequence, id, file, line, occurredAt, eventType, message, playerUuid,
+                playerName, tags, context, null);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public UUID getPlayerUuid() {
+        return playerUuid;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public String getContext() {
+        return context;
+    }
+
+    /**
+     * This record's JSON as UTF-8 when it was serialised ahead of time, or
+     * {@code null}. The array is shared and must not be modified.
+     */
+    public byte[] getEncodedJson() {
+        return encodedJson;
+    }
+}
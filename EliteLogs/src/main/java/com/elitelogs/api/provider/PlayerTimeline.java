@@ -0,0 +1,166 @@
+package com.elitelogs.api.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges per-category pages of one player's lines into a single timeline.
+ * Lines are ordered by time, then category, then their position inside the
+ * category stream (buffer sequence, row id or file offset), which makes the
+ * order total and lets a {@link Position} resume every stream at once.
+ */
+public final class PlayerTimeline {
+    private PlayerTimeline() {
+    }
+
+    /**
+     * Where a line sits on the timeline. Times are epoch microseconds so
+     * database rows keep their full precision; sources with coarser stamps
+     * simply have trailing zeros.
+     */
+    public static final class Position implements Comparable<Position> {
+        private final long micros;
+        private final String category;
+        private final long offset;
+
+        public Position(long micros, String category, long offset) {
+            this.micros = micros;
+            this.category = category;
+            this.offset = offset;
+        }
+
+        /**
+         * @throws IllegalArgumentException when the cursor was not issued by
+         *                                  {@link #toString()}
+         */
+        public static Position parse(String cursor) {
+            String[] parts = cursor.trim().split(":", 3);
+            if (parts.length != 3 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Invalid timeline cursor: " + cursor);
+            }
+            try {
+                return new Position(Long.parseLong(parts[0]), parts[2], Long.parseLong(parts[1]));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid timeline cursor: " + cursor);
+            }
+        }
+
+        public long getMicros() {
+            return micros;
+        }
+
+        public long getMillis() {
+            return Math.floorDiv(micros, 1000L);
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Whether a line of {@code lineCategory} at {@code lineMicros} and
+         * {@code lineOffset} sorts after this position.
+         */
+        public boolean precedes(long lineMicros, String lineCategory, long lineOffset) {
+            return compareTo(new Position(lineMicros, lineCategory, lineOffset)) < 0;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            int result = Long.compare(micros, other.micros);
+            if (result == 0) {
+                result = category.compareTo(other.category);
+            }
+            if (result == 0) {
+                result = Long.compare(offset, other.offset);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return micros + ":" + offset + ":" + category;
+        }
+    }
+
+    public static final class Entry {
+        private final Position position;
+        private final LogRecord record;
+
+        public Entry(Position position, LogRecord record) {
+            this.position = position;
+            this.record = record;
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+
+        public LogRecord getRecord() {
+            return record;
+        }
+    }
+
+    public static final class Page {
+        private final List<Entry> entries;
+        private final boolean hasMore;
+
+        private Page(List<Entry> entries, boolean hasMore) {
+            this.entries = entries;
+            this.hasMore = hasMore;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+
+        /**
+         * Position of the last entry, or {@code null} for an empty page.
+         */
+        public Position getLastPosition() {
+            return entries.isEmpty() ? null : entries.get(entries.size() - 1).getPosition();
+        }
+    }
+
+    /**
+     * K-way merge of {@code streams}, each already sorted, keeping the first
+     * {@code limit} entries. Every stream should hold {@code limit + 1}
+     * entries when more are available so {@link Page#hasMore()} is exact.
+     */
+    public static Page merge(List<List<Entry>> streams, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, streams.size()),
+                Comparator.comparing((int[] head) -> streams.get(head[0]).get(head[1]).getPosition()));
+        int available = 0;
+        for (int i = 0; i < streams.size(); i++) {
+            List<Entry> stream = streams.get(i);
+            if (stream != null && !stream.isEmpty()) {
+                heads.add(new int[]{i, 0});
+                available += stream.size();
+            }
+        }
+        if (available == 0) {
+            return new Page(Collections.emptyList(), false);
+        }
+        List<Entry> merged = new ArrayList<>(Math.min(limit, available));
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Entry> stream = streams.get(head[0]);
+            merged.add(stream.get(head[1]));
+            if (++head[1] < stream.size()) {
+                heads.add(head);
+            }
+        }
+        return new Page(merged, available > merged.size());
+    }
+}
@@ -0,0 +1,74 @@
+package com.elitelogs.api.provider;
+
+import java.time.Instant;
+
+/**
+ * Half-open time window {@code [from, to)} for log queries. Either end may be
+ * open; {@link #ALL} leaves both open.
+ */
+public final class TimeRange {
+    public static final TimeRange ALL = new TimeRange(null, null);
+
+    private final Instant from;
+    private final Instant to;
+
+    private TimeRange(Instant from, Instant to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code to} is not after {@code from}
+     */
+    public static TimeRange of(Instant from, Instant to) {
+        if (from == null && to == null) {
+            return ALL;
+        }
+        if (from != null && to != null && !to.isAfter(from)) {
+            throw new IllegalArgumentException("Range end must be after its start");
+        }
+        return new TimeRange(from, to);
+    }
+
+    /**
+     * Window for the legacy {@code since} parameter, which excludes the
+     * instant itself.
+     */
+    public static TimeRange since(Instant since) {
+        return since != null ? of(since.plusMillis(1), null) : ALL;
+    }
+
+    /**
+     * Narrows this window so it also starts no earlier than {@code start}.
+     */
+    public TimeRange startingAt(Instant start) {
+        if (start == null || (from != null && !start.isAfter(from))) {
+            return this;
+        }
+        return of(start, to);
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public boolean isUnbounded() {
+        return from == null && to == null;
+    }
+
+    public long fromMillis() {
+        return from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+    }
+
+    public long toMillis() {
+        return to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+    }
+
+    public boolean contains(long epochMillis) {
+        return epochMillis >= fromMillis() && epochMillis < toMillis();
+    }
+}
@@ -1,12 +1,53 @@
 package com.elitelogs.logging;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * Moves finished log files from {@code logs/} to {@code archive/} as gzip.
+ * Files are compressed {@link #ARCHIVE_PARALLELISM} at a time; every archive
+ * is synced, read back and compared with the original's CRC-32 before the
+ * original and its sidecars are deleted. Verified archives are listed in
+ * {@code archive/manifest.tsv}, so a run that was interrupted before a delete
+ * does not compress the file again, and gzip copies left by older versions
+ * are adopted after the same check instead of being rewritten.
+ */
 public class ArchiveManager {
+    public static final String MANIFEST = "manifest.tsv";
+    private static final Pattern FILE_DATE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+    private static final long ACTIVE_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int BUFFER = 64 * 1024;
+    private static final int ARCHIVE_PARALLELISM =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ExecutorService COMPRESSORS = new ThreadPoolExecutor(0, ARCHIVE_PARALLELISM,
+            30L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "EliteLogs-Archive");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    private static final Object RUN_LOCK = new Object();
+
     public static final class Result {
         private final boolean skipped;
         private final int candidates;
@@ -37,6 +78,14 @@ public class ArchiveManager {
         return archiveOldLogs(dataFolder, keepDays, false);
     }
 
+    /**
+     * Archives files last written more than {@code keepDays} ago, or every
+     * finished file with {@code includeRecent}. Files dated today and files
+     * written in the last few minutes are still being appended to and are
+     * never touched; neither are files without a date in their name, which
+     * may be appended to for good, until they pass {@code keepDays}. Runs
+     * one at a time.
+     */
     public static Result archiveOldLogs(File dataFolder, int keepDays, boolean includeRecent){
         Path logs = new File(dataFolder, "logs").toPath();
         Path archive = new File(dataFolder, "archive").toPath();
@@ -48,42 +97,284 @@ public class ArchiveManager {
             if (!Files.exists(logs)) {
                 return Result.success(0, 0, 0);
             }
-            Files.createDirectories(archive);
-            Instant cutoff = includeRecent ? null : Instant.now().minus(Duration.ofDays(keepDays));
-            final int[] counters = new int[3]; // 0=candidates,1=archived,2=failed
-            try (java.util.stream.Stream<Path> stream = Files.walk(logs)) {
-                stream.filter(Files::isRegularFile).forEach(p -> {
-                    File f = p.toFile();
-                    boolean eligible = includeRecent || (cutoff != null && Instant.ofEpochMilli(f.lastModified()).isBefore(cutoff));
-                    if (eligible){
-                        counters[0]++;
+            synchronized (RUN_LOCK) {
+                Files.createDirectories(archive);
+                long now = System.currentTimeMillis();
+                LocalDate today = LocalDate.now();
+                long keepCutoff = keepDays > 0 ? now - Duration.ofDays(keepDays).toMillis() : Long.MIN_VALUE;
+                long cutoff = includeRecent ? Long.MAX_VALUE : keepCutoff;
+                int candidates = 0;
+                AtomicInteger archived = new AtomicInteger();
+                AtomicInteger failed = new AtomicInteger();
+                List<CompletableFuture<Void>> tasks = new ArrayList<>();
+                try (Manifest manifest = Manifest.open(archive.resolve(MANIFEST));
+                     Stream<Path> stream = Files.walk(logs)) {
+                    for (Path p : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                        String fileName = p.getFileName().toString();
+                        if (fileName.endsWith(TimeIndex.SUFFIX) || fileName.endsWith(TokenFilter.SUFFIX)
+                                || fileName.endsWith(".tmp")) {
+                            continue;
+                        }
+                        long modified = p.toFile().lastModified();
+                        if (modified >= cutoff || isActive(fileName, modified, keepCutoff, today, now)) {
+                            continue;
+                        }
+                        candidates++;
                         Path rel = logs.relativize(p);
                         Path gz = archive.resolve(rel.toString() + ".gz");
-                        try {
-                            Path parent = gz.getParent();
-                            if (parent != null) {
-                                Files.createDirectories(parent);
-                            }
-                            try (GZIPOutputStream g = new GZIPOutputStream(new FileOutputStream(gz.toFile()));
-                                 FileInputStream in = new FileInputStream(f)) {
-                                byte[] buffer = new byte[8192];
-                                int read;
-                                while ((read = in.read(buffer)) != -1) {
-                                    g.write(buffer, 0, read);
-                                }
+                        String key = rel.toString().replace(File.separatorChar, '/');
+                        tasks.add(CompletableFuture.runAsync(() -> {
+                            if (archiveFile(p, gz, key, manifest)) {
+                                archived.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
                             }
-                            counters[1]++;
-                        } catch(Exception ex) {
-                            counters[2]++;
-                            Logger.getLogger("EliteLogs").warning("Archive failed for " + rel + ": " + ex.getMessage());
-                        }
+                        }, COMPRESSORS));
                     }
-                });
+                    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+                }
+                return Result.success(candidates, archived.get(), failed.get());
             }
-            return Result.success(counters[0], counters[1], counters[2]);
         } catch(Exception ex) {
             Logger.getLogger("EliteLogs").severe("Archive failed: " + ex.getMessage());
             return Result.failure(ex);
         }
     }
+
+    /**
+     * Whether a file may still be written to: touched in the last few
+     * minutes, dated today or later, or undated and written since
+     * {@code keepCutoff}.
+     */
+    static boolean isActive(String fileName, long modified, long keepCutoff, LocalDate today, long now) {
+        if (now - modified < ACTIVE_GRACE_MILLIS) {
+            return true;
+        }
+        Matcher matcher = FILE_DATE.matcher(fileName);
+        if (matcher.find()) {
+            try {
+                return !LocalDate.parse(matcher.group(1)).isBefore(today);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return modified >= keepCutoff;
+    }
+
+    /**
+     * Archives one file and deletes it once its archive is verified. The
+     * original is kept when anything fails or when it changed meanwhile.
+     */
+    private static boolean archiveFile(Path source, Path gz, String key, Manifest manifest) {
+        File file = source.toFile();
+        long length = file.length();
+        long modified = file.lastModified();
+        try {
+            Manifest.Entry entry = manifest.get(key);
+            boolean verified = entry != null && entry.describes(length, modified)
+                    && Files.isRegularFile(gz) && Files.size(gz) == entry.archiveLength;
+            if (!verified) {
+                Digest original = null;
+                if (Files.isRegularFile(gz)) {
+                    original = Digest.of(Files.newInputStream(source));
+                    if (!holds(gz, original)) {
+                        original = null;
+                    }
+                }
+                if (original == null) {
+                    original = compress(source, gz);
+                    if (!holds(gz, original)) {
+                        Logger.getLogger("EliteLogs").warning("Archive failed for " + key
+                                + ": archive does not match the original");
+                        return false;
+                    }
+                }
+                if (original.length != length || file.length() != length || file.lastModified() != modified) {
+                    Logger.getLogger("EliteLogs").warning("Archive kept " + key + ": it changed while being archived");
+                    return false;
+                }
+                manifest.record(key, new Manifest.Entry(length, modified, original.crc, Files.size(gz)));
+            }
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(TimeIndex.sidecar(file).toPath());
+            Files.deleteIfExists(TokenFilter.sidecar(file).toPath());
+            return true;
+        } catch(Exception ex) {
+            Logger.getLogger("EliteLogs").warning("Archive failed for " + key + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Whether {@code gz} unpacks to exactly the bytes {@code original} was
+     * taken from; a damaged archive does not.
+     */
+    private static boolean holds(Path gz, Digest original) {
+        try {
+            return original.equals(Digest.of(new GZIPInputStream(Files.newInputStream(gz), BUFFER)));
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes {@code source} to {@code gz} through a synced temporary file
+     * and returns the digest of the bytes read.
+     */
+    private static Digest compress(Path source, Path gz) throws IOException {
+        Path parent = gz.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = gz.resolveSibling(gz.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        long total = 0L;
+        FileOutputStream out = new FileOutputStream(temporary.toFile());
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(out, BUFFER), BUFFER);
+             InputStream in = Files.newInputStream(source)) {
+            byte[] buffer = new byte[BUFFER];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                gzip.write(buffer, 0, read);
+                crc.update(buffer, 0, read);
+                total += read;
+            }
+            gzip.finish();
+            gzip.flush();
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temporary, gz, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temporary, gz, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new Digest(crc.getValue(), total);
+    }
+
+    private static final class Digest {
+        private final long crc;
+        private final long length;
+
+        private Digest(long crc, long length) {
+            this.crc = crc;
+            this.length = length;
+        }
+
+        /**
+         * Reads {@code in} to the end and closes it.
+         */
+        private static Digest of(InputStream in) throws IOException {
+            CRC32 crc = new CRC32();
+            long total = 0L;
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[BUFFER];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    total += read;
+                }
+            }
+            return new Digest(crc.getValue(), total);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Digest && ((Digest) other).crc == crc && ((Digest) other).length == length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(crc) * 31 + Long.hashCode(length);
+        }
+    }
+
+    /**
+     * {@code archive/manifest.tsv}: one line per verified archive with the
+     * path under {@code logs/}, the original's length, modification time and
+     * CRC-32 and the archive's length. Lines are appended as archives are
+     * verified, before their originals are deleted; later lines win, and
+     * superseded ones are dropped when the manifest is next opened.
+     */
+    private static final class Manifest implements Closeable {
+        private final Map<String, Entry> entries;
+        private final BufferedWriter writer;
+
+        private Manifest(Map<String, Entry> entries, BufferedWriter writer) {
+            this.entries = entries;
+            this.writer = writer;
+        }
+
+        static Manifest open(Path path) throws IOException {
+            Map<String, Entry> entries = new ConcurrentHashMap<>();
+            int lines = 0;
+            if (Files.isRegularFile(path)) {
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split("\t");
+                        if (parts.length != 5) {
+                            continue;
+                        }
+                        try {
+                            entries.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                                    Long.parseLong(parts[3], 16), Long.parseLong(parts[4])));
+                            lines++;
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+            }
+            if (lines > entries.size()) {
+                Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+                try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                        out.write(format(entry.getKey(), entry.getValue()));
+                        out.newLine();
+                    }
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new Manifest(entries, writer);
+        }
+
+        Entry get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void record(String key, Entry entry) throws IOException {
+            writer.write(format(key, entry));
+            writer.newLine();
+            writer.flush();
+            entries.put(key, entry);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+
+        private static String format(String key, Entry entry) {
+            return key + '\t' + entry.length + '\t' + entry.modified + '\t' + Long.toHexString(entry.crc)
+                    + '\t' + entry.archiveLength;
+        }
+
+        static final class Entry {
+            private final long length;
+            private final long modified;
+            private final long crc;
+            private final long archiveLength;
+
+            Entry(long length, long modified, long crc, long archiveLength) {
+                this.length = length;
+                this.modified = modified;
+                this.crc = crc;
+                this.archiveLength = archiveLength;
+            }
+
+            boolean describes(long length, long modified) {
+                return this.length == length && this.modified == modified;
+            }
+        }
+    }
 }
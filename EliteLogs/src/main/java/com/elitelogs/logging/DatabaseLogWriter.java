@@ -9,9 +9,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,7 +40,9 @@ import java.util.logging.Logger;
  */
 public final class DatabaseLogWriter implements AutoCloseable {
 
-    private static final int SCHEMA_VERSION = 2;
+    private static final int SCHEMA_VERSION = 3;
+    /** First schema version whose event types are the lines' leading {@code [tag]}. */
+    private static final int EVENT_TAG_SCHEMA_VERSION = 3;
     private static final int MAX_EVENT_TYPE_LENGTH = 64;
 
     private final Plugin plugin;
@@ -57,9 +61,15 @@ public final class DatabaseLogWriter implements AutoCloseable {
     private final boolean autoUpgrade;
     private final String schemaInfoTable;
     private final String registryTable;
+    private volatile boolean backfillEventTypes;
+    private final LogMetrics metrics;
+    private final WriteGenerations generations;
 
-    public DatabaseLogWriter(Plugin plugin, DatabaseSettings settings, Collection<String> initialCategories) throws SQLException {
+    public DatabaseLogWriter(Plugin plugin, DatabaseSettings settings, Collection<String> initialCategories,
+                             LogMetrics metrics, WriteGenerations generations) throws SQLException {
         this.plugin = plugin;
+        this.metrics = metrics;
+        this.generations = generations;
         this.settings = settings;
         this.logger = plugin.getLogger();
         this.tablePrefix = settings.getTablePrefix();
@@ -92,6 +102,13 @@ public final class DatabaseLogWriter implements AutoCloseable {
         return settings;
     }
 
+    /**
+     * Entries waiting for the worker thread to batch them into MySQL.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
     public void ensureCategories(Collection<String> categories) {
         if (categories == null || categories.isEmpty()) {
             return;
@@ -121,6 +138,19 @@ public final class DatabaseLogWriter implements AutoCloseable {
     }
 
     public List<DbRecord> fetchRecentRecords(String category, int limit) {
+        return fetchRecentRecords(category, null, null, limit);
+    }
+
+    /**
+     * Returns the newest rows with {@code from <= occurred_at < to}, newest
+     * first. Either bound may be {@code null}; bounded queries are answered
+     * by a range scan on the {@code occurred_at} index.
+     */
+    public List<DbRecord> fetchRecentRecords(String category, Instant from, Instant to, int limit) {
+        return fetchRecentRecords(category, from, to, limit, QueryContext.none());
+    }
+
+    public List<DbRecord> fetchRecentRecords(String category, Instant from, Instant to, int limit, QueryContext context) {
         if (category == null || category.trim().isEmpty()) {
             return Collections.emptyList();
         }
@@ -129,72 +159,362 @@ public final class DatabaseLogWriter implements AutoCloseable {
         try (Connection connection = dataSource.getConnection()) {
             ensureTable(connection, category, table);
             try (PreparedStatement ps = connection.prepareStatement(
-                    "SELECT occurred_at, event_type, message, player_uuid, player_name, tags, context " +
-                            "FROM `" + table + "` ORDER BY occurred_at DESC LIMIT ?")) {
-                ps.setInt(1, normalizedLimit);
-                try (ResultSet rs = ps.executeQuery()) {
-                    return extractRecords(category, table, rs);
-                }
+                    "SELECT occurred_at, event_type, message, player_uuid, player_name, tags, context, id " +
+                            "FROM `" + table + "` WHERE 1 = 1" + rangeClause(from, to) +
+                            " ORDER BY occurred_at DESC LIMIT ?")) {
+                int index = bindRange(ps, 1, from, to);
+                ps.setInt(index, normalizedLimit);
+                return query(ps, context, rs -> extractRecords(category, table, rs));
             }
         } catch (SQLException ex) {
-            logger.log(Level.WARNING, "[EliteLogs] Failed to fetch recent MySQL logs for " + category, ex);
+            if (context.isCancelled()) {
+                context.markTruncated();
+            } else {
+                logger.log(Level.WARNING, "[EliteLogs] Failed to fetch recent MySQL logs for " + category, ex);
+            }
         }
         return Collections.emptyList();
     }
 
-    public List<DbRecord> searchRecords(String category, String query, int limit) {
+    public List<DbRecord> searchRecords(String category, LogQuery query, int limit) {
+        return searchRecords(category, query, null, null, limit);
+    }
+
+    public List<DbRecord> searchRecords(String category, LogQuery query, Instant from, Instant to, int limit) {
+        return searchRecords(category, query, from, to, limit, QueryContext.none());
+    }
+
+    /**
+     * Newest rows matching {@code query}, or the newest rows when it is
+     * {@code null}. The query becomes the WHERE clause with its values bound
+     * as parameters; plain text is one substring of the message, player name
+     * or event type.
+     */
+    public List<DbRecord> searchRecords(String category, LogQuery query, Instant from, Instant to, int limit,
+                                        QueryContext context) {
         if (category == null || category.trim().isEmpty()) {
             return Collections.emptyList();
         }
-        String trimmed = query != null ? query.trim() : "";
-        if (trimmed.isEmpty()) {
-            return fetchRecentRecords(category, limit);
+        if (query == null) {
+            return fetchRecentRecords(category, from, to, limit, context);
         }
+        List<Object> parameters = new ArrayList<>();
+        String condition = query.toSql(parameters);
         int normalizedLimit = Math.max(1, Math.min(limit, 5_000));
         String table = tableNameFor(category);
         try (Connection connection = dataSource.getConnection()) {
             ensureTable(connection, category, table);
             try (PreparedStatement ps = connection.prepareStatement(
-                    "SELECT occurred_at, event_type, message, player_uuid, player_name, tags, context " +
-                            "FROM `" + table + "` WHERE message LIKE ? OR player_name LIKE ? OR event_type LIKE ? " +
-                            "ORDER BY occurred_at DESC LIMIT ?")) {
-                String pattern = '%' + trimmed + '%';
-                ps.setString(1, pattern);
-                ps.setString(2, pattern);
-                ps.setString(3, pattern);
-                ps.setInt(4, normalizedLimit);
-                try (ResultSet rs = ps.executeQuery()) {
-                    return extractRecords(category, table, rs);
+                    "SELECT occurred_at, event_type, message, player_uuid, player_name, tags, context, id " +
+                            "FROM `" + table + "` WHERE " + condition +
+                            rangeClause(from, to) + " ORDER BY occurred_at DESC LIMIT ?")) {
+                boolean binaryUuid = playerUuidColumnTypeFor(table) == PlayerUuidColumnType.BINARY;
+                int index = 1;
+                for (Object parameter : parameters) {
+                    if (parameter instanceof UUID) {
+                        UUID uuid = (UUID) parameter;
+                        if (binaryUuid) {
+                            ps.setBytes(index++, uuidToBytes(uuid));
+                        } else {
+                            ps.setString(index++, uuid.toString());
+                        }
+                    } else if (parameter instanceof LocalTime) {
+                        ps.setTime(index++, Time.valueOf((LocalTime) parameter));
+                    } else {
+                        ps.setString(index++, (String) parameter);
+                    }
                 }
+                index = bindRange(ps, index, from, to);
+                ps.setInt(index, normalizedLimit);
+                return query(ps, context, rs -> extractRecords(category, table, rs));
             }
         } catch (SQLException ex) {
-            logger.log(Level.WARNING, "[EliteLogs] Failed to search MySQL logs for " + category, ex);
+            if (context.isCancelled()) {
+                context.markTruncated();
+            } else {
+                logger.log(Level.WARNING, "[EliteLogs] Failed to search MySQL logs for " + category, ex);
+            }
         }
         return Collections.emptyList();
     }
 
-    public List<String> listRegisteredCategories() {
-        LinkedHashSet<String> categories = new LinkedHashSet<>();
-        categories.addAll(tableNames.keySet());
+    /**
+     * Returns rows inserted after {@code afterId} with
+     * {@code from <= occurred_at < to}, in insertion order. The auto-increment
+     * id doubles as the incremental cursor because it never goes backwards,
+     * unlike {@code occurred_at} which can tie within a millisecond. Without a
+     * cursor the first id at {@code from} is located through the
+     * {@code occurred_at} index, so an old window starts with a range scan
+     * instead of walking the table from the beginning.
+     */
+    public List<DbRecord> fetchRecordsAfter(String category, long afterId, Instant from, Instant to, int limit) {
+        return fetchRecordsAfter(category, afterId, from, to, limit, QueryContext.none());
+    }
+
+    public List<DbRecord> fetchRecordsAfter(String category, long afterId, Instant from, Instant to, int limit,
+                                            QueryContext context) {
+        if (category == null || category.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        int normalizedLimit = Math.max(1, Math.min(limit, 5_001));
+        String table = tableNameFor(category);
         try (Connection connection = dataSource.getConnection()) {
-            ensureRegistryTable(connection);
+            ensureTable(connection, category, table);
+            long startId = afterId;
+            if (afterId <= 0L && from != null) {
+                long first = firstIdAt(connection, table, from);
+                if (first < 0L) {
+                    return Collections.emptyList();
+                }
+                startId = first - 1L;
+            }
             try (PreparedStatement ps = connection.prepareStatement(
-                    "SELECT category FROM `" + registryTable + "` ORDER BY category ASC")) {
-                try (ResultSet rs = ps.executeQuery()) {
+                    "SELECT occurred_at, event_type, message, player_uuid, player_name, tags, context, id " +
+                            "FROM `" + table + "` WHERE id > ?" + rangeClause(from, to) + " ORDER BY id ASC LIMIT ?")) {
+                ps.setLong(1, startId);
+                int index = bindRange(ps, 2, from, to);
+                ps.setInt(index, normalizedLimit);
+                return query(ps, context, rs -> extractRecords(category, table, rs));
+            }
+        } catch (SQLException ex) {
+            if (context.isCancelled()) {
+                context.markTruncated();
+            } else {
+                logger.log(Level.WARNING, "[EliteLogs] Failed to fetch new MySQL logs for " + category, ex);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Counts rows with {@code from <= occurred_at < to} grouped by any of an
+     * epoch-aligned time bucket, the event type and the player, optionally
+     * restricted to one event type. The grouping runs in MySQL: the event and
+     * player indexes both carry {@code occurred_at}, so the count is answered
+     * from an index without reading the rows. At most {@code maxGroups + 1}
+     * groups are returned so callers can tell when the result was cut short.
+     *
+     * @param bucketSeconds bucket width, or {@code 0} to not group by time
+     */
+    public List<DbGroup> countGroups(String category, long bucketSeconds, boolean byEventType, boolean byPlayer,
+                                     String eventType, Instant from, Instant to, int maxGroups,
+                                     QueryContext context) {
+        if (category == null || category.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        String table = tableNameFor(category);
+        List<String> groupBy = new ArrayList<>();
+        if (bucketSeconds > 0L) {
+            groupBy.add("bucket");
+        }
+        if (byEventType) {
+            groupBy.add("event_type");
+        }
+        if (byPlayer) {
+            groupBy.add("player_uuid");
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (bucketSeconds > 0L) {
+            sql.append("UNIX_TIMESTAMP(occurred_at) DIV ? AS bucket, ");
+        }
+        if (byEventType) {
+            sql.append("event_type, ");
+        }
+        if (byPlayer) {
+            sql.append("player_uuid, ");
+        }
+        sql.append("COUNT(*) FROM `").append(table).append("` WHERE 1 = 1");
+        if (eventType != null) {
+            sql.append(" AND event_type = ?");
+        }
+        sql.append(rangeClause(from, to));
+        if (!groupBy.isEmpty()) {
+            sql.append(" GROUP BY ").append(String.join(", ", groupBy));
+            // Oldest buckets first, biggest groups first within a bucket, so the cut keeps a stable prefix.
+            List<String> orderBy = new ArrayList<>();
+            if (bucketSeconds > 0L) {
+                orderBy.add("bucket ASC");
+            }
+            orderBy.add("COUNT(*) DESC");
+            for (String column : groupBy) {
+                if (!column.equals("bucket")) {
+                    orderBy.add(column + " ASC");
+                }
+            }
+            sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+        }
+        sql.append(" LIMIT ?");
+        try (Connection connection = dataSource.getConnection()) {
+            ensureTable(connection, category, table);
+            PlayerUuidColumnType columnType = playerUuidColumnTypeFor(table);
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                if (bucketSeconds > 0L) {
+                    ps.setLong(index++, bucketSeconds);
+                }
+                if (eventType != null) {
+                    ps.setString(index++, eventType);
+                }
+                index = bindRange(ps, index, from, to);
+                ps.setInt(index, Math.max(1, maxGroups) + 1);
+                return query(ps, context, rs -> {
+                    List<DbGroup> groups = new ArrayList<>();
                     while (rs.next()) {
-                        String category = rs.getString(1);
-                        if (category != null && !category.trim().isEmpty()) {
-                            categories.add(category.trim());
+                        int column = 1;
+                        long bucketStart = bucketSeconds > 0L ? rs.getLong(column++) * bucketSeconds * 1000L : 0L;
+                        String type = byEventType ? rs.getString(column++) : null;
+                        UUID uuid = null;
+                        if (byPlayer) {
+                            uuid = columnType == PlayerUuidColumnType.BINARY
+                                    ? bytesToUuid(rs.getBytes(column++))
+                                    : stringToUuid(rs.getString(column++));
                         }
+                        groups.add(new DbGroup(bucketStart, type, uuid, rs.getLong(column)));
                     }
+                    return groups;
+                });
+            }
+        } catch (SQLException ex) {
+            if (context.isCancelled()) {
+                context.markTruncated();
+            } else {
+                logger.log(Level.WARNING, "[EliteLogs] Failed to aggregate MySQL logs for " + category, ex);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns up to {@code limit} rows of {@code player} with
+     * {@code from <= occurred_at < to}, oldest first. When {@code afterAt} is
+     * set only rows after ({@code afterAt}, {@code afterId}) in
+     * {@code (occurred_at, id)} order are returned, which is the order of the
+     * {@code (player_uuid, occurred_at)} index the query walks.
+     */
+    public List<DbRecord> fetchPlayerRecords(String category, UUID player, Instant from, Instant to,
+                                             Instant afterAt, long afterId, int limit, QueryContext context) {
+        if (category == null || category.trim().isEmpty() || player == null) {
+            return Collections.emptyList();
+        }
+        int normalizedLimit = Math.max(1, Math.min(limit, 5_001));
+        String table = tableNameFor(category);
+        try (Connection connection = dataSource.getConnection()) {
+            ensureTable(connection, category, table);
+            String after = afterAt != null ? " AND (occurred_at > ? OR (occurred_at = ? AND id > ?))" : "";
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT occurred_at, event_type, message, player_uuid, player_name, tags, context, id " +
+                            "FROM `" + table + "` WHERE player_uuid = ?" + rangeClause(from, to) + after +
+                            " ORDER BY occurred_at ASC, id ASC LIMIT ?")) {
+                if (playerUuidColumnTypeFor(table) == PlayerUuidColumnType.BINARY) {
+                    ps.setBytes(1, uuidToBytes(player));
+                } else {
+                    ps.setString(1, player.toString());
                 }
+                int index = bindRange(ps, 2, from, to);
+                if (afterAt != null) {
+                    Timestamp at = Timestamp.from(afterAt);
+                    ps.setTimestamp(index++, at);
+                    ps.setTimestamp(index++, at);
+                    ps.setLong(index++, afterId);
+                }
+                ps.setInt(index, normalizedLimit);
+                return query(ps, context, rs -> extractRecords(category, table, rs));
+            }
+        } catch (SQLException ex) {
+            if (context.isCancelled()) {
+                context.markTruncated();
+            } else {
+                logger.log(Level.WARNING, "[EliteLogs] Failed to fetch MySQL player logs for " + category, ex);
             }
+        }
+        return Collections.emptyList();
+    }
+
+    private long firstIdAt(Connection connection, String table, Instant from) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT id FROM `" + table + "` WHERE occurred_at >= ? ORDER BY occurred_at ASC, id ASC LIMIT 1")) {
+            ps.setTimestamp(1, Timestamp.from(from));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1L;
+            }
+        }
+    }
+
+    /**
+     * Runs the query and hands its rows to {@code reader}. Cancelling
+     * {@code context} cancels the statement until every row has been read,
+     * and the remaining time is also passed on as the statement's own
+     * timeout.
+     */
+    @SuppressWarnings("try")
+    private static <T> T query(PreparedStatement ps, QueryContext context, RowReader<T> reader) throws SQLException {
+        int remaining = context.remainingSeconds();
+        if (remaining > 0) {
+            ps.setQueryTimeout(remaining);
+        }
+        try (QueryContext.Registration ignored = context.onCancel(() -> cancelQuietly(ps))) {
+            if (context.isCancelled()) {
+                throw new SQLException("Query cancelled");
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return reader.read(rs);
+            }
+        }
+    }
+
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static String rangeClause(Instant from, Instant to) {
+        return (from != null ? " AND occurred_at >= ?" : "") + (to != null ? " AND occurred_at < ?" : "");
+    }
+
+    private static int bindRange(PreparedStatement ps, int index, Instant from, Instant to) throws SQLException {
+        if (from != null) {
+            ps.setTimestamp(index++, Timestamp.from(from));
+        }
+        if (to != null) {
+            ps.setTimestamp(index++, Timestamp.from(to));
+        }
+        return index;
+    }
+
+    public List<String> listRegisteredCategories() {
+        LinkedHashSet<String> categories = new LinkedHashSet<>();
+        categories.addAll(tableNames.keySet());
+        try (Connection connection = dataSource.getConnection()) {
+            ensureRegistryTable(connection);
+            categories.addAll(listRegisteredCategories(connection));
         } catch (SQLException ex) {
             logger.log(Level.WARNING, "[EliteLogs] Failed to list MySQL categories: " + ex.getMessage(), ex);
         }
         return new ArrayList<>(categories);
     }
 
+    private List<String> listRegisteredCategories(Connection connection) throws SQLException {
+        List<String> categories = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT category FROM `" + registryTable + "` ORDER BY category ASC")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String category = rs.getString(1);
+                    if (category != null && !category.trim().isEmpty()) {
+                        categories.add(category.trim());
+                    }
+                }
+            }
+        }
+        return categories;
+    }
+
     @Override
     public void close() {
         if (!running.compareAndSet(true, false)) {
@@ -249,10 +569,17 @@ public final class DatabaseLogWriter implements AutoCloseable {
         if (buffer.isEmpty()) {
             return;
         }
+        long started = System.nanoTime();
+        boolean ok = false;
         try {
             flush(buffer);
+            ok = true;
         } catch (Exception ex) {
             logger.log(Level.WARNING, "[EliteLogs] Database flush failed: " + ex.getMessage(), ex);
+        } finally {
+            if (metrics != null) {
+                metrics.databaseFlushed(buffer.size(), System.nanoTime() - started, ok);
+            }
         }
     }
 
@@ -287,6 +614,14 @@ public final class DatabaseLogWriter implements AutoCloseable {
                 connection.setAutoCommit(true);
             }
         }
+        if (generations != null) {
+            Set<String> committed = new HashSet<>();
+            for (DbEntry entry : buffer) {
+                if (entry.category != null && committed.add(entry.category)) {
+                    generations.bump(entry.category);
+                }
+            }
+        }
     }
 
     private Map<String, List<DbEntry>> groupByTable(Connection connection, List<DbEntry> buffer) throws SQLException {
@@ -304,22 +639,35 @@ public final class DatabaseLogWriter implements AutoCloseable {
 
     private void initialiseSchema(Connection connection, Collection<String> categories) throws SQLException {
         if (autoUpgrade) {
-            ensureSchemaInfoTable(connection);
+            backfillEventTypes = ensureSchemaInfoTable(connection) < EVENT_TAG_SCHEMA_VERSION;
         }
         ensureRegistryTable(connection);
-        if (categories == null) {
-            return;
+        Set<String> initial = new LinkedHashSet<>();
+        if (categories != null) {
+            initial.addAll(categories);
+        }
+        if (backfillEventTypes) {
+            // Every existing table has to be backfilled before the new version is recorded.
+            initial.addAll(listRegisteredCategories(connection));
         }
-        for (String category : categories) {
+        for (String category : initial) {
             if (category == null || category.trim().isEmpty()) {
                 continue;
             }
             String table = tableNameFor(category);
             ensureTable(connection, category, table);
         }
+        if (autoUpgrade) {
+            recordSchemaVersion(connection);
+            backfillEventTypes = false;
+        }
     }
 
-    private void ensureSchemaInfoTable(Connection connection) throws SQLException {
+    /**
+     * Creates the schema info table and returns the version recorded in it,
+     * or {@code 0} when none was.
+     */
+    private int ensureSchemaInfoTable(Connection connection) throws SQLException {
         try (Statement statement = connection.createStatement()) {
             statement.execute("CREATE TABLE IF NOT EXISTS `" + schemaInfoTable + "` (" +
                     "id TINYINT NOT NULL PRIMARY KEY," +
@@ -327,6 +675,15 @@ public final class DatabaseLogWriter implements AutoCloseable {
                     "applied_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)" +
                     ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
         }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT schema_version FROM `" + schemaInfoTable + "` WHERE id = 1")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private void recordSchemaVersion(Connection connection) throws SQLException {
         try (PreparedStatement ps = connection.prepareStatement(
                 "INSERT INTO `" + schemaInfoTable + "` (id, schema_version) VALUES (1, ?) " +
                         "ON DUPLICATE KEY UPDATE schema_version = VALUES(schema_version), applied_at = CURRENT_TIMESTAMP(6)")) {
@@ -426,6 +783,53 @@ public final class DatabaseLogWriter implements AutoCloseable {
         }
 
         ensureIndexes(connection, table);
+        if (backfillEventTypes) {
+            backfillEventTypes(connection, table);
+        }
+    }
+
+    /**
+     * Rewrites rows written before schema version 3, which stored the
+     * category as their event type, to the leading {@code [tag]} of their
+     * message as {@link #eventTypeFor} now does. Rows carrying an explicit
+     * {@code type:} tag or no leading tag keep their value.
+     */
+    private void backfillEventTypes(Connection connection, String table) throws SQLException {
+        String fallback = inferCategoryFromTableName(table);
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, message, tags FROM `" + table + "` WHERE event_type = ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE `" + table + "` SET event_type = ? WHERE id = ?")) {
+            select.setString(1, fallback);
+            try (ResultSet rs = select.executeQuery()) {
+                int batchCount = 0;
+                while (rs.next()) {
+                    String tags = rs.getString(3);
+                    if (tags != null && tags.toLowerCase(Locale.ROOT).contains("\"type:")) {
+                        continue;
+                    }
+                    String tag = LogLines.eventType(rs.getString(2), null);
+                    if (tag == null) {
+                        continue;
+                    }
+                    String type = normalizeEventType(tag);
+                    if (type.equals(fallback)) {
+                        continue;
+                    }
+                    update.setString(1, type);
+                    update.setLong(2, rs.getLong(1));
+                    update.addBatch();
+                    batchCount++;
+                    if (batchCount >= 500) {
+                        update.executeBatch();
+                        batchCount = 0;
+                    }
+                }
+                if (batchCount > 0) {
+                    update.executeBatch();
+                }
+            }
+        }
     }
 
     private void ensureIndexes(Connection connection, String table) throws SQLException {
@@ -699,12 +1103,19 @@ public final class DatabaseLogWriter implements AutoCloseable {
 
     private String eventTypeFor(DbEntry entry) {
         String type = extractTagValue(entry.tags, "type");
+        if (type == null) {
+            type = LogLines.eventType(entry.message, null);
+        }
         if (type == null) {
             type = extractTagValue(entry.tags, "category");
         }
         if (type == null) {
             type = entry.category;
         }
+        return normalizeEventType(type);
+    }
+
+    private static String normalizeEventType(String type) {
         String sanitized = sanitizeCategory(type);
         if (sanitized.length() > MAX_EVENT_TYPE_LENGTH) {
             sanitized = sanitized.substring(0, MAX_EVENT_TYPE_LENGTH);
@@ -834,7 +1245,8 @@ public final class DatabaseLogWriter implements AutoCloseable {
             String playerName = rs.getString(5);
             String tagsJson = rs.getString(6);
             String contextJson = rs.getString(7);
-            records.add(new DbRecord(category, occurredAt, eventType, message, uuid, playerName, tagsJson, contextJson));
+            long id = rs.getLong(8);
+            records.add(new DbRecord(id, category, occurredAt, eventType, message, uuid, playerName, tagsJson, contextJson));
         }
         return records;
     }
@@ -994,7 +1406,38 @@ public final class DatabaseLogWriter implements AutoCloseable {
         }
     }
 
+    public static final class DbGroup {
+        private final long bucketStartMillis;
+        private final String eventType;
+        private final UUID playerUuid;
+        private final long count;
+
+        private DbGroup(long bucketStartMillis, String eventType, UUID playerUuid, long count) {
+            this.bucketStartMillis = bucketStartMillis;
+            this.eventType = eventType;
+            this.playerUuid = playerUuid;
+            this.count = count;
+        }
+
+        public long getBucketStartMillis() {
+            return bucketStartMillis;
+        }
+
+        public String getEventType() {
+            return eventType;
+        }
+
+        public UUID getPlayerUuid() {
+            return playerUuid;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
     public static final class DbRecord {
+        private final long id;
         private final String category;
         private final Instant occurredAt;
         private final String eventType;
@@ -1004,8 +1447,9 @@ public final class DatabaseLogWriter implements AutoCloseable {
         private final String tagsJson;
         private final String contextJson;
 
-        private DbRecord(String category, Instant occurredAt, String eventType, String message,
+        private DbRecord(long id, String category, Instant occurredAt, String eventType, String message,
                          UUID playerUuid, String playerName, String tagsJson, String contextJson) {
+            this.id = id;
             this.category = category;
             this.occurredAt = occurredAt;
             this.eventType = eventType;
@@ -1016,6 +1460,10 @@ public final class DatabaseLogWriter implements AutoCloseable {
             this.contextJson = contextJson;
         }
 
+        public long getId() {
+            return id;
+        }
+
         public String getCategory() {
             return category;
         }
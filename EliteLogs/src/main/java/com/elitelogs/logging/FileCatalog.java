@@ -0,0 +1,326 @@
+package com.elitelogs.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory listing of a folder's subfolders and of the files directly
+ * inside each of them, so request paths never list directories. A folder is
+ * read once on first use and then kept current by the writers through
+ * {@link #recordWrite} and by a {@link WatchService} for anything else that
+ * touches it. When the platform cannot watch the folder every lookup lists
+ * it again, as before.
+ */
+public final class FileCatalog {
+    private static final Pattern FILE_DATE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+
+    private final File root;
+    private final Map<String, NavigableMap<String, Entry>> folders = new ConcurrentHashMap<>();
+    private final Map<WatchKey, String> keys = new ConcurrentHashMap<>();
+    private volatile Set<String> subfolders;
+    private volatile WatchService watcher;
+    private boolean unwatchable;
+
+    public FileCatalog(File root) {
+        this.root = root.getAbsoluteFile();
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Names of the subfolders of the root, sorted.
+     */
+    public List<String> directories() {
+        if (!ensureWatching()) {
+            return scanDirectories();
+        }
+        Set<String> current = subfolders;
+        if (current == null) {
+            synchronized (this) {
+                current = subfolders;
+                if (current == null) {
+                    current = new ConcurrentSkipListSet<>();
+                    register(root.toPath(), "");
+                    current.addAll(scanDirectories());
+                    subfolders = current;
+                }
+            }
+        }
+        return new ArrayList<>(current);
+    }
+
+    /**
+     * Files directly inside {@code directory}, sorted by name; empty when the
+     * folder does not exist.
+     */
+    public List<Entry> files(String directory) {
+        if (!ensureWatching()) {
+            return new ArrayList<>(scanFiles(directory).values());
+        }
+        NavigableMap<String, Entry> entries = folders.get(directory);
+        if (entries == null) {
+            synchronized (this) {
+                entries = folders.get(directory);
+                if (entries == null) {
+                    File folder = new File(root, directory);
+                    if (!folder.isDirectory()) {
+                        return Collections.emptyList();
+                    }
+                    register(folder.toPath(), directory);
+                    entries = scanFiles(directory);
+                    folders.put(directory, entries);
+                }
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Called by a writer after appending to {@code file} in the subfolder
+     * {@code directory}, with the length the file now has.
+     */
+    public void recordWrite(String directory, File file, long length, long modifiedMillis) {
+        Set<String> current = subfolders;
+        if (current != null) {
+            current.add(directory);
+        }
+        NavigableMap<String, Entry> entries = folders.get(directory);
+        if (entries != null) {
+            entries.put(file.getName(), new Entry(file, length, modifiedMillis));
+        }
+    }
+
+    /**
+     * Stops watching and forgets the listing; the next lookup starts over.
+     */
+    public synchronized void close() {
+        WatchService current = watcher;
+        watcher = null;
+        unwatchable = false;
+        keys.clear();
+        folders.clear();
+        subfolders = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private boolean ensureWatching() {
+        return watcher != null || startWatching();
+    }
+
+    private synchronized boolean startWatching() {
+        if (watcher != null) {
+            return true;
+        }
+        if (unwatchable || !root.isDirectory()) {
+            return false;
+        }
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            watcher = service;
+            Thread thread = new Thread(() -> watch(service), "EliteLogs-Catalog");
+            thread.setDaemon(true);
+            thread.start();
+            return true;
+        } catch (IOException | UnsupportedOperationException ex) {
+            unwatchable = true;
+            Logger.getLogger("EliteLogs").fine("Cannot watch " + root + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void register(Path folder, String directory) {
+        try {
+            keys.put(folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), directory);
+        } catch (IOException ex) {
+            Logger.getLogger("EliteLogs").fine("Cannot watch " + folder + ": " + ex.getMessage());
+        }
+    }
+
+    private void watch(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+            String directory = keys.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    apply(directory, event);
+                }
+            }
+            if (!key.reset()) {
+                forget(key, directory);
+            }
+        }
+    }
+
+    /**
+     * Runs under the catalog lock so a folder being read for the first time
+     * has its listing in place before its events are applied.
+     */
+    private synchronized void apply(String directory, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            if (directory.isEmpty()) {
+                Set<String> current = subfolders;
+                if (current != null) {
+                    List<String> fresh = scanDirectories();
+                    current.retainAll(fresh);
+                    current.addAll(fresh);
+                }
+            } else {
+                NavigableMap<String, Entry> entries = folders.get(directory);
+                if (entries != null) {
+                    NavigableMap<String, Entry> fresh = scanFiles(directory);
+                    entries.keySet().retainAll(fresh.keySet());
+                    entries.putAll(fresh);
+                }
+            }
+            return;
+        }
+        String name = event.context().toString();
+        boolean deleted = event.kind() == StandardWatchEventKinds.ENTRY_DELETE;
+        if (directory.isEmpty()) {
+            Set<String> current = subfolders;
+            if (deleted) {
+                folders.remove(name);
+                if (current != null) {
+                    current.remove(name);
+                }
+            } else if (current != null && new File(root, name).isDirectory()) {
+                current.add(name);
+            }
+            return;
+        }
+        NavigableMap<String, Entry> entries = folders.get(directory);
+        if (entries == null) {
+            return;
+        }
+        File file = new File(new File(root, directory), name);
+        if (deleted || !file.isFile()) {
+            entries.remove(name);
+        } else {
+            entries.put(name, new Entry(file, file.length(), file.lastModified()));
+        }
+    }
+
+    private synchronized void forget(WatchKey key, String directory) {
+        keys.remove(key);
+        if (directory == null) {
+            return;
+        }
+        if (directory.isEmpty()) {
+            subfolders = null;
+            folders.clear();
+        } else {
+            folders.remove(directory);
+        }
+    }
+
+    private List<String> scanDirectories() {
+        File[] children = root.listFiles(File::isDirectory);
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>(children.length);
+        for (File child : children) {
+            names.add(child.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private NavigableMap<String, Entry> scanFiles(String directory) {
+        NavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+        File[] files = new File(root, directory).listFiles(File::isFile);
+        if (files != null) {
+            for (File file : files) {
+                entries.put(file.getName(), new Entry(file, file.length(), file.lastModified()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * A file as last seen. The day in its name and its last write bound the
+     * time its lines cover.
+     */
+    public static final class Entry {
+        private final File file;
+        private final long length;
+        private final long lastModified;
+        private final LocalDate day;
+
+        private Entry(File file, long length, long lastModified) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.day = parseDay(file.getName());
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getName() {
+            return file.getName();
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * The date in the file name, or {@code null}.
+         */
+        public LocalDate getDay() {
+            return day;
+        }
+
+        private static LocalDate parseDay(String name) {
+            Matcher matcher = FILE_DATE.matcher(name);
+            if (!matcher.find()) {
+                return null;
+            }
+            try {
+                return LocalDate.parse(matcher.group(1));
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+    }
+}
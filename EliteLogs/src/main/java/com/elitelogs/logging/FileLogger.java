@@ -1,24 +1,36 @@
 package com.elitelogs.logging;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 
 public class FileLogger {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
     private final File dir;
+    private final FileCatalog catalog;
+    private final String catalogDirectory;
+    private TimeIndex.Appender index;
     public FileLogger(File dir){
+        this(dir, null);
+    }
+    /**
+     * Appends also update {@code catalog} when {@code dir} is one of its
+     * subfolders.
+     */
+    public FileLogger(File dir, FileCatalog catalog){
         this.dir = dir;
+        boolean listed = catalog != null && catalog.getRoot().equals(dir.getAbsoluteFile().getParentFile());
+        this.catalog = listed ? catalog : null;
+        this.catalogDirectory = listed ? dir.getName() : null;
         try {
             Files.createDirectories(dir.toPath());
         } catch (IOException ignored) {
             dir.mkdirs();
         }
     }
-    public synchronized void append(String fileName, String line){
+    public synchronized boolean append(String fileName, String line){
         File target = new File(dir, fileName);
         File parent = target.getParentFile();
         if (parent != null && !parent.exists()) {
@@ -28,10 +40,19 @@ public class FileLogger {
                 parent.mkdirs();
             }
         }
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
-                new FileOutputStream(target, true), StandardCharsets.UTF_8))) {
-            writer.write(line);
-            writer.newLine();
-        } catch (IOException e){ e.printStackTrace(); }
+        long offset = target.length();
+        if (index == null || !index.getLog().equals(target) || offset == 0L) {
+            // A file that is empty again (archived or truncated) gets a fresh sidecar.
+            index = new TimeIndex.Appender(target);
+        }
+        byte[] bytes = (line + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream out = new FileOutputStream(target, true)) {
+            out.write(bytes);
+        } catch (IOException e){ e.printStackTrace(); return false; }
+        index.record(line, offset);
+        if (catalog != null) {
+            catalog.recordWrite(catalogDirectory, target, offset + bytes.length, System.currentTimeMillis());
+        }
+        return true;
     }
 }
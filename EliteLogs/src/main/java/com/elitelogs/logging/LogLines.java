@@ -0,0 +1,193 @@
+package com.elitelogs.logging;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Reads the structure the router puts at the front of every line: an
+ * optional {@code [HH:mm:ss]} stamp, an optional {@code [name|uuid]} player
+ * decoration and then the message, which by convention opens with its event
+ * type in brackets ({@code [kick] reason=...}, {@code [cmd] /spawn}).
+ */
+public final class LogLines {
+    private static final int MAX_TYPE_LENGTH = 32;
+    private static final int STAMP_LENGTH = "[HH:mm:ss]".length();
+
+    private LogLines() {
+    }
+
+    /**
+     * Event type named by the leading {@code [tag]} of the message, lower
+     * cased with anything outside {@code [a-z0-9_]} folded to underscores so it
+     * matches what the database stores. Falls back to {@code fallback} when the
+     * message has no such tag.
+     */
+    public static String eventType(String line, String fallback) {
+        if (line == null) {
+            return fallback;
+        }
+        int index = 0;
+        int length = line.length();
+        while (index < length) {
+            while (index < length && line.charAt(index) == ' ') {
+                index++;
+            }
+            if (index >= length || line.charAt(index) != '[') {
+                return fallback;
+            }
+            int close = line.indexOf(']', index + 1);
+            if (close < 0) {
+                return fallback;
+            }
+            if (isStamp(line, index + 1, close) || isPlayer(line, index + 1, close)) {
+                index = close + 1;
+                continue;
+            }
+            String type = normalizeType(line, index + 1, close);
+            return type != null ? type : fallback;
+        }
+        return fallback;
+    }
+
+    /**
+     * Normalises a user supplied event type the same way {@link #eventType}
+     * does, or returns {@code null} when it could never match.
+     */
+    public static String normalizeEventType(String type) {
+        if (type == null) {
+            return null;
+        }
+        String trimmed = type.trim();
+        return normalizeType(trimmed, 0, trimmed.length());
+    }
+
+    /**
+     * UUID from the {@code [name|uuid]} decoration, or {@code null} when the
+     * line does not belong to a player.
+     */
+    public static UUID playerUuid(String line) {
+        int close = playerDecorationEnd(line);
+        if (close < 0) {
+            return null;
+        }
+        int bar = line.lastIndexOf('|', close);
+        try {
+            return UUID.fromString(line.substring(bar + 1, close));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Name from the {@code [name|uuid]} decoration, or {@code null} when the
+     * line does not belong to a player.
+     */
+    public static String playerName(String line) {
+        int close = playerDecorationEnd(line);
+        if (close < 0) {
+            return null;
+        }
+        int bar = line.lastIndexOf('|', close);
+        return line.substring(line.lastIndexOf('[', bar) + 1, bar);
+    }
+
+    /**
+     * Seconds into the day from a leading {@code [HH:mm:ss]} stamp, or -1 for
+     * continuation lines. Parsed by hand because it runs for every line.
+     */
+    public static int secondOfDay(String line) {
+        if (line.length() < STAMP_LENGTH || line.charAt(0) != '[' || line.charAt(3) != ':'
+                || line.charAt(6) != ':' || line.charAt(9) != ']') {
+            return -1;
+        }
+        int hours = digits(line, 1);
+        int minutes = digits(line, 4);
+        int seconds = digits(line, 7);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return -1;
+        }
+        return hours * 3600 + minutes * 60 + seconds;
+    }
+
+    private static int digits(String line, int index) {
+        char high = line.charAt(index);
+        char low = line.charAt(index + 1);
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -1;
+        }
+        return (high - '0') * 10 + (low - '0');
+    }
+
+    /**
+     * Index of the closing bracket of the player decoration, which may only
+     * follow the stamp, or -1.
+     */
+    private static int playerDecorationEnd(String line) {
+        if (line == null) {
+            return -1;
+        }
+        int index = 0;
+        int length = line.length();
+        for (int token = 0; token < 2 && index < length; token++) {
+            while (index < length && line.charAt(index) == ' ') {
+                index++;
+            }
+            if (index >= length || line.charAt(index) != '[') {
+                return -1;
+            }
+            int close = line.indexOf(']', index + 1);
+            if (close < 0) {
+                return -1;
+            }
+            if (isPlayer(line, index + 1, close)) {
+                return close;
+            }
+            if (!isStamp(line, index + 1, close)) {
+                return -1;
+            }
+            index = close + 1;
+        }
+        return -1;
+    }
+
+    private static boolean isStamp(String line, int start, int end) {
+        if (end - start != 8 || line.charAt(start + 2) != ':' || line.charAt(start + 5) != ':') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c != ':' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlayer(String line, int start, int end) {
+        int bar = line.lastIndexOf('|', end);
+        return bar > start && end - bar - 1 == 36;
+    }
+
+    private static String normalizeType(String line, int start, int end) {
+        if (end <= start || end - start > MAX_TYPE_LENGTH) {
+            return null;
+        }
+        StringBuilder type = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = Character.toLowerCase(line.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_') {
+                type.append(c);
+            } else if (c == '-' || c == '.' || c == ':') {
+                if (type.length() > 0 && type.charAt(type.length() - 1) != '_') {
+                    type.append('_');
+                }
+            } else {
+                return null;
+            }
+        }
+        while (type.length() > 0 && type.charAt(type.length() - 1) == '_') {
+            type.setLength(type.length() - 1);
+        }
+        return type.length() > 0 ? type.toString().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.elitelogs.logging;
+
+import com.elitelogs.metrics.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters kept by the logging pipeline for the metrics endpoint. Everything
+ * is a {@link LongAdder} so the router, the file writer and the database
+ * worker can record without contending with each other or with a scrape.
+ */
+public final class LogMetrics {
+    private final Map<String, LongAdder> written = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> suppressed = new ConcurrentHashMap<>();
+    private final LongAdder pendingFileWrites = new LongAdder();
+    private final LongAdder fileWriteFailures = new LongAdder();
+    private final LongAdder databaseRows = new LongAdder();
+    private final LongAdder databaseFailures = new LongAdder();
+    private final LatencyHistogram fileWriteLatency = new LatencyHistogram();
+    private final LatencyHistogram databaseFlushLatency = new LatencyHistogram();
+
+    void recordWritten(String category) {
+        counter(written, category).increment();
+    }
+
+    void recordSuppressed(String category) {
+        counter(suppressed, category).increment();
+    }
+
+    void fileWriteQueued() {
+        pendingFileWrites.increment();
+    }
+
+    void fileWriteFinished(long nanos, boolean ok) {
+        pendingFileWrites.decrement();
+        fileWriteLatency.observeNanos(nanos);
+        if (!ok) {
+            fileWriteFailures.increment();
+        }
+    }
+
+    void databaseFlushed(int rows, long nanos, boolean ok) {
+        databaseFlushLatency.observeNanos(nanos);
+        if (ok) {
+            databaseRows.add(rows);
+        } else {
+            databaseFailures.increment();
+        }
+    }
+
+    public Map<String, Long> getWrittenByCategory() {
+        return snapshot(written);
+    }
+
+    public Map<String, Long> getSuppressedByCategory() {
+        return snapshot(suppressed);
+    }
+
+    public long getPendingFileWrites() {
+        return Math.max(0L, pendingFileWrites.sum());
+    }
+
+    public long getFileWriteFailures() {
+        return fileWriteFailures.sum();
+    }
+
+    public long getDatabaseRows() {
+        return databaseRows.sum();
+    }
+
+    public long getDatabaseFailures() {
+        return databaseFailures.sum();
+    }
+
+    public LatencyHistogram getFileWriteLatency() {
+        return fileWriteLatency;
+    }
+
+    public LatencyHistogram getDatabaseFlushLatency() {
+        return databaseFlushLatency;
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String category) {
+        LongAdder counter = counters.get(category);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(category, key -> new LongAdder());
+        }
+        return counter;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        if (counters.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> copy = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().sum());
+        }
+        return copy;
+    }
+}
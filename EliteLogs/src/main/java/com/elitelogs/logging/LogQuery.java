@@ -0,0 +1,709 @@
+package com.elitelogs.logging;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Boolean search over log lines, for example
+ * {@code player:Steve AND (cmd:/give OR "op ") AND NOT world:lobby AND time>21:00}.
+ * <ul>
+ *     <li>{@code AND}, {@code OR} and {@code NOT} (upper case) with
+ *     parentheses; {@code NOT} binds tightest, then {@code AND}, which may be
+ *     left out, then {@code OR}.</li>
+ *     <li>A word or a quoted phrase matches lines containing it, ignoring
+ *     case.</li>
+ *     <li>{@code player:} takes a name or a UUID, {@code uuid:} a UUID and
+ *     {@code type:} an event type; they match the line's player decoration
+ *     and event type exactly.</li>
+ *     <li>{@code time>}, {@code time>=}, {@code time<} and {@code time<=}
+ *     compare the time of day the line was written with {@code HH:mm} or
+ *     {@code HH:mm:ss}.</li>
+ *     <li>Any other {@code key:value} matches lines containing
+ *     {@code key=value}, the way details are written, or lines of event
+ *     type {@code key} containing {@code value}, so {@code cmd:/give} finds
+ *     {@code [cmd] /give ...}.</li>
+ * </ul>
+ * A query that uses none of this is not parsed at all and keeps its old
+ * meaning of one case-insensitive phrase. Queries are parsed once per request
+ * with {@link #of(String)}, evaluated directly against lines by the file and
+ * buffer providers and compiled to SQL for the database. Two queries are
+ * equal when they were made from the same text the same way.
+ */
+public final class LogQuery {
+    private final Node root;
+    private final String text;
+    private final boolean literal;
+
+    private LogQuery(Node root, String text, boolean literal) {
+        this.root = root;
+        this.text = text;
+        this.literal = literal;
+    }
+
+    /**
+     * The query {@code text} asks for: {@code null} when it is blank, a
+     * {@link #literal(String)} phrase when it is plain text, otherwise the
+     * parsed query.
+     *
+     * @throws IllegalArgumentException when the query is malformed
+     */
+    public static LogQuery of(String text) {
+        String trimmed = text != null ? text.trim() : "";
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        LogQuery parsed = parse(trimmed);
+        return parsed != null ? parsed : literal(trimmed);
+    }
+
+    /**
+     * Parses {@code text}, or returns {@code null} when it uses no operator,
+     * parenthesis, quote, field or time comparison and should be searched
+     * as plain text.
+     *
+     * @throws IllegalArgumentException when the query is malformed
+     */
+    public static LogQuery parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        List<Token> tokens = tokenize(text);
+        boolean structured = false;
+        for (Token token : tokens) {
+            structured |= token.kind != Kind.WORD || token.quoted || token.node(false) != null;
+        }
+        if (!structured) {
+            return null;
+        }
+        Parser parser = new Parser(tokens);
+        Node root = parser.parseOr();
+        if (parser.position < tokens.size()) {
+            throw new IllegalArgumentException("Invalid query: unexpected " + tokens.get(parser.position).describe());
+        }
+        return new LogQuery(root, text, false);
+    }
+
+    /**
+     * A query matching lines that contain {@code needle}, ignoring case.
+     */
+    public static LogQuery literal(String needle) {
+        return new LogQuery(new Term(needle), needle, true);
+    }
+
+    /**
+     * Whether {@code line} of {@code category} matches. {@code secondOfDay}
+     * is the time of day it was written, or -1 when unknown, which fails
+     * every time comparison.
+     */
+    public boolean matches(String line, int secondOfDay, String category) {
+        return root.test(new Subject(line, secondOfDay, category));
+    }
+
+    /**
+     * {@code false} only when no line can match in a file whose token filter
+     * answers {@code mightContain}, which is asked for lower cased text.
+     * Negations, types and times cannot be ruled out that way.
+     */
+    public boolean mightMatch(Predicate<String> mightContain) {
+        return root.mightMatch(mightContain);
+    }
+
+    /**
+     * Lower cased terms every matching line contains, for index lookups.
+     */
+    public List<String> requiredTerms() {
+        List<String> terms = new ArrayList<>();
+        root.collectRequired(terms);
+        return terms;
+    }
+
+    /**
+     * SQL condition over {@code message}, {@code player_name},
+     * {@code player_uuid}, {@code event_type} and {@code occurred_at}. Its
+     * placeholders are added to {@code parameters} in order as
+     * {@link String}, {@link UUID} or {@link LocalTime}. Player and type
+     * conditions are equalities so they can use the table's indexes, and
+     * nullable columns are guarded so {@code NOT} keeps lines without a
+     * player.
+     */
+    public String toSql(List<Object> parameters) {
+        StringBuilder sql = new StringBuilder();
+        root.appendSql(sql, parameters);
+        return sql.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LogQuery)) {
+            return false;
+        }
+        LogQuery query = (LogQuery) other;
+        return literal == query.literal && text.equals(query.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode() * 31 + (literal ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int length = text.length();
+        int index = 0;
+        while (index < length) {
+            char c = text.charAt(index);
+            if (Character.isWhitespace(c)) {
+                index++;
+                continue;
+            }
+            if (c == '(' || c == ')') {
+                tokens.add(new Token(c == '(' ? Kind.OPEN : Kind.CLOSE, String.valueOf(c), -1));
+                index++;
+                continue;
+            }
+            StringBuilder word = new StringBuilder();
+            int quoteStart = -1;
+            while (index < length) {
+                c = text.charAt(index);
+                if (Character.isWhitespace(c) || c == '(' || c == ')') {
+                    break;
+                }
+                if (c != '"') {
+                    word.append(c);
+                    index++;
+                    continue;
+                }
+                if (quoteStart < 0) {
+                    quoteStart = word.length();
+                }
+                int close = index + 1;
+                while (close < length && text.charAt(close) != '"') {
+                    if (text.charAt(close) == '\\' && close + 1 < length) {
+                        close++;
+                    }
+                    word.append(text.charAt(close));
+                    close++;
+                }
+                if (close >= length) {
+                    throw new IllegalArgumentException("Invalid query: unterminated quote");
+                }
+                index = close + 1;
+            }
+            String value = word.toString();
+            Kind kind = Kind.WORD;
+            if (quoteStart < 0 && ("AND".equals(value) || "OR".equals(value) || "NOT".equals(value))) {
+                kind = Kind.valueOf(value);
+            }
+            tokens.add(new Token(kind, value, quoteStart));
+        }
+        return tokens;
+    }
+
+    private static int parseTime(String value) {
+        try {
+            return LocalTime.parse(value).toSecondOfDay();
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid query: time needs HH:mm or HH:mm:ss, got " + value);
+        }
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static String likePattern(String value) {
+        StringBuilder pattern = new StringBuilder(value.length() + 2).append('%');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private enum Kind {
+        WORD, OPEN, CLOSE, AND, OR, NOT
+    }
+
+    private static final class Token {
+        private final Kind kind;
+        private final String text;
+        private final int quoteStart;
+        private final boolean quoted;
+
+        private Token(Kind kind, String text, int quoteStart) {
+            this.kind = kind;
+            this.text = text;
+            this.quoteStart = quoteStart;
+            this.quoted = quoteStart >= 0;
+        }
+
+        private String describe() {
+            return kind == Kind.WORD ? "'" + text + "'" : text;
+        }
+
+        /**
+         * The field or time comparison this word spells, looking only at the
+         * part before any quote; {@code null} for a plain word. Keys outside
+         * {@code player}, {@code uuid} and {@code type} only count when
+         * {@code generic} is set.
+         */
+        private Node node(boolean generic) {
+            String head = quoted ? text.substring(0, quoteStart) : text;
+            if (head.regionMatches(true, 0, "time", 0, 4) && head.length() > 4
+                    && (head.charAt(4) == '<' || head.charAt(4) == '>')) {
+                boolean greater = head.charAt(4) == '>';
+                boolean inclusive = head.length() > 5 && head.charAt(5) == '=';
+                return new Time(greater, inclusive, parseTime(text.substring(inclusive ? 6 : 5)));
+            }
+            int colon = head.indexOf(':');
+            if (colon <= 0) {
+                return null;
+            }
+            for (int i = 0; i < colon; i++) {
+                char c = head.charAt(i);
+                if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                    return null;
+                }
+            }
+            String key = head.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = text.substring(colon + 1);
+            boolean known = "player".equals(key) || "uuid".equals(key) || "type".equals(key);
+            if (!known && !generic) {
+                return null;
+            }
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Invalid query: " + key + ": needs a value");
+            }
+            switch (key) {
+                case "player": {
+                    UUID uuid = parseUuid(value);
+                    return uuid != null ? new Player(uuid, null) : new Player(null, value.toLowerCase(Locale.ROOT));
+                }
+                case "uuid": {
+                    UUID uuid = parseUuid(value);
+                    if (uuid == null) {
+                        throw new IllegalArgumentException("Invalid query: uuid: needs a UUID, got " + value);
+                    }
+                    return new Player(uuid, null);
+                }
+                case "type": {
+                    String type = LogLines.normalizeEventType(value);
+                    if (type == null) {
+                        throw new IllegalArgumentException("Invalid query: not an event type: " + value);
+                    }
+                    return new Type(type);
+                }
+                default:
+                    return new Pair(key, value.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int position;
+
+        private Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        private Node parseOr() {
+            List<Node> any = new ArrayList<>();
+            any.add(parseAnd());
+            while (accept(Kind.OR)) {
+                any.add(parseAnd());
+            }
+            return any.size() == 1 ? any.get(0) : new Or(any);
+        }
+
+        private Node parseAnd() {
+            List<Node> all = new ArrayList<>();
+            all.add(parseNot());
+            while (position < tokens.size()) {
+                Kind next = tokens.get(position).kind;
+                if (next == Kind.OR || next == Kind.CLOSE) {
+                    break;
+                }
+                accept(Kind.AND);
+                all.add(parseNot());
+            }
+            return all.size() == 1 ? all.get(0) : new And(all);
+        }
+
+        private Node parseNot() {
+            if (accept(Kind.NOT)) {
+                return new Not(parseNot());
+            }
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Invalid query: unexpected end");
+            }
+            Token token = tokens.get(position++);
+            if (token.kind == Kind.OPEN) {
+                Node inner = parseOr();
+                if (!accept(Kind.CLOSE)) {
+                    throw new IllegalArgumentException("Invalid query: missing )");
+                }
+                return inner;
+            }
+            if (token.kind != Kind.WORD) {
+                throw new IllegalArgumentException("Invalid query: unexpected " + token.describe());
+            }
+            Node field = token.node(true);
+            if (field != null) {
+                return field;
+            }
+            if (token.text.isEmpty()) {
+                throw new IllegalArgumentException("Invalid query: empty phrase");
+            }
+            return new Term(token.text);
+        }
+
+        private boolean accept(Kind kind) {
+            if (position < tokens.size() && tokens.get(position).kind == kind) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The line under test, with the parts a query may look at worked out on
+     * first use.
+     */
+    private static final class Subject {
+        private final String line;
+        private final int secondOfDay;
+        private final String category;
+        private String lowered;
+        private String type;
+
+        private Subject(String line, int secondOfDay, String category) {
+            this.line = line;
+            this.secondOfDay = secondOfDay;
+            this.category = category;
+        }
+
+        private String lowered() {
+            if (lowered == null) {
+                lowered = line.toLowerCase(Locale.ROOT);
+            }
+            return lowered;
+        }
+
+        private String type() {
+            if (type == null) {
+                type = LogLines.eventType(line, category);
+            }
+            return type;
+        }
+    }
+
+    private abstract static class Node {
+        abstract boolean test(Subject subject);
+
+        abstract boolean mightMatch(Predicate<String> mightContain);
+
+        void collectRequired(List<String> terms) {
+        }
+
+        abstract void appendSql(StringBuilder sql, List<Object> parameters);
+    }
+
+    private static final class Term extends Node {
+        private final String needle;
+
+        private Term(String text) {
+            this.needle = text.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            return subject.lowered().contains(needle);
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            return mightContain.test(needle);
+        }
+
+        @Override
+        void collectRequired(List<String> terms) {
+            terms.add(needle);
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append("(message LIKE ? OR COALESCE(player_name, '') LIKE ? OR event_type LIKE ?)");
+            String pattern = likePattern(needle);
+            parameters.add(pattern);
+            parameters.add(pattern);
+            parameters.add(pattern);
+        }
+    }
+
+    private static final class Player extends Node {
+        private final UUID uuid;
+        private final String name;
+
+        private Player(UUID uuid, String name) {
+            this.uuid = uuid;
+            this.name = name;
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            if (uuid != null) {
+                return uuid.equals(LogLines.playerUuid(subject.line));
+            }
+            String player = LogLines.playerName(subject.line);
+            return player != null && player.equalsIgnoreCase(name);
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            return mightContain.test(uuid != null ? uuid.toString() : name);
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            if (uuid != null) {
+                sql.append("(player_uuid IS NOT NULL AND player_uuid = ?)");
+                parameters.add(uuid);
+            } else {
+                sql.append("(player_name IS NOT NULL AND player_name = ?)");
+                parameters.add(name);
+            }
+        }
+    }
+
+    private static final class Type extends Node {
+        private final String type;
+
+        private Type(String type) {
+            this.type = type;
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            return type.equals(subject.type());
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            return true;
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append("event_type = ?");
+            parameters.add(type);
+        }
+    }
+
+    private static final class Pair extends Node {
+        private final String detail;
+        private final String type;
+        private final String value;
+
+        private Pair(String key, String value) {
+            this.detail = key + '=' + value;
+            this.type = LogLines.normalizeEventType(key);
+            this.value = value;
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            String lowered = subject.lowered();
+            return lowered.contains(detail) || (type != null && type.equals(subject.type()) && lowered.contains(value));
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            return mightContain.test(detail) || (type != null && mightContain.test(value));
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append("(message LIKE ?");
+            parameters.add(likePattern(detail));
+            if (type != null) {
+                sql.append(" OR (event_type = ? AND message LIKE ?)");
+                parameters.add(type);
+                parameters.add(likePattern(value));
+            }
+            sql.append(')');
+        }
+    }
+
+    private static final class Time extends Node {
+        private final boolean greater;
+        private final boolean inclusive;
+        private final int second;
+
+        private Time(boolean greater, boolean inclusive, int second) {
+            this.greater = greater;
+            this.inclusive = inclusive;
+            this.second = second;
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            int actual = subject.secondOfDay;
+            if (actual < 0) {
+                return false;
+            }
+            if (actual == second) {
+                return inclusive;
+            }
+            return greater == actual > second;
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            return true;
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append("TIME(occurred_at) ").append(greater ? '>' : '<').append(inclusive ? "= ?" : " ?");
+            parameters.add(LocalTime.ofSecondOfDay(second));
+        }
+    }
+
+    private static final class Not extends Node {
+        private final Node inner;
+
+        private Not(Node inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            return !inner.test(subject);
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            return true;
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append("NOT (");
+            inner.appendSql(sql, parameters);
+            sql.append(')');
+        }
+    }
+
+    private static final class And extends Node {
+        private final List<Node> all;
+
+        private And(List<Node> all) {
+            this.all = Collections.unmodifiableList(all);
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            for (Node node : all) {
+                if (!node.test(subject)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            for (Node node : all) {
+                if (!node.mightMatch(mightContain)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void collectRequired(List<String> terms) {
+            for (Node node : all) {
+                node.collectRequired(terms);
+            }
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append('(');
+            for (int i = 0; i < all.size(); i++) {
+                if (i > 0) {
+                    sql.append(" AND ");
+                }
+                all.get(i).appendSql(sql, parameters);
+            }
+            sql.append(')');
+        }
+    }
+
+    private static final class Or extends Node {
+        private final List<Node> any;
+
+        private Or(List<Node> any) {
+            this.any = Collections.unmodifiableList(any);
+        }
+
+        @Override
+        boolean test(Subject subject) {
+            for (Node node : any) {
+                if (node.test(subject)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean mightMatch(Predicate<String> mightContain) {
+            for (Node node : any) {
+                if (node.mightMatch(mightContain)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void appendSql(StringBuilder sql, List<Object> parameters) {
+            sql.append('(');
+            for (int i = 0; i < any.size(); i++) {
+                if (i > 0) {
+                    sql.append(" OR ");
+                }
+                any.get(i).appendSql(sql, parameters);
+            }
+            sql.append(')');
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.Plugin;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.text.Normalizer;
 import java.time.Instant;
@@ -20,30 +21,45 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 public class LogRouter {
     @Deprecated public static final String GLOBAL_PREFIX = "global-";
     @Deprecated public static final String PLAYER_PREFIX = "players/";
 
-    public interface SinkListener { void onLogged(String category, String line); }
+    public interface SinkListener {
+        void onLogged(String category, String line);
+
+        default void onLogged(String category, String line, long timestampMillis, UUID playerUuid, int messageOffset) {
+            onLogged(category, line);
+        }
+    }
 
     private final Plugin plugin;
     private final Suppressor suppressor;
     private final Map<String, FileLogger> loggers = new ConcurrentHashMap<>();
     private final List<SinkListener> listeners = new CopyOnWriteArrayList<>();
     private final ExecutorService writeExecutor;
+    private final ExecutorService filterExecutor;
+    private final Set<String> pendingFilters = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<String> currentDay = new AtomicReference<>();
+    private final FileCatalog fileCatalog;
     private final ZoneId zoneId = ZoneId.systemDefault();
     private final DateTimeFormatter dayFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.ROOT);
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss", Locale.ROOT);
     private final Object databaseLock = new Object();
+    private final LogMetrics metrics = new LogMetrics();
+    private final WriteGenerations generations = new WriteGenerations();
     private volatile ConfigSnapshot configSnapshot;
     private volatile PlayerTracker playerTracker;
     private volatile DatabaseLogWriter databaseWriter;
@@ -51,6 +67,7 @@ public class LogRouter {
     public LogRouter(Plugin plugin) {
         this.plugin = plugin;
         this.suppressor = new Suppressor(plugin);
+        this.fileCatalog = new FileCatalog(new File(plugin.getDataFolder(), "logs"));
         this.writeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
             @Override
             public Thread newThread(Runnable r) {
@@ -59,6 +76,15 @@ public class LogRouter {
                 return thread;
             }
         });
+        this.filterExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "EliteLogs-Filters");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
         reloadConfig();
     }
 
@@ -92,7 +118,7 @@ public class LogRouter {
                 current.close();
             }
             try {
-                DatabaseLogWriter writer = new DatabaseLogWriter(plugin, newSettings, categoriesForSchema);
+                DatabaseLogWriter writer = new DatabaseLogWriter(plugin, newSettings, categoriesForSchema, metrics, generations);
                 this.databaseWriter = writer;
                 plugin.getLogger().info("[EliteLogs] MySQL storage ready (" + newSettings.getTablePrefix() + "*)");
             } catch (SQLException ex) {
@@ -120,6 +146,16 @@ public class LogRouter {
             writeExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        filterExecutor.shutdownNow();
+        fileCatalog.close();
+    }
+
+    /**
+     * Listing of {@code logs/} and its category folders, kept current by the
+     * file writers.
+     */
+    public FileCatalog getFileCatalog() {
+        return fileCatalog;
     }
 
     public void addListener(SinkListener listener) {
@@ -139,6 +175,18 @@ public class LogRouter {
         return databaseWriter;
     }
 
+    public LogMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Counters that move whenever lines of a category become readable from
+     * the buffer, the files or the database; see {@link WriteGenerations}.
+     */
+    public WriteGenerations getWriteGenerations() {
+        return generations;
+    }
+
     public Collection<String> getActiveCategories() {
         ConfigSnapshot snapshot = this.configSnapshot;
         if (snapshot == null) {
@@ -229,18 +277,20 @@ public class LogRouter {
     }
 
     public StampedLine write(String category, String message) {
-        return write(category, message, DatabaseContext.simple(category));
+        return write(category, message, DatabaseContext.simple(category), 0);
     }
 
-    private StampedLine write(String category, String message, DatabaseContext context) {
+    private StampedLine write(String category, String message, DatabaseContext context, int messageOffset) {
         ConfigSnapshot snapshot = this.configSnapshot;
         if (snapshot == null || !snapshot.isCategoryEnabled(category)) {
             return null;
         }
         Suppressor.Result result = suppressor.filter(category, message);
         if (result.drop) {
+            metrics.recordSuppressed(category);
             return null;
         }
+        metrics.recordWritten(category);
         Instant timestamp = Instant.now();
         logToDatabase(category, timestamp, result.line, context);
         String stampedLine = stamp(timestamp, result.line);
@@ -254,14 +304,16 @@ public class LogRouter {
             logToDatabase("suppressed", timestamp, result.summary, DatabaseContext.simple("suppressed"));
             append("suppressed", stamp(timestamp, result.summary), timestamp);
         }
-        notifyListeners(category, result.line);
+        notifyListeners(category, result.line, timestamp, context.playerUuid, messageOffset);
+        generations.bump(category);
         return new StampedLine(timestamp, stampedLine);
     }
 
     private void writeWithPlayer(String category, UUID uuid, String playerName, String message) {
         String resolved = resolvePlayerName(uuid, playerName);
         String decorated = decorateLineWithPlayer(uuid, resolved, message);
-        StampedLine stamped = write(category, decorated, DatabaseContext.player(category, uuid, resolved));
+        int messageOffset = Math.max(0, decorated.length() - String.valueOf(message).length());
+        StampedLine stamped = write(category, decorated, DatabaseContext.player(category, uuid, resolved), messageOffset);
         if (stamped != null) {
             appendPlayer(category, uuid, resolved, stamped.line, stamped.timestamp);
         }
@@ -275,9 +327,78 @@ public class LogRouter {
     }
 
     private void append(String category, String stampedLine, Instant timestamp) {
-        String file = "global-" + day(timestamp) + ".log";
-        FileLogger fileLogger = getLogger(category);
-        writeExecutor.execute(() -> fileLogger.append(file, stampedLine));
+        String day = day(timestamp);
+        String previous = currentDay.get();
+        if (!day.equals(previous) && currentDay.compareAndSet(previous, day) && previous != null
+                && previous.compareTo(day) < 0) {
+            // Queued behind the day's last writes, so the files are complete when the filters read them.
+            writeExecutor.execute(() -> {
+                try {
+                    filterExecutor.execute(() -> sealDay(previous));
+                } catch (RejectedExecutionException ignored) {
+                }
+            });
+        }
+        String file = "global-" + day + ".log";
+        submitWrite(category, getLogger(category), file, stampedLine);
+    }
+
+    public TokenFilter.Settings getTokenFilterSettings() {
+        ConfigSnapshot snapshot = this.configSnapshot;
+        return snapshot != null ? snapshot.tokenFilters : null;
+    }
+
+    /**
+     * Builds the token filter of a finished log file in the background,
+     * once; a file whose filter failed to build is not retried until the
+     * next restart.
+     */
+    public void requestTokenFilter(File file) {
+        TokenFilter.Settings settings = getTokenFilterSettings();
+        if (settings == null || !settings.isEnabled() || !pendingFilters.add(file.getAbsolutePath())) {
+            return;
+        }
+        try {
+            filterExecutor.execute(() -> {
+                try {
+                    if (TokenFilter.load(file) == null) {
+                        TokenFilter.build(file, settings.getFalsePositiveRate(), settings.getMaxBytes());
+                    }
+                    pendingFilters.remove(file.getAbsolutePath());
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("[EliteLogs] Failed to build token filter for " + file.getName() + ": " + ex.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pendingFilters.remove(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Queues token filters for every log file of {@code day} once the day is
+     * over. Category files come from the file catalog; per-player files are
+     * looked up only in the folders written since startup instead of walking
+     * the whole players tree.
+     */
+    private void sealDay(String day) {
+        for (String directory : fileCatalog.directories()) {
+            for (FileCatalog.Entry entry : fileCatalog.files(directory)) {
+                String name = entry.getName();
+                if (name.endsWith(".log") && name.contains(day)) {
+                    requestTokenFilter(entry.getFile());
+                }
+            }
+        }
+        File logs = fileCatalog.getRoot();
+        for (String key : loggers.keySet()) {
+            if (key.indexOf('/') < 0) {
+                continue;
+            }
+            File file = new File(logs, key + "/" + day + ".log");
+            if (file.isFile()) {
+                requestTokenFilter(file);
+            }
+        }
     }
 
     private void appendPlayer(String category, UUID uuid, String playerName, String stampedLine, Instant timestamp) {
@@ -287,13 +408,22 @@ public class LogRouter {
         }
         String folder = playerFolder(uuid, playerName);
         String loggerKey = "players".equals(category) ? category + "/" + folder : category + "/players/" + folder;
-        FileLogger playerLogger = getLogger(loggerKey);
         String file = day(timestamp) + ".log";
-        writeExecutor.execute(() -> playerLogger.append(file, stampedLine));
+        submitWrite(category, getLogger(loggerKey), file, stampedLine);
+    }
+
+    private void submitWrite(String category, FileLogger fileLogger, String file, String stampedLine) {
+        metrics.fileWriteQueued();
+        writeExecutor.execute(() -> {
+            long started = System.nanoTime();
+            boolean ok = fileLogger.append(file, stampedLine);
+            metrics.fileWriteFinished(System.nanoTime() - started, ok);
+            generations.bump(category);
+        });
     }
 
     private FileLogger getLogger(String category) {
-        return loggers.computeIfAbsent(category, key -> new FileLogger(new File(plugin.getDataFolder(), "logs/" + key)));
+        return loggers.computeIfAbsent(category, key -> new FileLogger(new File(plugin.getDataFolder(), "logs/" + key), fileCatalog));
     }
 
     private String day(Instant instant) {
@@ -304,10 +434,11 @@ public class LogRouter {
         return "[" + instant.atZone(zoneId).toLocalTime().format(timeFormatter) + "] " + message;
     }
 
-    private void notifyListeners(String category, String line) {
+    private void notifyListeners(String category, String line, Instant timestamp, UUID playerUuid, int messageOffset) {
+        long timestampMillis = timestamp.toEpochMilli();
         for (SinkListener listener : listeners) {
             try {
-                listener.onLogged(category, line);
+                listener.onLogged(category, line, timestampMillis, playerUuid, messageOffset);
             } catch (Throwable ignored) {
             }
         }
@@ -428,11 +559,14 @@ public class LogRouter {
         final boolean splitByPlayer;
         final Map<String, Boolean> categories;
         final DatabaseSettings databaseSettings;
+        final TokenFilter.Settings tokenFilters;
 
-        private ConfigSnapshot(boolean splitByPlayer, Map<String, Boolean> categories, DatabaseSettings databaseSettings) {
+        private ConfigSnapshot(boolean splitByPlayer, Map<String, Boolean> categories, DatabaseSettings databaseSettings,
+                               TokenFilter.Settings tokenFilters) {
             this.splitByPlayer = splitByPlayer;
             this.categories = categories;
             this.databaseSettings = databaseSettings;
+            this.tokenFilters = tokenFilters;
         }
 
         static ConfigSnapshot from(Plugin plugin) {
@@ -445,7 +579,15 @@ public class LogRouter {
             }
             boolean split = plugin.getConfig().getBoolean("logs.split-by-player", true);
             DatabaseSettings databaseSettings = DatabaseSettings.from(plugin);
-            return new ConfigSnapshot(split, Collections.unmodifiableMap(categories), databaseSettings);
+            double falsePositiveRate = plugin.getConfig().getDouble("logs.bloom-filter.false-positive-rate", 0.01);
+            if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+                falsePositiveRate = 0.01;
+            }
+            int maxKilobytes = Math.max(1, plugin.getConfig().getInt("logs.bloom-filter.max-kilobytes", 1024));
+            TokenFilter.Settings tokenFilters = new TokenFilter.Settings(
+                    plugin.getConfig().getBoolean("logs.bloom-filter.enabled", true),
+                    falsePositiveRate, (int) Math.min(Integer.MAX_VALUE / 2, maxKilobytes * 1024L));
+            return new ConfigSnapshot(split, Collections.unmodifiableMap(categories), databaseSettings, tokenFilters);
         }
 
         boolean isCategoryEnabled(String category) {
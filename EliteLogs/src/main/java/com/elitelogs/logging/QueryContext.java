@@ -0,0 +1,101 @@
+package com.elitelogs.logging;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline and cancellation token for a log query. The caller cancels it when
+ * the deadline passes or the answer is no longer wanted; readers poll
+ * {@link #isCancelled()} between blocks of work and hand back what they have
+ * so far, and blocking calls register a hook (such as
+ * {@code Statement.cancel}) that interrupts them.
+ */
+public final class QueryContext {
+    private static final QueryContext NONE = new QueryContext(Long.MAX_VALUE);
+
+    private final long deadlineNanos;
+    private final List<Runnable> hooks = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+    private volatile boolean truncated;
+
+    private QueryContext(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * A context that is never cancelled, for callers without a deadline.
+     */
+    public static QueryContext none() {
+        return NONE;
+    }
+
+    public static QueryContext withTimeout(long timeoutMillis) {
+        return new QueryContext(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMillis)));
+    }
+
+    /**
+     * Whether work should stop: either {@link #cancel()} was called or the
+     * deadline has passed.
+     */
+    public boolean isCancelled() {
+        return cancelled || (this != NONE && System.nanoTime() - deadlineNanos >= 0L);
+    }
+
+    public void cancel() {
+        if (this == NONE || cancelled) {
+            return;
+        }
+        cancelled = true;
+        for (Runnable hook : hooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Remaining time in whole seconds rounded up, or 0 without a deadline.
+     */
+    public int remainingSeconds() {
+        if (this == NONE) {
+            return 0;
+        }
+        long remaining = deadlineNanos - System.nanoTime();
+        return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L)));
+    }
+
+    /**
+     * Runs {@code hook} when the query is cancelled, or straight away if it
+     * already was. Closing the registration removes the hook.
+     */
+    public Registration onCancel(Runnable hook) {
+        if (this == NONE) {
+            return () -> { };
+        }
+        hooks.add(hook);
+        if (cancelled) {
+            hook.run();
+        }
+        return () -> hooks.remove(hook);
+    }
+
+    /**
+     * Records that a reader stopped early and its result is partial.
+     */
+    public void markTruncated() {
+        if (this != NONE) {
+            truncated = true;
+        }
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
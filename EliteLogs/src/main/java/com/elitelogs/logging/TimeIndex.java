@@ -0,0 +1,234 @@
+package com.elitelogs.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Sparse time index kept next to a log file as {@code <name>.idx}: the byte
+ * offset of the first line of every minute that has lines. The file logger
+ * appends an entry whenever a line opens a new minute, so a reader can start
+ * at the minute of the time it wants and scan at most that minute. Entries
+ * are 12 bytes, second of day then offset, after a 4 byte header.
+ */
+public final class TimeIndex {
+    public static final String SUFFIX = ".idx";
+    private static final int MAGIC = 0x454C5831;
+    private static final int HEADER = 4;
+    private static final int ENTRY = 12;
+    private static final int STAMP_LENGTH = "[HH:mm:ss]".length();
+
+    private final int[] seconds;
+    private final long[] offsets;
+
+    private TimeIndex(int[] seconds, long[] offsets) {
+        this.seconds = seconds;
+        this.offsets = offsets;
+    }
+
+    public static File sidecar(File log) {
+        return new File(log.getParentFile(), log.getName() + SUFFIX);
+    }
+
+    /**
+     * Reads the sidecar of {@code log}, or returns {@code null} when there is
+     * none or it is not an index. A torn last entry is ignored.
+     */
+    public static TimeIndex load(File log) throws IOException {
+        File sidecar = sidecar(log);
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        byte[] data = Files.readAllBytes(sidecar.toPath());
+        if (data.length < HEADER) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt() != MAGIC) {
+            return null;
+        }
+        int count = (data.length - HEADER) / ENTRY;
+        int[] seconds = new int[count];
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            seconds[i] = buffer.getInt();
+            offsets[i] = buffer.getLong();
+        }
+        return new TimeIndex(seconds, offsets);
+    }
+
+    /**
+     * Indexes a file written before sidecars existed. The sidecar is written
+     * to a temporary file and moved into place, so readers never see half of
+     * it.
+     */
+    public static TimeIndex rebuild(File log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        int count = 0;
+        int[] seconds = new int[64];
+        long[] offsets = new long[64];
+        try (InputStream in = new FileInputStream(log)) {
+            byte[] chunk = new byte[64 * 1024];
+            byte[] head = new byte[STAMP_LENGTH];
+            int headLength = 0;
+            boolean collecting = true;
+            long lineStart = 0L;
+            long position = 0L;
+            int lastMinute = -1;
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    byte value = chunk[i];
+                    if (value == '\n') {
+                        headLength = 0;
+                        collecting = true;
+                        lineStart = position + i + 1;
+                        continue;
+                    }
+                    if (!collecting) {
+                        continue;
+                    }
+                    head[headLength++] = value;
+                    if (headLength < STAMP_LENGTH) {
+                        continue;
+                    }
+                    collecting = false;
+                    int second = LogLines.secondOfDay(new String(head, StandardCharsets.US_ASCII));
+                    if (second < 0 || second / 60 <= lastMinute) {
+                        continue;
+                    }
+                    lastMinute = second / 60;
+                    if (count == seconds.length) {
+                        seconds = Arrays.copyOf(seconds, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    seconds[count] = second;
+                    offsets[count] = lineStart;
+                    count++;
+                    out.writeInt(second);
+                    out.writeLong(lineStart);
+                }
+                position += read;
+            }
+        }
+        File sidecar = sidecar(log);
+        File temporary = new File(sidecar.getParentFile(), sidecar.getName() + ".tmp");
+        Files.write(temporary.toPath(), bytes.toByteArray());
+        try {
+            Files.move(temporary.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temporary.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new TimeIndex(Arrays.copyOf(seconds, count), Arrays.copyOf(offsets, count));
+    }
+
+    /**
+     * Offset of the last indexed line stamped at or before
+     * {@code secondOfDay}, or 0 when every indexed line is later. Every line
+     * stamped at or after {@code secondOfDay} starts at or after it.
+     */
+    public long floor(int secondOfDay) {
+        int low = 0;
+        int high = seconds.length - 1;
+        long offset = 0L;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (seconds[mid] <= secondOfDay) {
+                offset = offsets[mid];
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Writer side of one log file's sidecar. A sidecar is only started for a
+     * new or empty file, or continued when it already exists; a file that
+     * already has lines but no sidecar is left to {@link #rebuild}.
+     */
+    static final class Appender {
+        private final File log;
+        private final File sidecar;
+        private boolean enabled;
+        private int lastMinute = -1;
+
+        Appender(File log) {
+            this.log = log;
+            this.sidecar = sidecar(log);
+            try {
+                if (log.length() == 0L) {
+                    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(sidecar))) {
+                        out.writeInt(MAGIC);
+                    }
+                    enabled = true;
+                } else if (sidecar.isFile()) {
+                    enabled = resume();
+                }
+            } catch (IOException ex) {
+                enabled = false;
+            }
+        }
+
+        File getLog() {
+            return log;
+        }
+
+        /**
+         * Records {@code line}, which starts at {@code offset}, when it is
+         * the first line of a later minute than the last entry.
+         */
+        void record(String line, long offset) {
+            if (!enabled) {
+                return;
+            }
+            int second = LogLines.secondOfDay(line);
+            if (second < 0 || second / 60 <= lastMinute) {
+                return;
+            }
+            if (!sidecar.isFile()) {
+                // Deleted under us; appending would leave a sidecar without its header.
+                enabled = false;
+                return;
+            }
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(sidecar, true))) {
+                out.writeInt(second);
+                out.writeLong(offset);
+                lastMinute = second / 60;
+            } catch (IOException ex) {
+                enabled = false;
+            }
+        }
+
+        private boolean resume() throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(sidecar, "rw")) {
+                long length = raf.length();
+                if (length < HEADER || raf.readInt() != MAGIC) {
+                    return false;
+                }
+                long entries = (length - HEADER) / ENTRY;
+                raf.setLength(HEADER + entries * ENTRY);
+                if (entries > 0) {
+                    raf.seek(HEADER + (entries - 1) * ENTRY);
+                    lastMinute = raf.readInt() / 60;
+                }
+                return true;
+            }
+        }
+    }
+}
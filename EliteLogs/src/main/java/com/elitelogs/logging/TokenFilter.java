@@ -0,0 +1,266 @@
+package com.elitelogs.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bloom filter kept next to a finished log file as {@code <name>.bloom}. It
+ * holds every {@link #GRAM}-character piece of every token of the lower
+ * cased lines, plus the shorter tokens whole; tokens are runs of letters,
+ * digits and {@code _ . : - @}, so player names, UUIDs and IPs are tokens.
+ * Any substring a line contains is made of such pieces, which lets a search
+ * skip the file when one piece of its term is missing without ever missing
+ * a line.
+ */
+public final class TokenFilter {
+    public static final String SUFFIX = ".bloom";
+    private static final int MAGIC = 0x454C4246;
+    private static final int GRAM = 4;
+    private static final int MIN_BYTES = 64;
+
+    private final int hashes;
+    private final long sourceLength;
+    private final long[] words;
+
+    private TokenFilter(int hashes, long sourceLength, long[] words) {
+        this.hashes = hashes;
+        this.sourceLength = sourceLength;
+        this.words = words;
+    }
+
+    public static File sidecar(File log) {
+        return new File(log.getParentFile(), log.getName() + SUFFIX);
+    }
+
+    /**
+     * Reads the filter of {@code log}, or returns {@code null} when there is
+     * none or {@code log} has changed size since it was built.
+     */
+    public static TokenFilter load(File log) throws IOException {
+        File sidecar = sidecar(log);
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(sidecar.toPath()));
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+            return null;
+        }
+        int hashes = buffer.getInt();
+        long sourceLength = buffer.getLong();
+        int count = buffer.getInt();
+        if (sourceLength != log.length() || hashes <= 0 || count <= 0 || Integer.bitCount(count) != 1
+                || buffer.remaining() != count * 8) {
+            return null;
+        }
+        long[] words = new long[count];
+        buffer.asLongBuffer().get(words);
+        return new TokenFilter(hashes, sourceLength, words);
+    }
+
+    /**
+     * Builds and writes the filter of {@code log}, gzipped or not. The filter
+     * is filled at {@code maxBytes} and then folded in half for as long as
+     * the estimated false-positive rate stays within
+     * {@code falsePositiveRate}, so quiet days get small filters without
+     * counting their tokens first.
+     */
+    public static TokenFilter build(File log, double falsePositiveRate, int maxBytes) throws IOException {
+        int hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+        int count = Integer.highestOneBit(Math.max(MIN_BYTES, maxBytes) / 8);
+        long sourceLength = log.length();
+        TokenFilter filter = new TokenFilter(hashes, sourceLength, new long[count]);
+        try (InputStream raw = new FileInputStream(log);
+             InputStream in = log.getName().endsWith(".gz") ? new GZIPInputStream(raw, 8192) : raw;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 8192)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                filter.addLine(line.toLowerCase(Locale.ROOT));
+            }
+        }
+        filter = filter.fold(falsePositiveRate);
+        File sidecar = sidecar(log);
+        File temporary = new File(sidecar.getParentFile(), sidecar.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(filter.hashes);
+            out.writeLong(filter.sourceLength);
+            out.writeInt(filter.words.length);
+            for (long word : filter.words) {
+                out.writeLong(word);
+            }
+        }
+        try {
+            Files.move(temporary.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temporary.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return filter;
+    }
+
+    /**
+     * Whether the filter was built from {@code log} as it is now.
+     */
+    public boolean covers(File log) {
+        return sourceLength == log.length();
+    }
+
+    /**
+     * Whether a line of the file may contain {@code needle}, which must
+     * already be lower cased. Pieces of the term's first and last token may
+     * belong to longer tokens in the line, so short edge tokens are not
+     * checked; {@code false} is always exact.
+     */
+    public boolean mightContain(String needle) {
+        int length = needle.length();
+        int index = 0;
+        while (index < length) {
+            if (!isTokenChar(needle.charAt(index))) {
+                index++;
+                continue;
+            }
+            int start = index;
+            while (index < length && isTokenChar(needle.charAt(index))) {
+                index++;
+            }
+            if (index - start >= GRAM) {
+                for (int gram = start; gram + GRAM <= index; gram++) {
+                    if (!contains(needle, gram, gram + GRAM)) {
+                        return false;
+                    }
+                }
+            } else if (start > 0 && index < length && !contains(needle, start, index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addLine(String line) {
+        int length = line.length();
+        int index = 0;
+        while (index < length) {
+            if (!isTokenChar(line.charAt(index))) {
+                index++;
+                continue;
+            }
+            int start = index;
+            while (index < length && isTokenChar(line.charAt(index))) {
+                index++;
+            }
+            if (index - start < GRAM) {
+                add(line, start, index);
+                continue;
+            }
+            for (int gram = start; gram + GRAM <= index; gram++) {
+                add(line, gram, gram + GRAM);
+            }
+        }
+    }
+
+    private void add(String text, int start, int end) {
+        long hash = hash(text, start, end);
+        int high = (int) (hash >>> 32) | 1;
+        int low = (int) hash;
+        long mask = words.length * 64L - 1L;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (low + (long) i * high) & mask;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean contains(String text, int start, int end) {
+        long hash = hash(text, start, end);
+        int high = (int) (hash >>> 32) | 1;
+        int low = (int) hash;
+        long mask = words.length * 64L - 1L;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (low + (long) i * high) & mask;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Halves the filter while the halved filter would still answer within
+     * {@code falsePositiveRate}. Bit positions are taken modulo a power of two,
+     * so OR-ing the two halves gives the filter a half-sized build would have
+     * produced.
+     */
+    private TokenFilter fold(double falsePositiveRate) {
+        long[] current = words;
+        while (current.length * 8 > MIN_BYTES) {
+            int half = current.length / 2;
+            long[] folded = new long[half];
+            long set = 0L;
+            for (int i = 0; i < half; i++) {
+                folded[i] = current[i] | current[i + half];
+                set += Long.bitCount(folded[i]);
+            }
+            if (Math.pow((double) set / (half * 64L), hashes) > falsePositiveRate) {
+                break;
+            }
+            current = folded;
+        }
+        return new TokenFilter(hashes, sourceLength, current);
+    }
+
+    private static long hash(String text, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == ':' || c == '-' || c == '@';
+    }
+
+    /**
+     * Settings from {@code logs.bloom-filter}.
+     */
+    public static final class Settings {
+        private final boolean enabled;
+        private final double falsePositiveRate;
+        private final int maxBytes;
+
+        Settings(boolean enabled, double falsePositiveRate, int maxBytes) {
+            this.enabled = enabled;
+            this.falsePositiveRate = falsePositiveRate;
+            this.maxBytes = maxBytes;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+    }
+}
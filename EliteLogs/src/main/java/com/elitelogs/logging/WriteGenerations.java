@@ -0,0 +1,31 @@
+package com.elitelogs.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-category counters that move whenever new lines become visible to
+ * readers: once when the router accepts a line (the in-memory buffer sees it
+ * straight away), again when the file writer has appended it and again when
+ * the database worker has committed it. A reader that notes the generation
+ * before querying knows its answer is still complete for as long as the
+ * generation has not moved.
+ */
+public final class WriteGenerations {
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public long get(String category) {
+        if (category == null) {
+            return 0L;
+        }
+        AtomicLong generation = generations.get(category);
+        return generation != null ? generation.get() : 0L;
+    }
+
+    void bump(String category) {
+        if (category != null) {
+            generations.computeIfAbsent(category, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.elitelogs.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram backed by {@link LongAdder}s, so recording a
+ * sample from a hot thread never takes a lock. Bucket bounds are in seconds to
+ * match the Prometheus convention; {@link #snapshot()} returns cumulative
+ * counts ready for exposition.
+ */
+public final class LatencyHistogram {
+    private static final double[] DEFAULT_BOUNDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0
+    };
+
+    private final double[] bounds;
+    private final long[] boundNanos;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS);
+    }
+
+    public LatencyHistogram(double[] boundsSeconds) {
+        this.bounds = boundsSeconds.clone();
+        this.boundNanos = new long[bounds.length];
+        this.buckets = new LongAdder[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            boundNanos[i] = (long) (bounds[i] * 1_000_000_000.0);
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observeNanos(long nanos) {
+        long value = Math.max(0L, nanos);
+        for (int i = 0; i < boundNanos.length; i++) {
+            if (value <= boundNanos[i]) {
+                buckets[i].increment();
+                break;
+            }
+        }
+        count.increment();
+        sumNanos.add(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] cumulative = new long[bounds.length];
+        long running = 0L;
+        for (int i = 0; i < bounds.length; i++) {
+            running += buckets[i].sum();
+            cumulative[i] = running;
+        }
+        // Read the total last so +Inf is never below the largest finite bucket.
+        long total = Math.max(running, count.sum());
+        return new Snapshot(bounds.clone(), cumulative, total, sumNanos.sum() / 1_000_000_000.0);
+    }
+
+    public static final class Snapshot {
+        private final double[] bounds;
+        private final long[] cumulativeCounts;
+        private final long count;
+        private final double sumSeconds;
+
+        private Snapshot(double[] bounds, long[] cumulativeCounts, long count, double sumSeconds) {
+            this.bounds = bounds;
+            this.cumulativeCounts = cumulativeCounts;
+            this.count = count;
+            this.sumSeconds = sumSeconds;
+        }
+
+        public double[] getBounds() {
+            return bounds;
+        }
+
+        public long[] getCumulativeCounts() {
+            return cumulativeCounts;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSumSeconds() {
+            return sumSeconds;
+        }
+    }
+}
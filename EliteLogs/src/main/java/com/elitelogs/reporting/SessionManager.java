@@ -28,6 +28,7 @@ public class SessionManager implements LogRouter.SinkListener {
     private AtomicInteger joins = new AtomicInteger();
     private BukkitTask autosaveTask;
     private volatile boolean running;
+    private volatile long lastSaveMillis;
 
     public SessionManager(Plugin plugin, LogRouter router){
         this.plugin = plugin; this.router = router;
@@ -85,6 +86,7 @@ public class SessionManager implements LogRouter.SinkListener {
         writeSessionReport(report, snapshot);
         saveToLogs(snapshot);
         updateLastSessionSnapshot(report, new File(folder, "last-session.yml"));
+        lastSaveMillis = System.currentTimeMillis();
     }
 
     @Override
@@ -152,6 +154,10 @@ public class SessionManager implements LogRouter.SinkListener {
         return start;
     }
 
+    public long getLastSaveMillis() {
+        return lastSaveMillis;
+    }
+
     public long getUptimeSeconds() {
         long startedAt = this.start;
         if (startedAt == 0L) {
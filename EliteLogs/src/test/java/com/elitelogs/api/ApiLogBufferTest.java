@@ -0,0 +1,107 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.provider.BufferLogProvider;
+import com.elitelogs.api.provider.LogRecord;
+import com.elitelogs.api.provider.TimeRange;
+import com.elitelogs.logging.LogQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ApiLogBufferTest {
+
+    @Test
+    void indexedSearchMatchesSubstringsLikeTheScan() {
+        for (String term : Arrays.asList("stev", "steve", "127.0.0.1", "joined from", "eve123 jo", "x")) {
+            assertEquals(lines(search(false, term)), lines(search(true, term)), term);
+        }
+        assertEquals(Arrays.asList("Steve joined from 127.0.0.1", "Steve123 joined from 10.0.0.2"),
+                lines(search(true, "steve")));
+    }
+
+    @Test
+    void plainTextIsOnePhrase() {
+        for (boolean indexed : new boolean[]{false, true}) {
+            assertEquals(Arrays.asList("Steve joined from 127.0.0.1"), lines(search(indexed, "steve joined")));
+            assertEquals(0, search(indexed, "joined steve").size());
+        }
+    }
+
+    @Test
+    void structuredQueryUsesTheIndexForPartialTerms() {
+        for (boolean indexed : new boolean[]{false, true}) {
+            assertEquals(Arrays.asList("Steve joined from 127.0.0.1", "Steve123 joined from 10.0.0.2"),
+                    lines(search(indexed, "stev AND joined")), "indexed=" + indexed);
+            assertEquals(Arrays.asList("Steve123 joined from 10.0.0.2"),
+                    lines(search(indexed, "\"steve1\" NOT 127.0.0.1")), "indexed=" + indexed);
+        }
+    }
+
+    @Test
+    void timeWindowsFindLinesStampedOutOfOrder() {
+        long[] stamps = {1_000L, 5_000L, 2_000L, 3_000L, 9_000L, 1_500L, 4_000L, 2_200L, 8_000L, 6_000L};
+        for (boolean withHistory : new boolean[]{false, true}) {
+            ApiLogBuffer buffer = new ApiLogBuffer();
+            buffer.configureHistory(withHistory, 2, 16, 0L);
+            for (int round = 0; round < 4; round++) {
+                for (long stamp : stamps) {
+                    long at = stamp + round * 10_000L;
+                    buffer.onLogged("chat", "line at " + at, at, null, 0);
+                }
+            }
+            for (long[] window : new long[][]{{1_500L, 2_500L}, {0L, 3_500L}, {12_000L, 15_500L}, {4_000L, 4_001L}}) {
+                List<String> expected = new ArrayList<>();
+                for (int round = 0; round < 4; round++) {
+                    for (long stamp : stamps) {
+                        long at = stamp + round * 10_000L;
+                        if (at >= window[0] && at < window[1]) {
+                            expected.add("line at " + at);
+                        }
+                    }
+                }
+                String label = "history=" + withHistory + " window=" + window[0] + "-" + window[1];
+                assertEquals(expected, entryLines(buffer.getRange("chat", 0L, window[0], window[1], 100)), label);
+                assertEquals(expected, entryLines(buffer.getBefore("chat", window[0], window[1], 100)), label);
+                assertEquals(expected, entryLines(buffer.search("chat", Collections.emptyList(), entry -> true,
+                        window[0], window[1], 100)), label);
+                List<String> visited = new ArrayList<>();
+                buffer.forEachInRange("chat", window[0], window[1], entry -> visited.add(entry.getLine()));
+                visited.sort(null);
+                List<String> sorted = new ArrayList<>(expected);
+                sorted.sort(null);
+                assertEquals(sorted, visited, label);
+            }
+            buffer.close();
+        }
+    }
+
+    private static List<String> entryLines(List<ApiLogBuffer.Entry> entries) {
+        List<String> lines = new ArrayList<>();
+        for (ApiLogBuffer.Entry entry : entries) {
+            lines.add(entry.getLine());
+        }
+        return lines;
+    }
+
+    private static List<LogRecord> search(boolean indexed, String query) {
+        ApiLogBuffer buffer = new ApiLogBuffer();
+        buffer.setIndexed(indexed);
+        buffer.onLogged("chat", "Steve joined from 127.0.0.1", 1_000L, null, 0);
+        buffer.onLogged("chat", "Alex left", 2_000L, null, 0);
+        buffer.onLogged("chat", "Steve123 joined from 10.0.0.2", 3_000L, null, 0);
+        return new BufferLogProvider(buffer).search("chat", LogQuery.of(query), TimeRange.ALL, 10);
+    }
+
+    private static List<String> lines(List<LogRecord> records) {
+        List<String> lines = new ArrayList<>();
+        for (LogRecord record : records) {
+            lines.add(record.getLine());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,79 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferTokenIndexTest {
+
+    @Test
+    void longTokensAreSplitIntoPieces() {
+        Set<String> pieces = BufferTokenIndex.pieces("steve123 joined", false);
+
+        assertTrue(pieces.containsAll(Arrays.asList("stev", "teve", "eve1", "ve12", "e123", "join", "oine", "ined")));
+        assertFalse(pieces.contains("steve123"));
+    }
+
+    @Test
+    void queryLeavesOutShortTokensAtTheEdges() {
+        assertTrue(BufferTokenIndex.pieces("op", true).isEmpty());
+        assertEquals(Collections.singleton("op"), BufferTokenIndex.pieces("[op] ", true));
+        assertEquals(Collections.singleton("op"), BufferTokenIndex.pieces("[op]", false));
+    }
+
+    @Test
+    void partialTermsFindLongerTokens() {
+        BufferTokenIndex index = new BufferTokenIndex();
+        index.add(entry(1, "Steve123 joined from 127.0.0.1"));
+        index.add(entry(2, "Alex left"));
+
+        assertArrayEquals(new long[]{1}, index.intersect(Collections.singletonList("stev"), 10));
+        assertArrayEquals(new long[]{1}, index.intersect(Collections.singletonList("steve"), 10));
+        assertArrayEquals(new long[]{1}, index.intersect(Collections.singletonList("127.0.0.1"), 10));
+        assertArrayEquals(new long[0], index.intersect(Collections.singletonList("notch"), 10));
+    }
+
+    @Test
+    void termsWithoutPiecesFallBackToScan() {
+        BufferTokenIndex index = new BufferTokenIndex();
+        index.add(entry(1, "a b c"));
+
+        assertNull(index.intersect(Collections.singletonList("ab"), 10));
+        assertNull(index.intersect(Collections.singletonList("!"), 10));
+    }
+
+    @Test
+    void candidatesAreNewestFirstAndLimited() {
+        BufferTokenIndex index = new BufferTokenIndex();
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            index.add(entry(sequence, "player joined"));
+        }
+
+        assertArrayEquals(new long[]{5, 4}, index.intersect(Collections.singletonList("joined"), 2));
+    }
+
+    @Test
+    void removedEntriesLeaveThePostings() {
+        BufferTokenIndex index = new BufferTokenIndex();
+        ApiLogBuffer.Entry first = entry(1, "Steve joined");
+        index.add(first);
+        index.add(entry(2, "Steve left"));
+
+        index.remove(first);
+
+        assertArrayEquals(new long[]{2}, index.intersect(Collections.singletonList("steve"), 10));
+        assertArrayEquals(new long[0], index.intersect(Collections.singletonList("joined"), 10));
+    }
+
+    private static ApiLogBuffer.Entry entry(long sequence, String line) {
+        return new ApiLogBuffer.Entry(sequence, 0, sequence, null, 0, line);
+    }
+}
@@ -0,0 +1,149 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedHistoryTest {
+    private final List<Runnable> pending = new ArrayList<>();
+    private final Object lock = new Object();
+
+    @Test
+    void blocksAreReadableWhileTheyWaitForTheSealer() {
+        CompressedHistory history = history();
+        append(history, 40, 1_000L);
+
+        assertEquals(2, pending.size());
+        assertEquals(2, history.blockCount());
+        assertEquals(40L, history.size());
+        assertEquals(0L, history.compressedBytes());
+        assertEquals(sequences(1, 40), sequences(history.view().newest(100)));
+
+        runPending();
+
+        assertTrue(history.compressedBytes() > 0L);
+        assertEquals(sequences(1, 40), sequences(history.view().newest(100)));
+        assertEquals(sequences(31, 40), sequences(history.view().newest(10)));
+    }
+
+    @Test
+    void trimDropsWholeBlocksOldestFirst() {
+        CompressedHistory history = history();
+        append(history, 40, 1_000L);
+        runPending();
+
+        history.trim(30L);
+
+        assertEquals(1, history.blockCount());
+        assertEquals(24L, history.size());
+        assertEquals(sequences(17, 40), sequences(history.view().newest(100)));
+    }
+
+    @Test
+    void blockDroppedBeforeSealingIsNotCounted() {
+        CompressedHistory history = history();
+        append(history, 16, 1_000L);
+
+        history.trim(0L);
+        runPending();
+
+        assertEquals(0, history.blockCount());
+        assertEquals(0L, history.size());
+        assertEquals(0L, history.compressedBytes());
+        assertEquals(0L, history.rawBytes());
+    }
+
+    @Test
+    void byteBudgetCountsBlocksStillWaitingForTheSealer() {
+        CompressedHistory history = new CompressedHistory(0, 16, 1L, pending::add, lock);
+        append(history, 48, 1_000L);
+        history.trim(Long.MAX_VALUE);
+
+        assertEquals(0, history.blockCount());
+        runPending();
+        assertEquals(0L, history.compressedBytes());
+    }
+
+    @Test
+    void sealingSwapsTheRawChargeForThePackedSize() {
+        CompressedHistory history = history();
+        append(history, 16, 1_000L);
+        long raw = history.rawBytes();
+        runPending();
+        long packed = history.compressedBytes();
+        assertTrue(packed > 0L && packed < raw);
+
+        // A budget between the packed and the raw size keeps the block only once it is sealed.
+        long budget = (packed + raw) / 2;
+        CompressedHistory unsealed = new CompressedHistory(0, 16, budget, pending::add, lock);
+        append(unsealed, 16, 1_000L);
+        unsealed.trim(Long.MAX_VALUE);
+        assertEquals(0, unsealed.blockCount());
+        runPending();
+
+        CompressedHistory sealed = new CompressedHistory(0, 16, budget, pending::add, lock);
+        append(sealed, 16, 1_000L);
+        runPending();
+        sealed.trim(Long.MAX_VALUE);
+        assertEquals(1, sealed.blockCount());
+    }
+
+    @Test
+    void timeWindowsFindLinesStampedOutOfOrder() {
+        CompressedHistory history = history();
+        for (int i = 1; i <= 40; i++) {
+            long timestamp = i == 1 ? 100_000L : i == 21 ? 500L : i * 1_000L;
+            history.append(new ApiLogBuffer.Entry(i, 0, timestamp, null, 0, "line " + i));
+        }
+        runPending();
+
+        List<ApiLogBuffer.Entry> forward = new ArrayList<>();
+        history.view().visitRange(Long.MIN_VALUE, 0L, 2_500L, forward::add);
+        assertEquals(List.of(2L, 21L), sequences(forward));
+
+        List<ApiLogBuffer.Entry> backward = new ArrayList<>();
+        history.view().visitBefore(0L, 2_500L, backward::add);
+        assertEquals(List.of(21L, 2L), sequences(backward));
+
+        List<ApiLogBuffer.Entry> late = new ArrayList<>();
+        history.view().visitRange(10L, 50_000L, 200_000L, late::add);
+        assertEquals(0, late.size());
+    }
+
+    private CompressedHistory history() {
+        return new CompressedHistory(0, 16, 0L, pending::add, lock);
+    }
+
+    private void runPending() {
+        for (Runnable task : pending) {
+            task.run();
+        }
+        pending.clear();
+    }
+
+    private static void append(CompressedHistory history, int count, long stepMillis) {
+        for (int i = 1; i <= count; i++) {
+            history.append(new ApiLogBuffer.Entry(i, 0, i * stepMillis, null, 0, "line " + i));
+        }
+    }
+
+    private static List<Long> sequences(long first, long last) {
+        List<Long> sequences = new ArrayList<>();
+        for (long i = first; i <= last; i++) {
+            sequences.add(i);
+        }
+        return sequences;
+    }
+
+    private static List<Long> sequences(List<ApiLogBuffer.Entry> entries) {
+        List<Long> sequences = new ArrayList<>();
+        for (ApiLogBuffer.Entry entry : entries) {
+            sequences.add(entry.getSequence());
+        }
+        return sequences;
+    }
+}
@@ -0,0 +1,41 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonUtilTest {
+
+    @Test
+    void stringsEscapeQuotesBackslashesAndControlCharacters() {
+        assertEquals("\"say \\\"hi\\\" to C:\\\\logs\"", JsonUtil.stringify("say \"hi\" to C:\\logs"));
+        assertEquals("\"a\\nb\\r\\tc\\b\\f\"", JsonUtil.stringify("a\nb\r\tc\b\f"));
+        assertEquals("\"\\u0000\\u001f\\u0007\"", JsonUtil.stringify("\u0000\u001f\u0007"));
+    }
+
+    @Test
+    void unescapedTextIsCopiedAsIs() {
+        assertEquals("\"Привет, мир! </script> ✓\"", JsonUtil.stringify("Привет, мир! </script> ✓"));
+        assertEquals("\"\"", JsonUtil.stringify(""));
+        assertEquals("null", JsonUtil.stringify(null));
+    }
+
+    @Test
+    void containersAndNumbers() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("line", "x\"y");
+        map.put("count", 3L);
+        map.put("ratio", 0.50d);
+        map.put("nan", Double.NaN);
+        map.put("ok", true);
+        map.put("tags", Arrays.asList("a", null));
+        map.put("ids", new int[] {1, 2});
+
+        assertEquals("{\"line\":\"x\\\"y\",\"count\":3,\"ratio\":0.5,\"nan\":0,\"ok\":true,"
+                + "\"tags\":[\"a\",null],\"ids\":[1,2]}", JsonUtil.stringify(map));
+    }
+}
@@ -0,0 +1,153 @@
+package com.elitelogs.api;
+
+import com.elitelogs.api.provider.LogRecord;
+import com.elitelogs.api.provider.TimeRange;
+import com.elitelogs.logging.LogQuery;
+import com.elitelogs.logging.QueryContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryCacheTest {
+    private final AtomicLong generation = new AtomicLong();
+    private final List<CompletableFuture<List<LogRecord>>> loads = new ArrayList<>();
+    private final List<QueryContext> loadContexts = new ArrayList<>();
+
+    @Test
+    void resultIsServedUntilTheCategoryIsWritten() {
+        QueryCache cache = new QueryCache(8);
+        get(cache, "steve");
+        complete(0, "a");
+
+        QueryCache.Result cached = get(cache, "steve").join();
+        assertEquals(1, loads.size());
+        assertEquals(1L, cache.getHits());
+        assertEquals("a", cached.getRecords().get(0).getLine());
+
+        generation.incrementAndGet();
+        get(cache, "steve");
+        assertEquals(2, loads.size());
+        assertEquals(2L, cache.getMisses());
+    }
+
+    @Test
+    void identicalSearchesShareOneLoad() {
+        QueryCache cache = new QueryCache(8);
+        CompletableFuture<QueryCache.Result> first = get(cache, "steve");
+        CompletableFuture<QueryCache.Result> second = get(cache, "steve");
+
+        assertEquals(1, loads.size());
+        assertEquals(1L, cache.getCoalesced());
+        complete(0, "a");
+        assertSame(first.join(), second.join());
+    }
+
+    @Test
+    void truncatedResultsAreSharedButNotKept() {
+        QueryCache cache = new QueryCache(8);
+        CompletableFuture<QueryCache.Result> first = get(cache, "steve");
+        loadContexts.get(0).markTruncated();
+        complete(0, "partial");
+
+        assertTrue(first.join().isTruncated());
+        assertEquals(0, cache.size());
+        get(cache, "steve");
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    void lineWrittenDuringTheLoadKeepsTheResultOutOfTheCache() {
+        QueryCache cache = new QueryCache(8);
+        CompletableFuture<QueryCache.Result> first = get(cache, "steve");
+        generation.incrementAndGet();
+        complete(0, "stale");
+
+        assertEquals("stale", first.join().getRecords().get(0).getLine());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreDropped() {
+        QueryCache cache = new QueryCache(2);
+        for (String query : new String[]{"a", "b"}) {
+            get(cache, query);
+            complete(loads.size() - 1, query);
+        }
+        get(cache, "a").join();
+        get(cache, "c");
+        complete(loads.size() - 1, "c");
+
+        assertEquals(2, cache.size());
+        get(cache, "a");
+        get(cache, "b");
+        assertEquals(4, loads.size());
+    }
+
+    @Test
+    void sharedSearchIsCancelledOnlyWhenEveryWaiterGivesUp() {
+        QueryCache cache = new QueryCache(8);
+        QueryContext first = QueryContext.withTimeout(60_000L);
+        QueryContext second = QueryContext.withTimeout(60_000L);
+        get(cache, "steve", first);
+        get(cache, "steve", second);
+
+        first.cancel();
+        assertFalse(loadContexts.get(0).isCancelled());
+        second.cancel();
+        assertTrue(loadContexts.get(0).isCancelled());
+    }
+
+    @Test
+    void failedLoadIsNotRemembered() {
+        QueryCache cache = new QueryCache(8);
+        CompletableFuture<QueryCache.Result> failed = cache.get(key("steve"), generation::get, QueryContext.none(),
+                1_000L, shared -> {
+                    throw new IllegalArgumentException("Invalid query");
+                });
+
+        assertTrue(failed.isCompletedExceptionally());
+        get(cache, "steve");
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    void keysCompareTheParsedQuery() {
+        assertEquals(key("player:steve"), key(" player:steve "));
+        assertNotEquals(key("player:steve"), new QueryCache.Key("files", "chat", LogQuery.literal("player:steve"), 10,
+                TimeRange.ALL));
+        assertNotEquals(key("steve"), new QueryCache.Key("files", "chat", LogQuery.of("steve"), 20, TimeRange.ALL));
+    }
+
+    private CompletableFuture<QueryCache.Result> get(QueryCache cache, String query) {
+        return get(cache, query, QueryContext.none());
+    }
+
+    private CompletableFuture<QueryCache.Result> get(QueryCache cache, String query, QueryContext context) {
+        Function<QueryContext, CompletableFuture<List<LogRecord>>> loader = shared -> {
+            CompletableFuture<List<LogRecord>> load = new CompletableFuture<>();
+            loads.add(load);
+            loadContexts.add(shared);
+            return load;
+        };
+        return cache.get(key(query), generation::get, context, 60_000L, loader);
+    }
+
+    private void complete(int load, String line) {
+        loads.get(load).complete(Collections.singletonList(LogRecord.fileLine("chat", "files", "chat.log", line)));
+    }
+
+    private static QueryCache.Key key(String query) {
+        return new QueryCache.Key("files", "chat", LogQuery.of(query), 10, TimeRange.ALL);
+    }
+}
@@ -0,0 +1,83 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    @Test
+    void bucketRefillsUpToItsBurst() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(2);
+        long now = System.nanoTime();
+
+        assertEquals(1, bucket.take(now, 1.0, 2).getRemaining());
+        assertEquals(0, bucket.take(now, 1.0, 2).getRemaining());
+        RateLimiter.Decision denied = bucket.take(now, 1.0, 2);
+        assertFalse(denied.isAllowed());
+        assertEquals(1, denied.getRetryAfterSeconds());
+        assertEquals(2, denied.getResetSeconds());
+
+        assertEquals(1, bucket.take(now + 60 * SECOND, 1.0, 2).getRemaining());
+    }
+
+    @Test
+    void refundNeverOverfillsTheBucket() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(2);
+        long now = System.nanoTime();
+        bucket.take(now, 1.0, 2);
+        bucket.take(now + 5 * SECOND, 1.0, 2);
+
+        bucket.refund(2);
+        bucket.refund(2);
+
+        assertTrue(bucket.take(now + 5 * SECOND, 1.0, 2).isAllowed());
+        assertTrue(bucket.take(now + 5 * SECOND, 1.0, 2).isAllowed());
+        assertFalse(bucket.take(now + 5 * SECOND, 1.0, 2).isAllowed());
+    }
+
+    @Test
+    void allowedCallsReportWhenTheBucketIsFullAgain() {
+        RateLimiter.Bucket bucket = new RateLimiter.Bucket(4);
+        long now = System.nanoTime();
+
+        RateLimiter.Decision first = bucket.take(now, 2.0, 4);
+        assertTrue(first.isAllowed());
+        assertEquals(1, first.getResetSeconds());
+        bucket.take(now, 2.0, 4);
+        bucket.take(now, 2.0, 4);
+        assertEquals(2, bucket.take(now, 2.0, 4).getResetSeconds());
+    }
+
+    @Test
+    void sharedTokenBucketRefusalGivesTheIpTokenBack() {
+        RateLimiter limiter = new RateLimiter(
+                new ApiSettings.RateLimitSettings(true, 0.01, 2, 0.01, 1, 1, false));
+
+        assertTrue(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.1", "secret").isAllowed());
+        assertTrue(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.1", "secret").isAllowed());
+        assertFalse(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.2", "secret").isAllowed());
+
+        assertEquals(1, limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.2", null).getRemaining());
+        assertEquals(0, limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.2", null).getRemaining());
+        assertFalse(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.2", null).isAllowed());
+        assertEquals(2L, limiter.getLimitedCount());
+    }
+
+    @Test
+    void refundReturnsTheTokensOfAShedCall() {
+        RateLimiter limiter = new RateLimiter(
+                new ApiSettings.RateLimitSettings(true, 0.01, 1, 0.01, 1, 1, false));
+
+        assertTrue(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.1", "secret").isAllowed());
+        limiter.refund(RateLimiter.Tier.CHEAP, "10.0.0.1", "secret");
+
+        assertTrue(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.1", "secret").isAllowed());
+        assertFalse(limiter.acquire(RateLimiter.Tier.CHEAP, "10.0.0.1", "secret").isAllowed());
+    }
+}
@@ -0,0 +1,83 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestExecutorTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RequestExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void streamsAreCappedAtMaxStreams() throws InterruptedException {
+        executor = newExecutor(2);
+        Executor streams = executor.streams();
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            streams.execute(() -> {
+                started.countDown();
+                awaitRelease();
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class, () -> streams.execute(() -> { }));
+        assertEquals(2, executor.describe().get("streams"));
+    }
+
+    @Test
+    void freedStreamSlotsAreReused() throws InterruptedException {
+        executor = newExecutor(1);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.streams().execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch again = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (again.getCount() > 0 && System.nanoTime() < deadline) {
+            try {
+                executor.streams().execute(again::countDown);
+                assertTrue(again.await(5, TimeUnit.SECONDS));
+            } catch (RejectedExecutionException ex) {
+                // The previous stream thread is still returning to the pool.
+                Thread.sleep(10L);
+            }
+        }
+        assertEquals(0L, again.getCount());
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RequestExecutor newExecutor(int maxStreams) {
+        return new RequestExecutor(new ApiSettings.ExecutorSettings("bounded", 2, 2, 1), Collections.emptyMap(),
+                maxStreams, runnable -> {
+                    Thread thread = new Thread(runnable, "test-api");
+                    thread.setDaemon(true);
+                    return thread;
+                }, Logger.getAnonymousLogger());
+    }
+}
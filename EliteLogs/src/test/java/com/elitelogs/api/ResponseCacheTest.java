@@ -0,0 +1,74 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+
+    @Test
+    void entryIsReusedUntilTheValidatorChanges() {
+        ResponseCache cache = new ResponseCache(60_000L);
+        AtomicInteger builds = new AtomicInteger();
+
+        ResponseCache.Entry first = cache.get("sessions", 1L, () -> Map.of("build", builds.incrementAndGet()));
+        ResponseCache.Entry again = cache.get("sessions", 1L, () -> Map.of("build", builds.incrementAndGet()));
+        ResponseCache.Entry changed = cache.get("sessions", 2L, () -> Map.of("build", builds.incrementAndGet()));
+
+        assertSame(first, again);
+        assertEquals(2, builds.get());
+        assertNotEquals(first.getEtag(), changed.getEtag());
+        assertEquals(1L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+    }
+
+    @Test
+    void etagMatchesIfNoneMatchLists() {
+        ResponseCache cache = new ResponseCache(60_000L);
+        ResponseCache.Entry entry = cache.get("status", 0L, () -> Map.of("ok", true));
+
+        assertTrue(entry.getEtag().startsWith("\"") && entry.getEtag().endsWith("\""));
+        assertTrue(entry.matches(entry.getEtag()));
+        assertTrue(entry.matches("\"other\", " + entry.getEtag()));
+        assertTrue(entry.matches("*"));
+        assertFalse(entry.matches("\"other\""));
+        assertFalse(entry.matches(null));
+    }
+
+    @Test
+    void invalidateForcesARebuild() {
+        ResponseCache cache = new ResponseCache(60_000L);
+        ResponseCache.Entry first = cache.get("metrics", 0L, () -> Map.of("n", 1));
+        cache.invalidate();
+        ResponseCache.Entry rebuilt = cache.get("metrics", 0L, () -> Map.of("n", 1));
+
+        assertNotSame(first, rebuilt);
+        assertEquals(first.getEtag(), rebuilt.getEtag());
+    }
+
+    @Test
+    void insertsBeyondTheBoundEvictOldEntries() {
+        ResponseCache cache = new ResponseCache(60_000L);
+        for (int i = 0; i < ResponseCache.MAX_ENTRIES * 3; i++) {
+            cache.get("status?_=" + i, 0L, () -> Map.of("ok", true));
+        }
+        assertEquals(ResponseCache.MAX_ENTRIES, cache.size());
+    }
+
+    @Test
+    void expiredEntriesAreDroppedOnInsert() {
+        ResponseCache cache = new ResponseCache(0L);
+        for (int i = 0; i <= ResponseCache.MAX_ENTRIES; i++) {
+            cache.get("status?_=" + i, 0L, () -> Map.of("ok", true));
+        }
+        assertEquals(0, cache.size());
+    }
+}
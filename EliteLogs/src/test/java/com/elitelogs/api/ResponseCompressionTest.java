@@ -0,0 +1,54 @@
+package com.elitelogs.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressionTest {
+
+    @Test
+    void gzipIsPreferredOverDeflate() {
+        assertEquals("gzip", ResponseCompression.encodingFor("deflate, gzip"));
+        assertEquals("gzip", ResponseCompression.encodingFor("x-gzip"));
+        assertEquals("gzip", ResponseCompression.encodingFor("*"));
+        assertEquals("deflate", ResponseCompression.encodingFor("br, Deflate"));
+    }
+
+    @Test
+    void zeroQualityCodingsAreRefused() {
+        assertEquals("deflate", ResponseCompression.encodingFor("gzip;q=0, deflate;q=0.5"));
+        assertNull(ResponseCompression.encodingFor("gzip; q=0.0, deflate;q=0"));
+        assertNull(ResponseCompression.encodingFor("identity"));
+        assertNull(ResponseCompression.encodingFor(""));
+        assertNull(ResponseCompression.encodingFor(null));
+    }
+
+    @Test
+    void compressedBodiesRoundTrip() throws IOException {
+        ResponseCompression compression = new ResponseCompression(new ApiSettings.CompressionSettings(true, 0, 6));
+        byte[] body = "{\"records\":[\"line\"]}".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        byte[] gzip = compression.compress(body, body.length, ResponseCompression.GZIP);
+        byte[] deflate = compression.compress(body, body.length, ResponseCompression.DEFLATE);
+
+        assertTrue(gzip.length < body.length);
+        assertArrayEquals(body, readAll(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+        assertArrayEquals(body, readAll(new InflaterInputStream(new ByteArrayInputStream(deflate))));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return stream.readAllBytes();
+        }
+    }
+}
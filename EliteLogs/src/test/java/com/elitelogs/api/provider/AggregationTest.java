@@ -0,0 +1,78 @@
+package com.elitelogs.api.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregationTest {
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void bucketsAreAlignedToTheEpoch() {
+        Aggregation aggregation = new Aggregation(EnumSet.of(Aggregation.Dimension.TIME), MINUTE, TimeRange.ALL, null, 10);
+        aggregation.add("chat", 5 * MINUTE + 1_000L, "join", null);
+        aggregation.add("chat", 5 * MINUTE + 59_999L, "join", null);
+        aggregation.add("chat", 6 * MINUTE, "join", null);
+
+        List<Map<String, Object>> records = aggregation.toRecords();
+        assertEquals(2, records.size());
+        assertEquals("1970-01-01T00:05:00Z", records.get(0).get("bucket"));
+        assertEquals(2L, records.get(0).get("count"));
+        assertEquals("1970-01-01T00:06:00Z", records.get(1).get("bucket"));
+        assertEquals(1L, records.get(1).get("count"));
+    }
+
+    @Test
+    void storeGroupsMergeWithScannedLines() {
+        Aggregation aggregation = new Aggregation(EnumSet.of(Aggregation.Dimension.TIME, Aggregation.Dimension.EVENT_TYPE),
+                MINUTE, TimeRange.ALL, null, 10);
+        aggregation.add("chat", 2 * MINUTE + 30_000L, "join", null);
+        aggregation.addGroup("chat", 2 * MINUTE, "join", null, 4L);
+        aggregation.addGroup("chat", 2 * MINUTE, "quit", null, 1L);
+
+        List<Map<String, Object>> records = aggregation.toRecords();
+        assertEquals(2, records.size());
+        assertEquals("join", records.get(0).get("eventType"));
+        assertEquals(5L, records.get(0).get("count"));
+        assertEquals("quit", records.get(1).get("eventType"));
+        assertEquals(6L, aggregation.getTotal());
+    }
+
+    @Test
+    void eventTypeFilterSkipsOtherLines() {
+        Aggregation aggregation = new Aggregation(EnumSet.noneOf(Aggregation.Dimension.class), 0L, TimeRange.ALL, "join", 10);
+        aggregation.add("chat", 1_000L, "join", null);
+        aggregation.add("chat", 2_000L, "quit", null);
+        aggregation.add("chat", 3_000L, null, null);
+
+        assertEquals(1L, aggregation.getTotal());
+        assertEquals(1L, aggregation.toRecords().get(0).get("count"));
+    }
+
+    @Test
+    void groupsBeyondTheLimitAreCountedButDropped() {
+        Aggregation aggregation = new Aggregation(EnumSet.of(Aggregation.Dimension.TIME), MINUTE, TimeRange.ALL, null, 2);
+        for (int minute = 0; minute < 4; minute++) {
+            aggregation.add("chat", minute * MINUTE, "join", null);
+        }
+        aggregation.add("chat", 0L, "join", null);
+
+        assertTrue(aggregation.isTruncated());
+        assertEquals(2, aggregation.getGroupCount());
+        assertEquals(5L, aggregation.getTotal());
+    }
+
+    @Test
+    void timeGroupingNeedsAnInterval() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Aggregation(EnumSet.of(Aggregation.Dimension.TIME), 0L, TimeRange.ALL, null, 10));
+        assertFalse(new Aggregation(EnumSet.noneOf(Aggregation.Dimension.class), 0L, null, null, 10).groupsBy(Aggregation.Dimension.TIME));
+    }
+}
@@ -0,0 +1,69 @@
+package com.elitelogs.api.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseLogProviderTest {
+
+    @Test
+    void cancelledPageKeepsIncomingCursor() {
+        LogPage page = DatabaseLogProvider.pageAfter(Collections.emptyList(), 42L, 10, true);
+
+        assertTrue(page.getRecords().isEmpty());
+        assertEquals("42", page.getCursor());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void truncatedPageDropsPartialRows() {
+        LogPage page = DatabaseLogProvider.pageAfter(rows(43, 3), 42L, 10, true);
+
+        assertTrue(page.getRecords().isEmpty());
+        assertEquals("42", page.getCursor());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void extraRowIsTrimmedAndSignalsMore() {
+        LogPage page = DatabaseLogProvider.pageAfter(rows(1, 11), 0L, 10, false);
+
+        assertEquals(10, page.getRecords().size());
+        assertEquals("10", page.getCursor());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void shortPageIsLast() {
+        LogPage page = DatabaseLogProvider.pageAfter(rows(5, 3), 4L, 10, false);
+
+        assertEquals(3, page.getRecords().size());
+        assertEquals("7", page.getCursor());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void emptyPageKeepsCursor() {
+        LogPage page = DatabaseLogProvider.pageAfter(Collections.emptyList(), 7L, 10, false);
+
+        assertTrue(page.getRecords().isEmpty());
+        assertEquals("7", page.getCursor());
+        assertFalse(page.hasMore());
+    }
+
+    private static List<LogRecord> rows(long firstId, int count) {
+        List<LogRecord> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(LogRecord.stored("chat", "database", firstId + i, Instant.EPOCH, "chat", "line " + i,
+                    null, null, null, null));
+        }
+        return rows;
+    }
+}
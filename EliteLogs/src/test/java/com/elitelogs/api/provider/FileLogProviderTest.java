@@ -0,0 +1,76 @@
+package com.elitelogs.api.provider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileLogProviderTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T12:00:00Z");
+    private static final int TAIL_BLOCK = 64 * 1024;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void undatedFilesAreSearchedFromTheirFirstLine() {
+        assertTrue(FileLogProvider.includedFromStart(null, TimeRange.since(NOW.minusSeconds(3600))));
+        assertTrue(FileLogProvider.includedFromStart(null, TimeRange.of(NOW.minusSeconds(3600), NOW)));
+    }
+
+    @Test
+    void datedFilesWaitForTheRangeStart() {
+        LocalDate day = LocalDate.of(2026, 10, 19);
+
+        assertFalse(FileLogProvider.includedFromStart(day, TimeRange.since(NOW.minusSeconds(3600))));
+        assertTrue(FileLogProvider.includedFromStart(day, TimeRange.of(null, NOW)));
+        assertTrue(FileLogProvider.includedFromStart(day, TimeRange.ALL));
+    }
+
+    @Test
+    void tailDecodesMultiByteLinesSplitAcrossBlocks() throws IOException {
+        String cyrillic = "Привет, мир! ".repeat(4_000).trim();
+        String last = "last";
+        File file = write("cyrillic.log", "first\n" + cyrillic + "\n" + last + "\n");
+        // The last block starts between the two bytes of a Cyrillic character.
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(0x80, bytes[bytes.length - TAIL_BLOCK] & 0xC0);
+
+        assertEquals(List.of("first", cyrillic, last), FileLogProvider.tailLines(file, 10, 0L, file.length()));
+        assertEquals(List.of(cyrillic, last), FileLogProvider.tailLines(file, 2, 0L, file.length()));
+    }
+
+    @Test
+    void tailKeepsTheLastLineWithoutTrailingNewline() throws IOException {
+        File small = write("small.log", "one\r\ntwo\n\nthree");
+        assertEquals(List.of("one", "two", "three"), FileLogProvider.tailLines(small, 10, 0L, small.length()));
+        assertEquals(List.of("three"), FileLogProvider.tailLines(small, 1, 0L, small.length()));
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append(i > 0 ? "\n" : "").append("line ").append(i);
+        }
+        File large = write("large.log", content.toString());
+        assertTrue(large.length() > 2L * TAIL_BLOCK);
+        assertEquals(List.of("line 19997", "line 19998", "line 19999"),
+                FileLogProvider.tailLines(large, 3, 0L, large.length()));
+        assertEquals(20_000, FileLogProvider.tailLines(large, 50_000, 0L, large.length()).size());
+    }
+
+    private File write(String name, String content) throws IOException {
+        Path file = folder.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+}
@@ -0,0 +1,103 @@
+package com.elitelogs.api.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerTimelineTest {
+
+    @Test
+    void mergeOrdersByTimeThenCategoryThenOffset() {
+        List<List<PlayerTimeline.Entry>> streams = Arrays.asList(
+                stream("chat", 1_000L, 3_000L, 3_000L),
+                stream("commands", 2_000L, 3_000L),
+                Collections.emptyList(),
+                null);
+
+        PlayerTimeline.Page page = PlayerTimeline.merge(streams, 10);
+
+        assertEquals(Arrays.asList("1000:0:chat", "2000:0:commands", "3000:1:chat", "3000:2:chat",
+                "3000:1:commands"), positions(page));
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void pageStopsAtTheLimitAndResumesFromItsLastPosition() {
+        List<PlayerTimeline.Entry> chat = stream("chat", 1_000L, 4_000L, 5_000L);
+        List<PlayerTimeline.Entry> commands = stream("commands", 2_000L, 3_000L);
+
+        PlayerTimeline.Page first = PlayerTimeline.merge(Arrays.asList(chat, commands), 3);
+        assertTrue(first.hasMore());
+        PlayerTimeline.Position cursor = PlayerTimeline.Position.parse(first.getLastPosition().toString());
+        assertEquals(0, cursor.compareTo(first.getLastPosition()));
+
+        PlayerTimeline.Page second = PlayerTimeline.merge(Arrays.asList(after(chat, cursor), after(commands, cursor)), 3);
+        assertEquals(Arrays.asList("4000:1:chat", "5000:2:chat"), positions(second));
+        assertFalse(second.hasMore());
+    }
+
+    @Test
+    void emptyStreamsGiveAnEmptyPage() {
+        PlayerTimeline.Page page = PlayerTimeline.merge(Collections.emptyList(), 10);
+
+        assertTrue(page.getEntries().isEmpty());
+        assertFalse(page.hasMore());
+        assertNull(page.getLastPosition());
+    }
+
+    @Test
+    void positionsKeepMicrosAndCategoriesWithColons() {
+        PlayerTimeline.Position position = PlayerTimeline.Position.parse("1700000000123456:42:world:nether");
+
+        assertEquals(1700000000123L, position.getMillis());
+        assertEquals("world:nether", position.getCategory());
+        assertEquals(42L, position.getOffset());
+        assertTrue(position.precedes(1700000000123456L, "world:nether", 43L));
+        assertFalse(position.precedes(1700000000123456L, "world:nether", 42L));
+        assertEquals(-1L, PlayerTimeline.Position.parse("-1:0:chat").getMillis());
+    }
+
+    @Test
+    void foreignCursorsAreRejected() {
+        for (String cursor : Arrays.asList("", "12", "12:3", "12:3:", "x:3:chat", "12:y:chat")) {
+            assertThrows(IllegalArgumentException.class, () -> PlayerTimeline.Position.parse(cursor), cursor);
+        }
+    }
+
+    private static List<PlayerTimeline.Entry> stream(String category, long... micros) {
+        List<PlayerTimeline.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < micros.length; i++) {
+            entries.add(new PlayerTimeline.Entry(new PlayerTimeline.Position(micros[i], category, i),
+                    LogRecord.fileLine(category, "files", category + ".log", "line " + i)));
+        }
+        return entries;
+    }
+
+    private static List<PlayerTimeline.Entry> after(List<PlayerTimeline.Entry> stream, PlayerTimeline.Position cursor) {
+        List<PlayerTimeline.Entry> remaining = new ArrayList<>();
+        for (PlayerTimeline.Entry entry : stream) {
+            PlayerTimeline.Position position = entry.getPosition();
+            if (cursor.precedes(position.getMicros(), position.getCategory(), position.getOffset())) {
+                remaining.add(entry);
+            }
+        }
+        return remaining;
+    }
+
+    private static List<String> positions(PlayerTimeline.Page page) {
+        List<String> positions = new ArrayList<>();
+        for (PlayerTimeline.Entry entry : page.getEntries()) {
+            positions.add(entry.getPosition().toString());
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,125 @@
+package com.elitelogs.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveManagerTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final String LINES = "[10:00:00] first\n[10:01:00] second\n";
+
+    @TempDir
+    Path dataFolder;
+
+    @Test
+    void oldDatedFilesAreCompressedVerifiedAndRemoved() throws IOException {
+        Path log = write("chat/2020-01-01.log", 30 * DAY);
+        Path index = TimeIndex.sidecar(log.toFile()).toPath();
+        Path filter = TokenFilter.sidecar(log.toFile()).toPath();
+        Files.write(index, new byte[]{1, 2, 3, 4});
+        Files.write(filter, new byte[]{5, 6});
+
+        ArchiveManager.Result result = ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7);
+
+        assertEquals(1, result.getCandidates());
+        assertEquals(1, result.getArchived());
+        assertEquals(0, result.getFailed());
+        assertFalse(Files.exists(log));
+        assertFalse(Files.exists(index));
+        assertFalse(Files.exists(filter));
+        assertEquals(LINES, gunzip(dataFolder.resolve("archive/chat/2020-01-01.log.gz")));
+        String manifest = new String(Files.readAllBytes(dataFolder.resolve("archive/" + ArchiveManager.MANIFEST)),
+                StandardCharsets.UTF_8);
+        assertTrue(manifest.startsWith("chat/2020-01-01.log\t" + LINES.length() + "\t"), manifest);
+    }
+
+    @Test
+    void filesInsideKeepDaysStayUnlessForced() throws IOException {
+        Path log = write("chat/" + LocalDate.now().minusDays(1) + ".log", 2 * HOUR);
+
+        assertEquals(0, ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7).getCandidates());
+        assertTrue(Files.exists(log));
+
+        assertEquals(1, ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7, true).getArchived());
+        assertFalse(Files.exists(log));
+    }
+
+    @Test
+    void filesStillBeingWrittenAreNeverForced() throws IOException {
+        Path today = write("chat/" + LocalDate.now() + ".log", 2 * HOUR);
+        Path fresh = write("chat/2020-01-01.log", 0L);
+
+        ArchiveManager.Result result = ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7, true);
+
+        assertEquals(0, result.getCandidates());
+        assertTrue(Files.exists(today));
+        assertTrue(Files.exists(fresh));
+    }
+
+    @Test
+    void undatedFilesAreOnlyArchivedPastKeepDays() throws IOException {
+        Path live = write("latest.log", 2 * HOUR);
+        Path stale = write("old/commands.log", 30 * DAY);
+
+        ArchiveManager.Result forced = ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7, true);
+
+        assertEquals(1, forced.getArchived());
+        assertTrue(Files.exists(live));
+        assertFalse(Files.exists(stale));
+        assertEquals(LINES, gunzip(dataFolder.resolve("archive/old/commands.log.gz")));
+
+        assertEquals(0, ArchiveManager.archiveOldLogs(dataFolder.toFile(), 0, true).getCandidates());
+        assertTrue(Files.exists(live));
+    }
+
+    @Test
+    void interruptedRunIsFinishedWithoutCompressingAgain() throws IOException {
+        Path log = write("chat/2020-01-01.log", 30 * DAY);
+        long modified = Files.getLastModifiedTime(log).toMillis();
+        ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7);
+        Path gz = dataFolder.resolve("archive/chat/2020-01-01.log.gz");
+        byte[] archived = Files.readAllBytes(gz);
+
+        Files.write(log, LINES.getBytes(StandardCharsets.UTF_8));
+        assertTrue(log.toFile().setLastModified(modified));
+        ArchiveManager.Result result = ArchiveManager.archiveOldLogs(dataFolder.toFile(), 7);
+
+        assertEquals(1, result.getArchived());
+        assertFalse(Files.exists(log));
+        assertEquals(archived.length, Files.readAllBytes(gz).length);
+    }
+
+    private Path write(String relative, long ageMillis) throws IOException {
+        Path file = dataFolder.resolve("logs").resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, LINES.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.toFile().setLastModified(System.currentTimeMillis() - ageMillis));
+        return file;
+    }
+
+    private static String gunzip(Path gz) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz))) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,65 @@
+package com.elitelogs.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileLoggerTest {
+    private static final String FIRST = "[10:00:00] first";
+    private static final String SECOND = "[10:01:00] second";
+    private static final int MINUTE_TEN_ONE = 10 * 3600 + 60;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsLinesAndIndexesEachMinute() throws IOException {
+        FileLogger logger = new FileLogger(dir.toFile());
+
+        assertTrue(logger.append("chat.log", FIRST));
+        assertTrue(logger.append("chat.log", SECOND));
+
+        File log = dir.resolve("chat.log").toFile();
+        long secondOffset = (FIRST + System.lineSeparator()).length();
+        assertEquals(secondOffset + (SECOND + System.lineSeparator()).length(), log.length());
+        assertEquals(secondOffset, TimeIndex.load(log).floor(MINUTE_TEN_ONE));
+    }
+
+    @Test
+    void fileArchivedAwayGetsAFreshSidecar() throws IOException {
+        FileLogger logger = new FileLogger(dir.toFile());
+        logger.append("chat.log", FIRST);
+        File log = dir.resolve("chat.log").toFile();
+        Files.delete(log.toPath());
+        Files.delete(TimeIndex.sidecar(log).toPath());
+
+        logger.append("chat.log", FIRST);
+        logger.append("chat.log", SECOND);
+
+        TimeIndex index = TimeIndex.load(log);
+        assertNotNull(index);
+        assertEquals((FIRST + System.lineSeparator()).length(), index.floor(MINUTE_TEN_ONE));
+    }
+
+    @Test
+    void sidecarDeletedUnderALiveFileIsNotRecreatedWithoutItsHeader() throws IOException {
+        FileLogger logger = new FileLogger(dir.toFile());
+        logger.append("chat.log", FIRST);
+        File log = dir.resolve("chat.log").toFile();
+        Files.delete(TimeIndex.sidecar(log).toPath());
+
+        logger.append("chat.log", SECOND);
+
+        assertFalse(TimeIndex.sidecar(log).exists());
+        assertEquals((FIRST + System.lineSeparator()).length(), TimeIndex.rebuild(log).floor(MINUTE_TEN_ONE));
+    }
+}
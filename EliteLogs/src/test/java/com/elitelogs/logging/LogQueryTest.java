@@ -0,0 +1,127 @@
+package com.elitelogs.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogQueryTest {
+    private static final String UUID_TEXT = "069a79f4-44e9-4726-a5be-fca90e38aaf5";
+    private static final String GIVE = "[21:30:00] [Steve|" + UUID_TEXT + "] [cmd] /give Steve diamond world=nether";
+    private static final String CHAT = "[09:15:00] [Alex|11111111-2222-3333-4444-555555555555] [chat] op please";
+
+    @Test
+    void plainTextIsNotParsed() {
+        assertNull(LogQuery.parse("steve joined"));
+        assertNull(LogQuery.parse("127.0.0.1"));
+        assertNull(LogQuery.of("   "));
+        assertNull(LogQuery.of(null));
+    }
+
+    @Test
+    void ofTurnsPlainTextIntoOnePhrase() {
+        LogQuery query = LogQuery.of("  Steve Diamond ");
+
+        assertEquals(Collections.singletonList("steve diamond"), query.requiredTerms());
+        assertTrue(query.matches(GIVE, -1, "commands"));
+        assertFalse(LogQuery.of("diamond steve").matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("/give steve").matches(GIVE, -1, "commands"));
+    }
+
+    @Test
+    void booleanOperatorsAndPrecedence() {
+        LogQuery query = LogQuery.of("player:Steve AND (cmd:/give OR \"op \") AND NOT world:lobby AND time>21:00");
+
+        assertTrue(query.matches(GIVE, 21 * 3600 + 1800, "commands"));
+        assertFalse(query.matches(GIVE, 20 * 3600, "commands"));
+        assertFalse(query.matches(CHAT, 21 * 3600 + 1800, "chat"));
+        assertTrue(LogQuery.of("alex OR steve").matches(CHAT, -1, "chat"));
+        assertTrue(LogQuery.of("NOT steve alex").matches(CHAT, -1, "chat"));
+        assertFalse(LogQuery.of("NOT (steve OR alex)").matches(CHAT, -1, "chat"));
+    }
+
+    @Test
+    void fieldsMatchTheDecorationAndType() {
+        assertTrue(LogQuery.of("player:steve").matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("player:" + UUID_TEXT).matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("uuid:" + UUID_TEXT.toUpperCase()).matches(GIVE, -1, "commands"));
+        assertFalse(LogQuery.of("player:stev").matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("type:cmd").matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("type:chat").matches(CHAT, -1, "chat"));
+        assertTrue(LogQuery.of("player:steve world:nether").matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("player:steve cmd:/give").matches(GIVE, -1, "commands"));
+        assertFalse(LogQuery.of("NOT steve cmd:please").matches(CHAT, -1, "chat"));
+        assertTrue(LogQuery.of("NOT steve chat:please").matches(CHAT, -1, "chat"));
+    }
+
+    @Test
+    void otherKeysAloneArePlainText() {
+        assertNull(LogQuery.parse("world:nether"));
+        assertFalse(LogQuery.of("world:nether").matches(GIVE, -1, "commands"));
+        assertTrue(LogQuery.of("/give").matches(GIVE, -1, "commands"));
+    }
+
+    @Test
+    void timeComparisonsNeedAStamp() {
+        assertTrue(LogQuery.of("time>=21:30").matches(GIVE, 21 * 3600 + 1800, "commands"));
+        assertFalse(LogQuery.of("time>21:30").matches(GIVE, 21 * 3600 + 1800, "commands"));
+        assertTrue(LogQuery.of("time<21:30:01").matches(GIVE, 21 * 3600 + 1800, "commands"));
+        assertFalse(LogQuery.of("time<23:00").matches(GIVE, -1, "commands"));
+    }
+
+    @Test
+    void malformedQueriesAreRejected() {
+        for (String text : Arrays.asList("(steve", "steve)", "steve AND", "NOT", "\"open", "uuid:nope", "time>25:00",
+                "player:")) {
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> LogQuery.of(text), text);
+            assertTrue(error.getMessage().startsWith("Invalid query"), error.getMessage());
+        }
+    }
+
+    @Test
+    void requiredTermsSkipNegationsAndAlternatives() {
+        assertEquals(Arrays.asList("steve", "diamond"), LogQuery.of("steve AND diamond NOT creeper").requiredTerms());
+        assertEquals(Collections.singletonList("op "), LogQuery.of("\"op \" AND (alex OR steve)").requiredTerms());
+    }
+
+    @Test
+    void mightMatchAsksForTermsOnly() {
+        List<String> asked = new ArrayList<>();
+        LogQuery.of("steve AND NOT creeper").mightMatch(term -> asked.add(term));
+
+        assertEquals(Collections.singletonList("steve"), asked);
+        assertFalse(LogQuery.of("steve OR alex").mightMatch(term -> false));
+        assertTrue(LogQuery.of("NOT steve").mightMatch(term -> false));
+    }
+
+    @Test
+    void sqlBindsEveryValue() {
+        List<Object> parameters = new ArrayList<>();
+        String sql = LogQuery.of("player:" + UUID_TEXT + " 100% NOT type:chat time<06:00").toSql(parameters);
+
+        assertEquals("((player_uuid IS NOT NULL AND player_uuid = ?) AND "
+                + "(message LIKE ? OR COALESCE(player_name, '') LIKE ? OR event_type LIKE ?) AND "
+                + "NOT (event_type = ?) AND TIME(occurred_at) < ?)", sql);
+        assertEquals(Arrays.asList(UUID.fromString(UUID_TEXT), "%100\\%%", "%100\\%%", "%100\\%%", "chat",
+                LocalTime.of(6, 0)), parameters);
+    }
+
+    @Test
+    void queriesFromTheSameTextAreEqual() {
+        assertEquals(LogQuery.of("player:steve"), LogQuery.of(" player:steve "));
+        assertEquals(LogQuery.of("steve").hashCode(), LogQuery.of("steve").hashCode());
+        assertNotEquals(LogQuery.of("player:steve"), LogQuery.literal("player:steve"));
+        assertNotEquals(LogQuery.of("steve"), LogQuery.of("alex"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.elitelogs.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TimeIndexTest {
+    private static final String[] LINES = {
+            "[10:00:00] a", "[10:00:40] b", "no stamp", "[10:01:10] c", "[10:03:00] d", "[10:03:59] e"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appenderRecordsTheFirstLineOfEachMinute() throws IOException {
+        File log = dir.resolve("chat.log").toFile();
+        long[] offsets = append(log, new TimeIndex.Appender(log), LINES);
+
+        TimeIndex index = TimeIndex.load(log);
+        assertNotNull(index);
+        assertEquals(0L, index.floor(second(9, 59, 0)));
+        assertEquals(0L, index.floor(second(10, 0, 50)));
+        assertEquals(offsets[3], index.floor(second(10, 1, 10)));
+        assertEquals(offsets[3], index.floor(second(10, 2, 30)));
+        assertEquals(offsets[4], index.floor(second(23, 0, 0)));
+    }
+
+    @Test
+    void rebuildMatchesWhatTheAppenderWrote() throws IOException {
+        File log = dir.resolve("chat.log").toFile();
+        append(log, new TimeIndex.Appender(log), LINES);
+        byte[] written = Files.readAllBytes(TimeIndex.sidecar(log).toPath());
+        Files.delete(TimeIndex.sidecar(log).toPath());
+
+        TimeIndex.rebuild(log);
+
+        assertEquals(new String(written, StandardCharsets.ISO_8859_1),
+                new String(Files.readAllBytes(TimeIndex.sidecar(log).toPath()), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void appenderResumesAnExistingSidecar() throws IOException {
+        File log = dir.resolve("chat.log").toFile();
+        long[] first = append(log, new TimeIndex.Appender(log), "[10:00:00] a", "[10:01:00] b");
+        try (RandomAccessFile sidecar = new RandomAccessFile(TimeIndex.sidecar(log), "rw")) {
+            sidecar.setLength(sidecar.length() - 5);
+        }
+
+        long[] second = append(log, new TimeIndex.Appender(log), "[10:00:30] late", "[10:02:00] c");
+
+        TimeIndex index = TimeIndex.load(log);
+        assertEquals(first[0], index.floor(second(10, 1, 30)));
+        assertEquals(second[1], index.floor(second(10, 2, 0)));
+    }
+
+    @Test
+    void fileWithLinesButNoSidecarIsLeftForRebuild() throws IOException {
+        File log = dir.resolve("chat.log").toFile();
+        Files.write(log.toPath(), "[10:00:00] old\n".getBytes(StandardCharsets.UTF_8));
+
+        append(log, new TimeIndex.Appender(log), "[10:05:00] new");
+
+        assertFalse(TimeIndex.sidecar(log).exists());
+        assertNull(TimeIndex.load(log));
+    }
+
+    @Test
+    void foreignSidecarIsIgnored() throws IOException {
+        File log = dir.resolve("chat.log").toFile();
+        Files.write(log.toPath(), "[10:00:00] a\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(TimeIndex.sidecar(log).toPath(), new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+
+        assertNull(TimeIndex.load(log));
+    }
+
+    private static long[] append(File log, TimeIndex.Appender appender, String... lines) throws IOException {
+        long[] offsets = new long[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            offsets[i] = log.length();
+            Files.write(log.toPath(), (lines[i] + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            appender.record(lines[i], offsets[i]);
+        }
+        return offsets;
+    }
+
+    private static int second(int hour, int minute, int second) {
+        return hour * 3600 + minute * 60 + second;
+    }
+}
@@ -0,0 +1,89 @@
+package com.elitelogs.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenFilterTest {
+    private static final List<String> LINES = Arrays.asList(
+            "[10:00:00] [Steve|069a79f4-44e9-4726-a5be-fca90e38aaf5] joined from 127.0.0.1",
+            "[10:00:05] [Alex] [chat] hi @everyone, ready for the_raid?",
+            "[10:02:00] /give Steve diamond_sword 1");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everySubstringOfALineMightBeThere() throws IOException {
+        TokenFilter filter = TokenFilter.build(write("chat.log"), 0.01, 4096);
+
+        for (String line : LINES) {
+            String lower = line.toLowerCase(Locale.ROOT);
+            for (int start = 0; start < lower.length(); start++) {
+                for (int end = start + 1; end <= Math.min(lower.length(), start + 24); end++) {
+                    String needle = lower.substring(start, end);
+                    assertTrue(filter.mightContain(needle), needle);
+                }
+            }
+        }
+    }
+
+    @Test
+    void termsThatAreNotThereAreRuledOut() throws IOException {
+        TokenFilter filter = TokenFilter.build(write("chat.log"), 0.001, 4096);
+
+        assertFalse(filter.mightContain("creeper"));
+        assertFalse(filter.mightContain("10.0.0.2"));
+        assertFalse(filter.mightContain("steve joined herobrine"));
+    }
+
+    @Test
+    void gzippedFilesAreReadThrough() throws IOException {
+        File log = dir.resolve("chat.log.gz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(log.toPath()))) {
+            out.write(String.join("\n", LINES).getBytes(StandardCharsets.UTF_8));
+        }
+
+        TokenFilter filter = TokenFilter.build(log, 0.001, 4096);
+
+        assertTrue(filter.mightContain("diamond_sw"));
+        assertFalse(filter.mightContain("creeper"));
+    }
+
+    @Test
+    void sidecarIsReloadedUntilTheFileChanges() throws IOException {
+        File log = write("chat.log");
+        TokenFilter.build(log, 0.01, 1 << 20);
+
+        TokenFilter loaded = TokenFilter.load(log);
+        assertNotNull(loaded);
+        assertTrue(loaded.covers(log));
+        assertTrue(loaded.mightContain("127.0.0.1"));
+        assertTrue(TokenFilter.sidecar(log).length() < 1024, "quiet files fold to a small filter");
+
+        Files.write(log.toPath(), "[10:03:00] late line\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(TokenFilter.load(log));
+    }
+
+    private File write(String name) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, LINES, StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+}